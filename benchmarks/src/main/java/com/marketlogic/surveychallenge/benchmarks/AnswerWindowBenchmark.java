@@ -0,0 +1,69 @@
+package com.marketlogic.surveychallenge.benchmarks;
+
+import com.marketlogic.surveychallenge.config.AnswerWindowProperties;
+import com.marketlogic.surveychallenge.repository.SubmittedAnswerEntity;
+import com.marketlogic.surveychallenge.service.AnswerWindows;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/***
+ * Concurrent submissions into the window buckets of a few answers, and a one day window over a
+ * question with 20 answers, with the default one minute buckets
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class AnswerWindowBenchmark {
+    private AnswerWindows windows;
+    private List<UUID> answerIds;
+    private List<List<SubmittedAnswerEntity>> submissions;
+
+    @Setup
+    public void setUp() {
+        windows = new AnswerWindows(null, null, new AnswerWindowProperties());
+        answerIds = IntStream.range(0, 20).mapToObj(i -> UUID.randomUUID()).collect(Collectors.toList());
+        Instant now = Instant.now();
+        for (int minute = 0; minute < 1440; minute++)
+            for (UUID answerId : answerIds)
+                windows.record(List.of(SubmittedAnswerEntity.builder()
+                        .answerId(answerId)
+                        .submittedAt(now.minusSeconds(60L * minute))
+                        .build()));
+        submissions = answerIds.stream()
+                .limit(4)
+                .map(answerId -> List.of(SubmittedAnswerEntity.builder().answerId(answerId).submittedAt(now).build()))
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void record() {
+        windows.record(submissions.get(ThreadLocalRandom.current().nextInt(submissions.size())));
+    }
+
+    @Benchmark
+    public long[] countDay() {
+        return windows.count(answerIds, Duration.ofDays(1), Instant.now());
+    }
+}
@@ -0,0 +1,79 @@
+package com.marketlogic.surveychallenge.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.marketlogic.surveychallenge.rest.dto.SurveyResponse;
+import com.marketlogic.surveychallenge.service.ISurveyService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/***
+ * Encoding and decoding of a SurveyResponse as JSON, CBOR and Smile with the mappers the HTTP
+ * message converters use. The payload size of each format is printed once per trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class BinaryFormatBenchmark {
+    @Param({"json", "cbor", "smile"})
+    private String format;
+
+    @Param({"100"})
+    private int questions;
+
+    @Param({"4", "20"})
+    private int answers;
+
+    private ConfigurableApplicationContext context;
+    private ObjectMapper mapper;
+    private SurveyResponse survey;
+    private byte[] encoded;
+
+    @Setup
+    public void setUp() throws IOException {
+        context = Surveys.start();
+        if (format.equals("cbor"))
+            mapper = context.getBean(MappingJackson2CborHttpMessageConverter.class).getObjectMapper();
+        else if (format.equals("smile"))
+            mapper = context.getBean(MappingJackson2SmileHttpMessageConverter.class).getObjectMapper();
+        else
+            mapper = context.getBean(ObjectMapper.class);
+
+        survey = context.getBean(ISurveyService.class).newSurvey(Surveys.request(questions, answers)).orElseThrow();
+        encoded = mapper.writeValueAsBytes(survey);
+        System.out.printf("%n%s payload of %d questions with %d answers: %d bytes%n", format, questions, answers, encoded.length);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public byte[] encode() throws IOException {
+        return mapper.writeValueAsBytes(survey);
+    }
+
+    @Benchmark
+    public SurveyResponse decode() throws IOException {
+        return mapper.readValue(encoded, SurveyResponse.class);
+    }
+}
@@ -0,0 +1,83 @@
+package com.marketlogic.surveychallenge.benchmarks;
+
+import com.marketlogic.surveychallenge.repository.SubmittedAnswerEntity;
+import com.marketlogic.surveychallenge.service.AnswerBitmaps;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/***
+ * Filtered distribution of one question over respondents that answered every question of a survey
+ * at random, with the filter answers taken from the other questions
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class FilteredDistributionBenchmark {
+    private static final int QUESTIONS = 4;
+    private static final int ANSWERS = 5;
+
+    @Param({"100000", "2000000"})
+    private int respondents;
+
+    @Param({"1", "3"})
+    private int filteredQuestions;
+
+    private final UUID surveyId = UUID.randomUUID();
+    private AnswerBitmaps bitmaps;
+    private List<List<UUID>> answerIds;
+    private List<Set<UUID>> filter;
+
+    @Setup
+    public void setUp() {
+        answerIds = IntStream.range(0, QUESTIONS)
+                .mapToObj(q -> IntStream.range(0, ANSWERS).mapToObj(a -> UUID.randomUUID()).collect(Collectors.toList()))
+                .collect(Collectors.toList());
+        bitmaps = new AnswerBitmaps(null, null);
+        Random random = new Random(42);
+        List<SubmittedAnswerEntity> batch = new ArrayList<>();
+        for (int i = 0; i < respondents; i++) {
+            UUID responseId = new UUID(0, i);
+            for (List<UUID> question : answerIds)
+                batch.add(SubmittedAnswerEntity.builder()
+                        .responseId(responseId)
+                        .surveyId(surveyId)
+                        .answerId(question.get(random.nextInt(ANSWERS)))
+                        .build());
+            if (batch.size() >= 10_000) {
+                bitmaps.record(batch);
+                batch.clear();
+            }
+        }
+        bitmaps.record(batch);
+
+        filter = IntStream.rangeClosed(1, filteredQuestions)
+                .mapToObj(q -> Set.of(answerIds.get(q).get(0), answerIds.get(q).get(1)))
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public long[] filteredDistribution() {
+        return bitmaps.count(surveyId, answerIds.get(0), filter);
+    }
+}
@@ -0,0 +1,91 @@
+package com.marketlogic.surveychallenge.benchmarks;
+
+import com.marketlogic.surveychallenge.repository.ShardRouter;
+import com.marketlogic.surveychallenge.repository.SubmissionJdbcRepository;
+import com.marketlogic.surveychallenge.repository.SubmittedAnswerEntity;
+import com.marketlogic.surveychallenge.service.IResponseExportService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.OutputStream;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/***
+ * CSV export of the answers of one survey into a discarding stream, read in one or several question ranges
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+public class ResponseExportBenchmark {
+    private static final int QUESTIONS = 10;
+
+    @Param({"50000"})
+    private int responses;
+
+    @Param({"1", "4"})
+    private int parallelism;
+
+    private ConfigurableApplicationContext context;
+    private IResponseExportService exportService;
+    private UUID surveyId;
+
+    @Setup
+    public void setUp() {
+        context = Surveys.start();
+        exportService = context.getBean(IResponseExportService.class);
+        SubmissionJdbcRepository repo = context.getBean(SubmissionJdbcRepository.class);
+        ShardRouter router = context.getBean(ShardRouter.class);
+        surveyId = UUID.randomUUID();
+        List<UUID> questionIds = IntStream.range(0, QUESTIONS).mapToObj(i -> UUID.randomUUID()).collect(Collectors.toList());
+        List<SubmittedAnswerEntity> batch = new ArrayList<>();
+        for (int r = 0; r < responses; r++) {
+            UUID responseId = UUID.randomUUID();
+            for (UUID questionId : questionIds)
+                batch.add(SubmittedAnswerEntity.builder()
+                        .id(UUID.randomUUID())
+                        .responseId(responseId)
+                        .surveyId(surveyId)
+                        .questionId(questionId)
+                        .answerId(UUID.randomUUID())
+                        .submittedAt(Instant.now())
+                        .build());
+            if (batch.size() >= 10_000 || r == responses - 1) {
+                router.inTransaction(0, false, () -> {
+                    repo.insertAll(batch);
+                    return null;
+                });
+                batch.clear();
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public long export() {
+        return exportService.exportCsv(surveyId, parallelism, OutputStream.nullOutputStream()).join();
+    }
+}
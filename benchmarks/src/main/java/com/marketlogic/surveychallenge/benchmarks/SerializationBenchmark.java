@@ -0,0 +1,59 @@
+package com.marketlogic.surveychallenge.benchmarks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.marketlogic.surveychallenge.rest.dto.SurveyResponse;
+import com.marketlogic.surveychallenge.service.ISurveyService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/***
+ * JSON encoding of a SurveyResponse with the application ObjectMapper
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SerializationBenchmark {
+    @Param({"10", "200"})
+    private int questions;
+
+    @Param({"2", "20"})
+    private int answers;
+
+    private ConfigurableApplicationContext context;
+    private ObjectMapper objectMapper;
+    private SurveyResponse survey;
+
+    @Setup
+    public void setUp() {
+        context = Surveys.start();
+        objectMapper = context.getBean(ObjectMapper.class);
+        survey = context.getBean(ISurveyService.class).newSurvey(Surveys.request(questions, answers)).orElseThrow();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public byte[] serializeSurvey() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(survey);
+    }
+}
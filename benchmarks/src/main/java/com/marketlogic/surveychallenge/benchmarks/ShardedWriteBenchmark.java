@@ -0,0 +1,69 @@
+package com.marketlogic.surveychallenge.benchmarks;
+
+import com.marketlogic.surveychallenge.rest.dto.SurveyRequest;
+import com.marketlogic.surveychallenge.rest.dto.SurveyResponse;
+import com.marketlogic.surveychallenge.service.ISurveyService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/***
+ * newSurvey from concurrent writers against one to four in-memory H2 shards. Each shard is its own
+ * database with its own pool, so write throughput should grow with the shards as long as there are
+ * cores for the writers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Threads(8)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ShardedWriteBenchmark {
+
+    @Param({"1", "2", "4"})
+    private int shards;
+
+    private ConfigurableApplicationContext context;
+    private ISurveyService surveyService;
+    private SurveyRequest survey;
+
+    @Setup
+    public void setUp() {
+        String database = "benchmark-" + UUID.randomUUID();
+        List<String> properties = new ArrayList<>();
+        properties.add("survey.sharding.enabled=true");
+        for (int shard = 0; shard < shards; shard++)
+            properties.add("survey.sharding.urls[" + shard + "]=jdbc:h2:mem:" + database + "-" + shard
+                    + ";DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000");
+        context = Surveys.start(properties.toArray(String[]::new));
+        surveyService = context.getBean(ISurveyService.class);
+        survey = Surveys.request(10, 4);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public SurveyResponse newSurvey() {
+        return surveyService.newSurvey(survey).orElseThrow();
+    }
+}
@@ -0,0 +1,102 @@
+package com.marketlogic.surveychallenge.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.marketlogic.surveychallenge.rest.dto.SurveyPageResponse;
+import com.marketlogic.surveychallenge.rest.dto.SurveyRequest;
+import com.marketlogic.surveychallenge.rest.dto.SurveyResponse;
+import com.marketlogic.surveychallenge.service.ISurveyService;
+import com.marketlogic.surveychallenge.service.SurveyCache;
+import com.marketlogic.surveychallenge.service.SurveyFields;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/***
+ * getSurvey, getSurveys and a getSurveys of names only through the service against an H2 dataset of imported surveys.
+ * Without the cache the survey is evicted before every getSurvey, so it is answered from the database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SurveyReadBenchmark {
+    private static final int SURVEYS = 100;
+    private static final int PAGE_SIZE = 20;
+    private static final SurveyFields NAMES = SurveyFields.parse("id,name");
+
+    @Param({"10", "200"})
+    private int questions;
+
+    @Param({"2", "20"})
+    private int answers;
+
+    @Param({"true", "false"})
+    private boolean cached;
+
+    private ConfigurableApplicationContext context;
+    private ISurveyService surveyService;
+    private SurveyCache cache;
+    private List<UUID> surveyIds;
+
+    @Setup
+    public void setUp() throws IOException {
+        context = Surveys.start();
+        surveyService = context.getBean(ISurveyService.class);
+        cache = context.getBean(SurveyCache.class);
+
+        ObjectMapper objectMapper = context.getBean(ObjectMapper.class);
+        List<SurveyRequest> surveys = new ArrayList<>(SURVEYS);
+        for (int i = 0; i < SURVEYS; i++)
+            surveys.add(Surveys.request(questions, answers));
+        surveyService.importSurveys(new ByteArrayInputStream(objectMapper.writeValueAsBytes(surveys)));
+
+        surveyIds = new ArrayList<>(SURVEYS);
+        SurveyPageResponse page = surveyService.getSurveys(null, SURVEYS, SurveyFields.ALL);
+        page.getSurveys().forEach(survey -> surveyIds.add(survey.getId()));
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public SurveyResponse getSurvey() {
+        UUID surveyId = surveyIds.get(ThreadLocalRandom.current().nextInt(surveyIds.size()));
+        if (!cached)
+            cache.invalidateAfterCommit(List.of(surveyId));
+        return surveyService.getSurvey(surveyId).orElseThrow();
+    }
+
+    @Benchmark
+    public SurveyPageResponse getSurveys() {
+        UUID after = surveyIds.get(ThreadLocalRandom.current().nextInt(surveyIds.size() - PAGE_SIZE));
+        return surveyService.getSurveys(after, PAGE_SIZE, SurveyFields.ALL);
+    }
+
+    @Benchmark
+    public SurveyPageResponse getSurveyNames() {
+        UUID after = surveyIds.get(ThreadLocalRandom.current().nextInt(surveyIds.size() - PAGE_SIZE));
+        return surveyService.getSurveys(after, PAGE_SIZE, NAMES);
+    }
+}
@@ -0,0 +1,54 @@
+package com.marketlogic.surveychallenge.benchmarks;
+
+import com.marketlogic.surveychallenge.SurveyChallengeApplication;
+import com.marketlogic.surveychallenge.rest.dto.AnswerRequest;
+import com.marketlogic.surveychallenge.rest.dto.QuestionRequest;
+import com.marketlogic.surveychallenge.rest.dto.SurveyRequest;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/***
+ * Survey shapes and application context shared by the benchmarks
+ */
+public final class Surveys {
+    private Surveys() {
+    }
+
+    public static SurveyRequest request(int questions, int answers) {
+        return SurveyRequest.builder()
+                .name("Benchmark survey " + UUID.randomUUID())
+                .description("Customer satisfaction survey with " + questions + " questions")
+                .questions(IntStream.range(0, questions)
+                        .mapToObj(q -> QuestionRequest.builder()
+                                .name("How satisfied are you with aspect " + q + " of our product?")
+                                .description("Pick the answer that describes your experience best")
+                                .answers(IntStream.range(0, answers)
+                                        .mapToObj(a -> AnswerRequest.builder()
+                                                .name("Answer option " + a)
+                                                .description("Satisfaction level " + a + " of " + answers)
+                                                .build())
+                                        .collect(Collectors.toList()))
+                                .build())
+                        .collect(Collectors.toList()))
+                .build();
+    }
+
+    /***
+     * Start the application without a web server on a private in-memory database
+     * @param properties - additional properties in key=value form
+     * @return ConfigurableApplicationContext
+     */
+    public static ConfigurableApplicationContext start(String... properties) {
+        return new SpringApplicationBuilder(SurveyChallengeApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties("spring.datasource.url=jdbc:h2:mem:benchmark-" + UUID.randomUUID() + ";LOCK_TIMEOUT=10000",
+                        "logging.level.root=WARN")
+                .properties(properties)
+                .run();
+    }
+}
@@ -0,0 +1,76 @@
+package com.marketlogic.surveychallenge.benchmarks;
+
+import com.marketlogic.surveychallenge.repository.UuidV7Generator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/***
+ * Primary key inserts of random and time-ordered ids into one growing H2 table, one committed
+ * batch per invocation. Random ids spread over the whole index, so the rate drops as the table
+ * grows, time-ordered ids keep appending to its right edge.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class UuidInsertBenchmark {
+    private static final int BATCH_SIZE = 1000;
+
+    @Param({"random", "uuid-v7"})
+    private String ids;
+
+    private Supplier<UUID> generator;
+    private Connection connection;
+    private PreparedStatement insert;
+    private long rows;
+
+    @Setup
+    public void setUp() throws SQLException {
+        generator = ids.equals("random") ? UUID::randomUUID : UuidV7Generator::next;
+        connection = DriverManager.getConnection("jdbc:h2:mem:id-benchmark-" + UUID.randomUUID());
+        try (Statement ddl = connection.createStatement()) {
+            ddl.execute("create table rows (id uuid primary key, payload varchar(64))");
+        }
+        connection.setAutoCommit(false);
+        insert = connection.prepareStatement("insert into rows values (?, ?)");
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void insertBatch() throws SQLException {
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            insert.setObject(1, generator.get());
+            insert.setString(2, "payload " + rows++);
+            insert.addBatch();
+        }
+        insert.executeBatch();
+        connection.commit();
+    }
+}
@@ -0,0 +1,67 @@
+package com.marketlogic.surveychallenge.service;
+
+import com.marketlogic.surveychallenge.benchmarks.Surveys;
+import com.marketlogic.surveychallenge.repository.SurveyEntity;
+import com.marketlogic.surveychallenge.rest.dto.SurveyRequest;
+import com.marketlogic.surveychallenge.rest.dto.SurveyResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.aop.framework.AopProxyUtils;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/***
+ * Entity to response mapping and request validation of SurveyService, without database access
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SurveyMappingBenchmark {
+    @Param({"10", "200"})
+    private int questions;
+
+    @Param({"2", "20"})
+    private int answers;
+
+    private ConfigurableApplicationContext context;
+    private SurveyService service;
+    private SurveyRequest request;
+    private SurveyEntity entity;
+
+    @Setup
+    public void setUp() {
+        context = Surveys.start();
+        service = (SurveyService) AopProxyUtils.getSingletonTarget(context.getBean(ISurveyService.class));
+        request = Surveys.request(questions, answers);
+        entity = service.createSurveyEntity(request);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public SurveyResponse buildSurveyResponse() {
+        return service.buildSurveyResponse(entity);
+    }
+
+    @Benchmark
+    public SurveyEntity createSurveyEntity() {
+        return service.createSurveyEntity(request);
+    }
+}
@@ -0,0 +1,20 @@
+package com.marketlogic.surveychallenge.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "survey.windows")
+public class AnswerWindowProperties {
+    /***
+     * Time span of one bucket, windows are counted in whole buckets
+     */
+    private Duration bucketDuration = Duration.ofMinutes(1);
+
+    /***
+     * Longest window that can be queried, every answer with submissions keeps retention / bucket duration buckets
+     */
+    private Duration retention = Duration.ofDays(1);
+}
@@ -0,0 +1,25 @@
+package com.marketlogic.surveychallenge.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+
+@Data
+@ConfigurationProperties(prefix = "survey.snapshot")
+public class CatalogSnapshotProperties {
+    /***
+     * Load the snapshot into an empty catalog on startup and write a new snapshot on shutdown
+     */
+    private boolean enabled = false;
+
+    /***
+     * Snapshot file, replaced atomically by every write
+     */
+    private Path file = Path.of("catalog.snapshot");
+
+    /***
+     * Number of surveys read from the database or inserted into it at once
+     */
+    private int chunkSize = 500;
+}
@@ -0,0 +1,43 @@
+package com.marketlogic.surveychallenge.config;
+
+import com.marketlogic.surveychallenge.metrics.CountingJdbcTemplate;
+import com.marketlogic.surveychallenge.metrics.RequestQueryCounter;
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+
+@Configuration
+public class MetricsConfig {
+    /***
+     * Record @Timed service operations. Controllers are not annotated, the web MVC metrics filter
+     * times every request in http.server.requests, with a percentile histogram configured in
+     * application.properties
+     */
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry registry) {
+        return new TimedAspect(registry);
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer requestQueryCounter() {
+        RequestQueryCounter counter = new RequestQueryCounter();
+        return properties -> {
+            properties.put(AvailableSettings.INTERCEPTOR, counter);
+            properties.put(AvailableSettings.STATEMENT_INSPECTOR, counter);
+        };
+    }
+
+    /***
+     * Count the statements of the JDBC repositories into the request next to the Hibernate ones
+     */
+    @Bean
+    public JdbcTemplate jdbcTemplate(DataSource dataSource) {
+        return new CountingJdbcTemplate(dataSource);
+    }
+}
@@ -0,0 +1,38 @@
+package com.marketlogic.surveychallenge.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "survey.executor")
+public class RequestExecutorProperties {
+    public enum Mode {
+        /***
+         * Bounded pool of platform threads with a bounded queue
+         */
+        PLATFORM,
+        /***
+         * A virtual thread per call, requires Java 21 or newer
+         */
+        VIRTUAL
+    }
+
+    private Mode mode = Mode.PLATFORM;
+
+    /***
+     * Maximum number of platform threads running service calls, idle threads time out
+     */
+    private int threads = 32;
+
+    /***
+     * Maximum number of service calls waiting for a platform thread, further requests are rejected
+     */
+    private int queueCapacity = 1000;
+
+    /***
+     * Time an idle platform thread is kept
+     */
+    private Duration keepAlive = Duration.ofSeconds(60);
+}
@@ -0,0 +1,25 @@
+package com.marketlogic.surveychallenge.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "survey.metrics")
+public class RequestMetricsProperties {
+    /***
+     * Requests executing more statements than this are logged
+     */
+    private int statementThreshold = 20;
+
+    /***
+     * Number of slowest requests kept for the slowrequests endpoint, 0 disables the log
+     */
+    private int slowRequests = 20;
+
+    /***
+     * How long a request stays in the slow request log
+     */
+    private Duration slowRequestWindow = Duration.ofMinutes(5);
+}
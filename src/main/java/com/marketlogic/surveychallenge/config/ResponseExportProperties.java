@@ -0,0 +1,42 @@
+package com.marketlogic.surveychallenge.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "survey.export")
+public class ResponseExportProperties {
+    /***
+     * Rows fetched from the database per round trip of an export cursor
+     */
+    private int fetchSize = 1000;
+
+    /***
+     * Size at which an encoded chunk of rows is handed to the response
+     */
+    private DataSize chunkSize = DataSize.ofKilobytes(64);
+
+    /***
+     * Encoded chunks waiting for the response, readers block while it is full
+     */
+    private int queueCapacity = 8;
+
+    /***
+     * Upper bound of the question ranges one export reads in parallel, and the number of reader
+     * threads shared by all exports, so exports never hold more database connections
+     */
+    private int maxParallelism = 4;
+
+    /***
+     * Exports written at the same time, further exports are rejected with 503
+     */
+    private int maxConcurrentExports = 2;
+
+    /***
+     * Time an export response may take, the connection is aborted when it runs longer
+     */
+    private Duration timeout = Duration.ofMinutes(10);
+}
@@ -0,0 +1,27 @@
+package com.marketlogic.surveychallenge.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+
+@Data
+@ConfigurationProperties(prefix = "survey.journal")
+public class ResponseJournalProperties {
+    /***
+     * Append every submitted answer to the journal before it is written to the database, and
+     * replay the journal into an empty responses table on startup
+     */
+    private boolean enabled = false;
+
+    /***
+     * Directory holding the journal segments
+     */
+    private Path directory = Path.of("journal");
+
+    /***
+     * Size of one memory mapped segment file, a new segment is started when the current one is full
+     */
+    private DataSize segmentSize = DataSize.ofMegabytes(64);
+}
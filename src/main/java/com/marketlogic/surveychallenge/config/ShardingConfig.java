@@ -0,0 +1,74 @@
+package com.marketlogic.surveychallenge.config;
+
+import com.marketlogic.surveychallenge.repository.ShardRouter;
+import com.marketlogic.surveychallenge.repository.ShardRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/***
+ * Replaces the single datasource by a routing datasource over one connection pool per shard url.
+ * The JPA transaction manager and every JdbcTemplate use the routing datasource, so a transaction
+ * runs on the shard bound by ShardRouter when it begins.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(prefix = "survey.sharding", name = "enabled", havingValue = "true")
+public class ShardingConfig {
+
+    @Bean
+    public DataSource dataSource(ShardingProperties properties) {
+        Map<Object, Object> shards = new HashMap<>();
+        for (int shard = 0; shard < properties.getUrls().size(); shard++) {
+            HikariDataSource pool = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .url(properties.getUrls().get(shard))
+                    .username(properties.getUsername())
+                    .password(properties.getPassword())
+                    .build();
+            pool.setPoolName("shard-" + shard);
+            pool.setMaximumPoolSize(properties.getPoolSize());
+            shards.put(shard, pool);
+        }
+
+        ShardRoutingDataSource dataSource = new ShardRoutingDataSource();
+        dataSource.setTargetDataSources(shards);
+        dataSource.setLenientFallback(false);
+        log.info("Routing surveys across {} shards", shards.size());
+        return dataSource;
+    }
+
+    /***
+     * Hibernate creates the schema through the routing datasource, which puts it on shard 0 only.
+     * Shards without tables get a copy of the H2 schema script of shard 0 before anything reads them.
+     */
+    @Bean
+    public SmartInitializingSingleton shardSchema(EntityManagerFactory entityManagerFactory,
+                                                  ShardRouter router,
+                                                  JdbcTemplate jdbcTemplate) {
+        return () -> {
+            List<String> script = router.onShard(0, () -> jdbcTemplate.queryForList("script nodata", String.class));
+            for (int shard = 1; shard < router.count(); shard++)
+                router.onShard(shard, () -> {
+                    Integer tables = jdbcTemplate.queryForObject(
+                            "select count(*) from information_schema.tables where table_schema = 'PUBLIC'", Integer.class);
+                    if (tables != null && tables == 0)
+                        script.stream()
+                                .filter(statement -> !statement.startsWith("--"))
+                                .forEach(jdbcTemplate::execute);
+                    return null;
+                });
+        };
+    }
+}
@@ -0,0 +1,36 @@
+package com.marketlogic.surveychallenge.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@ConfigurationProperties(prefix = "survey.sharding")
+public class ShardingProperties {
+    /***
+     * Partition surveys across the shard urls instead of using the single spring.datasource
+     */
+    private boolean enabled = false;
+
+    /***
+     * JDBC url per shard, the position of a url is its shard number and must not change while data is kept
+     */
+    private List<String> urls = new ArrayList<>();
+
+    private String username = "sa";
+
+    private String password = "";
+
+    /***
+     * Maximum number of connections per shard
+     */
+    private int poolSize = 10;
+
+    /***
+     * Calls spanning every shard that run at the same time, the fan-out pool has this many threads per shard and
+     * further calls wait for one
+     */
+    private int fanOutConcurrency = 10;
+}
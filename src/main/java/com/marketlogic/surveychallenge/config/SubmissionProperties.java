@@ -0,0 +1,35 @@
+package com.marketlogic.surveychallenge.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "survey.submissions")
+public class SubmissionProperties {
+    /***
+     * Maximum number of accepted submissions waiting for the writer, further submissions are rejected
+     */
+    private int queueCapacity = 65536;
+
+    /***
+     * Maximum number of submissions written in one JDBC batch and transaction
+     */
+    private int maxBatchSize = 1000;
+
+    /***
+     * Maximum time the writer waits for a batch to fill up after the first submission arrived
+     */
+    private Duration maxDelay = Duration.ofMillis(10);
+
+    /***
+     * Maximum number of idempotency keys remembered in memory, older keys are checked against the database
+     */
+    private int idempotencyKeys = 100_000;
+
+    /***
+     * Time an idempotency key is remembered in memory after the submission was accepted
+     */
+    private Duration idempotencyKeyExpiry = Duration.ofHours(1);
+}
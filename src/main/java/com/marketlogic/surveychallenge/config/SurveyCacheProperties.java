@@ -0,0 +1,18 @@
+package com.marketlogic.surveychallenge.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "survey.cache")
+public class SurveyCacheProperties {
+    /***
+     * Maximum number of cached surveys, used when max-weight-bytes is not set
+     */
+    private long maxEntries = 10_000;
+
+    /***
+     * Maximum estimated size of all cached surveys in bytes, takes precedence over max-entries when positive
+     */
+    private long maxWeightBytes = 0;
+}
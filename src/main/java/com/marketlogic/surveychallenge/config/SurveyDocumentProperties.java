@@ -0,0 +1,18 @@
+package com.marketlogic.surveychallenge.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "survey.documents")
+public class SurveyDocumentProperties {
+    /***
+     * Number of surveys rendered and written together during a read model rebuild
+     */
+    private int rebuildChunkSize = 500;
+
+    /***
+     * Number of threads rendering and writing chunks during a read model rebuild
+     */
+    private int rebuildThreads = 4;
+}
@@ -0,0 +1,13 @@
+package com.marketlogic.surveychallenge.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "survey.import")
+public class SurveyImportProperties {
+    /***
+     * Number of surveys inserted and committed together during a bulk import
+     */
+    private int chunkSize = 500;
+}
@@ -0,0 +1,40 @@
+package com.marketlogic.surveychallenge.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "survey.write-limiter")
+public class WriteLimiterProperties {
+    /***
+     * Concurrent write requests admitted on startup
+     */
+    private int initialLimit = 8;
+
+    /***
+     * Lower bound of the limit, kept even while every write is slow
+     */
+    private int minLimit = 1;
+
+    /***
+     * Upper bound of the limit, below the request executor threads so writes never occupy every worker
+     */
+    private int maxLimit = 16;
+
+    /***
+     * Writes slower than this count as overload and shrink the limit
+     */
+    private Duration latencyThreshold = Duration.ofMillis(250);
+
+    /***
+     * Factor the limit is multiplied with on overload
+     */
+    private double backoffRatio = 0.9;
+
+    /***
+     * Delay a rejected client is asked to wait before retrying
+     */
+    private Duration retryAfter = Duration.ofSeconds(1);
+}
@@ -0,0 +1,13 @@
+package com.marketlogic.surveychallenge.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(code = HttpStatus.UNPROCESSABLE_ENTITY, reason = "The idempotency key was used for another submission.")
+public class IdempotencyKeyReusedException extends RuntimeException {
+    private static final long serialVersionUID = 4412913279104935613L;
+
+    public IdempotencyKeyReusedException(String message) {
+        super(message);
+    }
+}
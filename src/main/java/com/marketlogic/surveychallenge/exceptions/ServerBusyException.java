@@ -0,0 +1,13 @@
+package com.marketlogic.surveychallenge.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(code = HttpStatus.SERVICE_UNAVAILABLE, reason = "The server is busy, retry later.")
+public class ServerBusyException extends RuntimeException {
+    private static final long serialVersionUID = 2873513560429370861L;
+
+    public ServerBusyException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,13 @@
+package com.marketlogic.surveychallenge.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(code = HttpStatus.SERVICE_UNAVAILABLE, reason = "The submission queue is full.")
+public class SubmissionQueueFullException extends RuntimeException {
+    private static final long serialVersionUID = 3186421843129780337L;
+
+    public SubmissionQueueFullException(String message) {
+        super(message);
+    }
+}
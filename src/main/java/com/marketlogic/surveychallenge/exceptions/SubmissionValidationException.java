@@ -0,0 +1,13 @@
+package com.marketlogic.surveychallenge.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(code = HttpStatus.BAD_REQUEST, reason = "The survey submission failed validation.")
+public class SubmissionValidationException extends RuntimeException {
+    private static final long serialVersionUID = -2425329713262371640L;
+
+    public SubmissionValidationException(String message) {
+        super(message);
+    }
+}
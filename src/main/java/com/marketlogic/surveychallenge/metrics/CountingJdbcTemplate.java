@@ -0,0 +1,24 @@
+package com.marketlogic.surveychallenge.metrics;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/***
+ * JdbcTemplate counting every statement it runs into the current request like the Hibernate
+ * statement inspector does, a batch counts as one statement
+ */
+public class CountingJdbcTemplate extends JdbcTemplate {
+
+    public CountingJdbcTemplate(DataSource dataSource) {
+        super(dataSource);
+    }
+
+    @Override
+    protected void applyStatementSettings(Statement stmt) throws SQLException {
+        RequestQueryCounter.statementPrepared();
+        super.applyStatementSettings(stmt);
+    }
+}
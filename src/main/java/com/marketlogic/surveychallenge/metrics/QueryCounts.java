@@ -0,0 +1,22 @@
+package com.marketlogic.surveychallenge.metrics;
+
+import lombok.Getter;
+
+/***
+ * Statements and entity loads of one request, touched by the thread handling the request, the
+ * worker running its service call and the threads of a fan-out across shards. Counts are read once
+ * the request is complete.
+ */
+@Getter
+public class QueryCounts {
+    private int statements;
+    private int entities;
+
+    synchronized void statementPrepared() {
+        statements++;
+    }
+
+    synchronized void entityLoaded() {
+        entities++;
+    }
+}
@@ -0,0 +1,112 @@
+package com.marketlogic.surveychallenge.metrics;
+
+import com.marketlogic.surveychallenge.config.RequestMetricsProperties;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.Instant;
+
+/***
+ * Publishes the number of statements and entity loads of every request as distribution summaries
+ * tagged like http.server.requests, logs requests over the statement threshold and feeds the slow
+ * request log. Service calls on the request executor are counted, other work done on other threads,
+ * like the body of a streamed response, is not. The duration of asynchronous requests runs until
+ * the response is complete.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RequestMetricsFilter extends OncePerRequestFilter {
+    private final MeterRegistry registry;
+    private final SlowRequestLog slowRequestLog;
+    private final RequestMetricsProperties properties;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long start = System.nanoTime();
+        QueryCounts counts = RequestQueryCounter.start();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            RequestQueryCounter.stop();
+            if (request.isAsyncStarted())
+                request.getAsyncContext().addListener(new CompletionListener(request, response, counts, start));
+            else
+                record(request, response, counts, start);
+        }
+    }
+
+    private void record(HttpServletRequest request, HttpServletResponse response, QueryCounts counts, long start) {
+        double durationMs = (System.nanoTime() - start) / 1e6;
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern == null ? "UNKNOWN" : pattern.toString();
+        Tags tags = Tags.of("method", request.getMethod(), "uri", uri);
+
+        DistributionSummary.builder(SurveyMetrics.REQUEST_STATEMENTS)
+                .baseUnit("statements")
+                .tags(tags)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(counts.getStatements());
+        DistributionSummary.builder(SurveyMetrics.REQUEST_ENTITIES)
+                .baseUnit("entities")
+                .tags(tags)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(counts.getEntities());
+
+        if (counts.getStatements() > properties.getStatementThreshold())
+            log.warn("{} {} executed {} statements and loaded {} entities in {} ms", request.getMethod(),
+                    request.getRequestURI(), counts.getStatements(), counts.getEntities(), Math.round(durationMs));
+
+        slowRequestLog.record(SlowRequest.builder()
+                .method(request.getMethod())
+                .uri(request.getRequestURI())
+                .pattern(uri)
+                .status(response.getStatus())
+                .durationMs(durationMs)
+                .statements(counts.getStatements())
+                .entities(counts.getEntities())
+                .finishedAt(Instant.now())
+                .build());
+    }
+
+    @RequiredArgsConstructor
+    private class CompletionListener implements AsyncListener {
+        private final HttpServletRequest request;
+        private final HttpServletResponse response;
+        private final QueryCounts counts;
+        private final long start;
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            record(request, response, counts, start);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.marketlogic.surveychallenge.metrics;
+
+import org.hibernate.EmptyInterceptor;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.hibernate.type.Type;
+
+import java.io.Serializable;
+import java.util.function.Supplier;
+
+/***
+ * Session factory wide Hibernate interceptor and statement inspector counting the statements prepared
+ * and the entities loaded on the current thread between start and stop. Threads without a started
+ * count, like the submission writer, are not counted and pay a single thread local lookup. Worker
+ * threads count into the request they run a call for through callWith.
+ */
+public class RequestQueryCounter extends EmptyInterceptor implements StatementInspector {
+    private static final ThreadLocal<QueryCounts> COUNTS = new ThreadLocal<>();
+
+    public static QueryCounts start() {
+        QueryCounts counts = new QueryCounts();
+        COUNTS.set(counts);
+        return counts;
+    }
+
+    public static void stop() {
+        COUNTS.remove();
+    }
+
+    public static QueryCounts current() {
+        return COUNTS.get();
+    }
+
+    /***
+     * Run a call on another thread while counting into the counts of the request it belongs to
+     * @param counts - counts of the request, null when the caller is not counted
+     * @param call - call to run
+     * @return result of the call
+     */
+    public static <T> T callWith(QueryCounts counts, Supplier<T> call) {
+        if (counts == null)
+            return call.get();
+
+        QueryCounts previous = COUNTS.get();
+        COUNTS.set(counts);
+        try {
+            return call.get();
+        } finally {
+            if (previous == null)
+                COUNTS.remove();
+            else
+                COUNTS.set(previous);
+        }
+    }
+
+    public static void statementPrepared() {
+        QueryCounts counts = COUNTS.get();
+        if (counts != null)
+            counts.statementPrepared();
+    }
+
+    @Override
+    public String inspect(String sql) {
+        statementPrepared();
+        return sql;
+    }
+
+    @Override
+    public boolean onLoad(Object entity, Serializable id, Object[] state, String[] propertyNames, Type[] types) {
+        QueryCounts counts = COUNTS.get();
+        if (counts != null)
+            counts.entityLoaded();
+        return false;
+    }
+}
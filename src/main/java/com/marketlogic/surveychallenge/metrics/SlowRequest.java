@@ -0,0 +1,19 @@
+package com.marketlogic.surveychallenge.metrics;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.Instant;
+
+@Value
+@Builder
+public class SlowRequest {
+    String method;
+    String uri;
+    String pattern;
+    int status;
+    double durationMs;
+    int statements;
+    int entities;
+    Instant finishedAt;
+}
@@ -0,0 +1,75 @@
+package com.marketlogic.surveychallenge.metrics;
+
+import com.marketlogic.surveychallenge.config.RequestMetricsProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/***
+ * The slowest requests finished within the recent window, bounded to a fixed number of entries.
+ * Requests faster than all kept ones are rejected without taking the lock while none of the kept
+ * ones has expired.
+ */
+@Component
+public class SlowRequestLog {
+    private static final Comparator<SlowRequest> BY_DURATION = Comparator.comparingDouble(SlowRequest::getDurationMs);
+
+    private final int capacity;
+    private final Duration window;
+    private final PriorityQueue<SlowRequest> slowest = new PriorityQueue<>(BY_DURATION);
+
+    private volatile double floorMs;
+    private volatile Instant nextExpiry = Instant.MAX;
+
+    public SlowRequestLog(RequestMetricsProperties properties) {
+        this.capacity = properties.getSlowRequests();
+        this.window = properties.getSlowRequestWindow();
+    }
+
+    public void record(SlowRequest request) {
+        if (capacity <= 0)
+            return;
+        if (request.getDurationMs() <= floorMs && request.getFinishedAt().isBefore(nextExpiry))
+            return;
+
+        synchronized (this) {
+            evictExpired(request.getFinishedAt());
+            if (slowest.size() < capacity) {
+                slowest.add(request);
+            } else if (BY_DURATION.compare(slowest.peek(), request) < 0) {
+                slowest.poll();
+                slowest.add(request);
+            }
+            updateBounds();
+        }
+    }
+
+    /***
+     * @return kept requests, slowest first
+     */
+    public synchronized List<SlowRequest> getSlowest() {
+        evictExpired(Instant.now());
+        updateBounds();
+        List<SlowRequest> requests = new ArrayList<>(slowest);
+        requests.sort(BY_DURATION.reversed());
+        return requests;
+    }
+
+    private void evictExpired(Instant now) {
+        Instant oldest = now.minus(window);
+        slowest.removeIf(request -> request.getFinishedAt().isBefore(oldest));
+    }
+
+    private void updateBounds() {
+        floorMs = slowest.size() < capacity ? 0 : slowest.peek().getDurationMs();
+        nextExpiry = slowest.stream()
+                .map(request -> request.getFinishedAt().plus(window))
+                .min(Comparator.naturalOrder())
+                .orElse(Instant.MAX);
+    }
+}
@@ -0,0 +1,21 @@
+package com.marketlogic.surveychallenge.metrics;
+
+public final class SurveyMetrics {
+    /***
+     * Timer of service operations, tagged with class and method by the TimedAspect
+     */
+    public static final String SERVICE_TIMER = "survey.service";
+
+    /***
+     * JDBC statements Hibernate prepared while handling one request
+     */
+    public static final String REQUEST_STATEMENTS = "survey.request.statements";
+
+    /***
+     * Entities Hibernate loaded while handling one request
+     */
+    public static final String REQUEST_ENTITIES = "survey.request.entities";
+
+    private SurveyMetrics() {
+    }
+}
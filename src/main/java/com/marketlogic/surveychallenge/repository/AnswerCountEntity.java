@@ -0,0 +1,37 @@
+package com.marketlogic.surveychallenge.repository;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.util.UUID;
+
+/***
+ * Persisted total of submissions per answer. Rows are maintained by AnswerCountJdbcRepository,
+ * the entity only describes the table.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity(name = "AnswerCountEntity")
+@Table(name = "answer_counts")
+public class AnswerCountEntity {
+    @Id
+    @Column(name = "answer_id", nullable = false, columnDefinition = "uuid")
+    private UUID answerId;
+
+    @Column(name = "survey_id", nullable = false, columnDefinition = "uuid")
+    private UUID surveyId;
+
+    @Column(name = "question_id", nullable = false, columnDefinition = "uuid")
+    private UUID questionId;
+
+    @Column(name = "total", nullable = false)
+    private long total;
+}
@@ -0,0 +1,41 @@
+package com.marketlogic.surveychallenge.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+@RequiredArgsConstructor
+public class AnswerCountJdbcRepository {
+    private static final String SELECT_ALL =
+            "select answer_id, survey_id, question_id, total from answer_counts";
+    private static final String MERGE_TOTAL =
+            "merge into answer_counts (answer_id, survey_id, question_id, total) key (answer_id) values (?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public List<AnswerCountEntity> findAll() {
+        return jdbcTemplate.query(SELECT_ALL, (rs, i) -> AnswerCountEntity.builder()
+                .answerId(rs.getObject(1, UUID.class))
+                .surveyId(rs.getObject(2, UUID.class))
+                .questionId(rs.getObject(3, UUID.class))
+                .total(rs.getLong(4))
+                .build());
+    }
+
+    /***
+     * Insert or overwrite the totals of the given answers with JDBC batching
+     * @param counts - absolute totals per answer
+     */
+    public void saveAll(List<AnswerCountEntity> counts) {
+        jdbcTemplate.batchUpdate(MERGE_TOTAL, counts, counts.size(), (ps, count) -> {
+            ps.setObject(1, count.getAnswerId());
+            ps.setObject(2, count.getSurveyId());
+            ps.setObject(3, count.getQuestionId());
+            ps.setLong(4, count.getTotal());
+        });
+    }
+}
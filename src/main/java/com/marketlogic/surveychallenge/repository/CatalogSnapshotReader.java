@@ -0,0 +1,152 @@
+package com.marketlogic.surveychallenge.repository;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.CRC32C;
+
+import static com.marketlogic.surveychallenge.repository.CatalogSnapshotWriter.FORMAT_VERSION;
+import static com.marketlogic.surveychallenge.repository.CatalogSnapshotWriter.HEADER_SIZE;
+import static com.marketlogic.surveychallenge.repository.CatalogSnapshotWriter.MAGIC;
+import static com.marketlogic.surveychallenge.repository.CatalogSnapshotWriter.TRAILER_SIZE;
+
+/***
+ * Reads a snapshot written by CatalogSnapshotWriter through a read-only memory mapping. The header,
+ * trailer and checksum are validated when the file is opened, before any survey is handed out.
+ * Snapshots are limited to 2 GB, the size of a single mapping.
+ */
+public class CatalogSnapshotReader implements Closeable {
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final CatalogSnapshotStats stats;
+    private final int end;
+    private long surveys;
+    private long questions;
+    private long answers;
+
+    public CatalogSnapshotReader(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size < HEADER_SIZE + TRAILER_SIZE || size > Integer.MAX_VALUE)
+                throw new IOException("Invalid catalog snapshot size " + size + ": " + file);
+
+            this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            this.end = (int) size - TRAILER_SIZE;
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(end + TRAILER_SIZE - Integer.BYTES) != MAGIC)
+                throw new IOException("Not a catalog snapshot: " + file);
+            if (buffer.getInt(Integer.BYTES) != FORMAT_VERSION)
+                throw new IOException("Unsupported catalog snapshot version " + buffer.getInt(Integer.BYTES) + ": " + file);
+
+            int checksummed = end + 3 * Long.BYTES;
+            CRC32C crc = new CRC32C();
+            crc.update(buffer.duplicate().position(0).limit(checksummed));
+            if ((int) crc.getValue() != buffer.getInt(checksummed))
+                throw new IOException("Catalog snapshot checksum mismatch: " + file);
+
+            this.stats = CatalogSnapshotStats.builder()
+                    .surveys(buffer.getLong(end))
+                    .questions(buffer.getLong(end + Long.BYTES))
+                    .answers(buffer.getLong(end + 2 * Long.BYTES))
+                    .bytes(size)
+                    .build();
+            buffer.position(HEADER_SIZE).limit(end);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /***
+     * @return counts recorded in the trailer
+     */
+    public CatalogSnapshotStats getStats() {
+        return stats;
+    }
+
+    /***
+     * Read the next surveys with all their questions and answers
+     * @param limit - maximum number of surveys
+     * @return surveys in snapshot order, empty once every survey has been read
+     */
+    public List<SurveyEntity> read(int limit) throws IOException {
+        List<SurveyEntity> chunk = new ArrayList<>(limit);
+        try {
+            while (chunk.size() < limit && buffer.position() < end) {
+                SurveyEntity survey = SurveyEntity.builder()
+                        .id(readUuid())
+                        .version(buffer.getLong())
+                        .deleted(buffer.get() != 0)
+                        .name(readString())
+                        .description(readString())
+                        .build();
+                for (int q = readCount(); q > 0; q--) {
+                    QuestionEntity question = QuestionEntity.builder()
+                            .id(readUuid())
+                            .version(buffer.getLong())
+                            .deleted(buffer.get() != 0)
+                            .name(readString())
+                            .description(readString())
+                            .build();
+                    for (int a = readCount(); a > 0; a--)
+                        question.getAnswers().add(AnswerEntity.builder()
+                                .id(readUuid())
+                                .version(buffer.getLong())
+                                .deleted(buffer.get() != 0)
+                                .name(readString())
+                                .description(readString())
+                                .build());
+                    answers += question.getAnswers().size();
+                    survey.getQuestions().add(question);
+                }
+                questions += survey.getQuestions().size();
+                surveys++;
+                chunk.add(survey);
+            }
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Truncated catalog snapshot record", e);
+        }
+        if (buffer.position() == end
+                && (surveys != stats.getSurveys() || questions != stats.getQuestions() || answers != stats.getAnswers()))
+            throw new IOException("Catalog snapshot counts do not match its trailer");
+        return chunk;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private UUID readUuid() {
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+
+    private int readCount() throws IOException {
+        int count = buffer.getInt();
+        if (count < 0)
+            throw new IOException("Negative child count in catalog snapshot");
+        return count;
+    }
+
+    private String readString() throws IOException {
+        int length = buffer.getInt();
+        if (length < 0) {
+            if (length != -1)
+                throw new IOException("Invalid string length in catalog snapshot");
+            return null;
+        }
+        if (length > buffer.remaining())
+            throw new IOException("Truncated catalog snapshot record");
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,16 @@
+package com.marketlogic.surveychallenge.repository;
+
+import lombok.Builder;
+import lombok.Value;
+
+/***
+ * Row counts and size of a catalog snapshot file
+ */
+@Value
+@Builder
+public class CatalogSnapshotStats {
+    long surveys;
+    long questions;
+    long answers;
+    long bytes;
+}
@@ -0,0 +1,132 @@
+package com.marketlogic.surveychallenge.repository;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedOutputStream;
+
+/***
+ * Writes a catalog snapshot to a temporary file next to the target, which replaces the target only
+ * once the trailer is written and the file is forced to the storage device.
+ * <p>
+ * Layout: magic and format version, then each survey followed by its questions, each question
+ * followed by its answers, then a trailer with the row counts, a CRC32C of everything before the
+ * checksum, and the magic again. Entities are written as id, version, deleted flag, name and
+ * description, strings as their UTF-8 length (-1 for null) and bytes. Surveys and questions carry
+ * the number of their children.
+ */
+public class CatalogSnapshotWriter implements Closeable {
+    static final int MAGIC = 0x53435331; // "SCS1"
+    static final int FORMAT_VERSION = 1;
+    static final int HEADER_SIZE = 2 * Integer.BYTES;
+    static final int TRAILER_SIZE = 3 * Long.BYTES + 2 * Integer.BYTES;
+
+    private final Path file;
+    private final Path temporary;
+    private final FileChannel channel;
+    private final CRC32C crc = new CRC32C();
+    private final DataOutputStream out;
+    private long surveys;
+    private long questions;
+    private long answers;
+    private boolean committed;
+
+    public CatalogSnapshotWriter(Path file) throws IOException {
+        this.file = file.toAbsolutePath();
+        this.temporary = this.file.resolveSibling(this.file.getFileName() + ".tmp");
+        Files.createDirectories(this.file.getParent());
+        this.channel = FileChannel.open(temporary,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        this.out = new DataOutputStream(new BufferedOutputStream(
+                new CheckedOutputStream(Channels.newOutputStream(channel), crc), 1 << 16));
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+    }
+
+    /***
+     * Append surveys with all their questions and answers
+     * @param chunk - surveys in the order they are to be loaded
+     */
+    public void write(List<SurveyEntity> chunk) throws IOException {
+        for (SurveyEntity survey : chunk) {
+            writeEntity(survey.getId(), survey.getVersion(), survey.getDeleted(), survey.getName(), survey.getDescription());
+            out.writeInt(survey.getQuestions().size());
+            surveys++;
+            for (QuestionEntity question : survey.getQuestions()) {
+                writeEntity(question.getId(), question.getVersion(), question.getDeleted(), question.getName(), question.getDescription());
+                out.writeInt(question.getAnswers().size());
+                questions++;
+                for (AnswerEntity answer : question.getAnswers()) {
+                    writeEntity(answer.getId(), answer.getVersion(), answer.getDeleted(), answer.getName(), answer.getDescription());
+                    answers++;
+                }
+            }
+        }
+    }
+
+    /***
+     * Write the trailer, force the file and move it over the target
+     * @return counts and size of the new snapshot
+     */
+    public CatalogSnapshotStats commit() throws IOException {
+        out.writeLong(surveys);
+        out.writeLong(questions);
+        out.writeLong(answers);
+        out.flush();
+        out.writeInt((int) crc.getValue());
+        out.writeInt(MAGIC);
+        out.flush();
+        channel.force(true);
+        long bytes = channel.size();
+        channel.close();
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        committed = true;
+        return CatalogSnapshotStats.builder()
+                .surveys(surveys)
+                .questions(questions)
+                .answers(answers)
+                .bytes(bytes)
+                .build();
+    }
+
+    /***
+     * Discard the temporary file unless the snapshot has been committed
+     */
+    @Override
+    public void close() throws IOException {
+        if (committed)
+            return;
+        channel.close();
+        Files.deleteIfExists(temporary);
+    }
+
+    private void writeEntity(UUID id, long version, Boolean deleted, String name, String description) throws IOException {
+        out.writeLong(id.getMostSignificantBits());
+        out.writeLong(id.getLeastSignificantBits());
+        out.writeLong(version);
+        out.writeBoolean(Boolean.TRUE.equals(deleted));
+        writeString(name);
+        writeString(description);
+    }
+
+    private void writeString(String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+}
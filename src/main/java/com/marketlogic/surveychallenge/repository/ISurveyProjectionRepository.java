@@ -0,0 +1,40 @@
+package com.marketlogic.surveychallenge.repository;
+
+import javax.persistence.Tuple;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/***
+ * Listing queries selecting only the given columns, each tuple element is aliased by its column name
+ */
+public interface ISurveyProjectionRepository {
+    /***
+     * @param after - keyset cursor, null for the first page
+     * @param limit - maximum number of surveys
+     * @param columns - survey columns to select
+     * @return active surveys ordered by id
+     */
+    List<Tuple> findSurveyColumns(UUID after, int limit, Collection<String> columns);
+
+    /***
+     * @param surveyIds - surveys to select
+     * @param columns - survey columns to select
+     * @return the active surveys among the given ones, in no particular order
+     */
+    List<Tuple> findSurveyColumns(Collection<UUID> surveyIds, Collection<String> columns);
+
+    /***
+     * @param surveyIds - surveys to select the active questions of
+     * @param columns - question columns to select, in addition to surveyId
+     * @return questions ordered by survey and question id
+     */
+    List<Tuple> findQuestionColumns(Collection<UUID> surveyIds, Collection<String> columns);
+
+    /***
+     * @param surveyIds - surveys to select the active answers of active questions of
+     * @param columns - answer columns to select, in addition to questionId
+     * @return answers ordered by question and answer id
+     */
+    List<Tuple> findAnswerColumns(Collection<UUID> surveyIds, Collection<String> columns);
+}
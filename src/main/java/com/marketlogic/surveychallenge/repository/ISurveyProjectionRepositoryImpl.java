@@ -0,0 +1,70 @@
+package com.marketlogic.surveychallenge.repository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Tuple;
+import javax.persistence.TypedQuery;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/***
+ * Builds the select list from a fixed set of columns, anything else is rejected before it reaches
+ * the query
+ */
+public class ISurveyProjectionRepositoryImpl implements ISurveyProjectionRepository {
+    private static final Set<String> COLUMNS = Set.of("id", "name", "description");
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Tuple> findSurveyColumns(UUID after, int limit, Collection<String> columns) {
+        TypedQuery<Tuple> query = entityManager.createQuery("select " + select("s", columns) +
+                " from SurveyEntity s where s.deleted = false" +
+                (after == null ? "" : " and s.id > :after") +
+                " order by s.id", Tuple.class);
+        if (after != null)
+            query.setParameter("after", after);
+        return query.setMaxResults(limit).getResultList();
+    }
+
+    @Override
+    public List<Tuple> findSurveyColumns(Collection<UUID> surveyIds, Collection<String> columns) {
+        return entityManager.createQuery("select " + select("s", columns) +
+                        " from SurveyEntity s where s.id in :surveyIds and s.deleted = false", Tuple.class)
+                .setParameter("surveyIds", surveyIds)
+                .getResultList();
+    }
+
+    @Override
+    public List<Tuple> findQuestionColumns(Collection<UUID> surveyIds, Collection<String> columns) {
+        return entityManager.createQuery("select s.id as surveyId, " + select("q", columns) +
+                        " from SurveyEntity s join s.questions q" +
+                        " where s.id in :surveyIds and q.deleted = false" +
+                        " order by s.id, q.id", Tuple.class)
+                .setParameter("surveyIds", surveyIds)
+                .getResultList();
+    }
+
+    @Override
+    public List<Tuple> findAnswerColumns(Collection<UUID> surveyIds, Collection<String> columns) {
+        return entityManager.createQuery("select q.id as questionId, " + select("a", columns) +
+                        " from SurveyEntity s join s.questions q join q.answers a" +
+                        " where s.id in :surveyIds and q.deleted = false and a.deleted = false" +
+                        " order by q.id, a.id", Tuple.class)
+                .setParameter("surveyIds", surveyIds)
+                .getResultList();
+    }
+
+    private static String select(String alias, Collection<String> columns) {
+        if (columns.isEmpty() || !COLUMNS.containsAll(columns))
+            throw new IllegalArgumentException("Unsupported columns " + columns);
+
+        return columns.stream()
+                .map(column -> alias + "." + column + " as " + column)
+                .collect(Collectors.joining(", "));
+    }
+}
@@ -1,12 +1,95 @@
 package com.marketlogic.surveychallenge.repository;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
 
 @Repository
-public interface ISurveyRepository extends JpaRepository<SurveyEntity, UUID> {
-    List<SurveyEntity> findByDeletedIsFalse();
+public interface ISurveyRepository extends JpaRepository<SurveyEntity, UUID>, ISurveyProjectionRepository {
+    String PASS_DISTINCT_THROUGH = "hibernate.query.passDistinctThrough";
+
+    List<SurveyEntity> findByDeletedIsFalseOrderByIdAsc(Pageable page);
+
+    List<SurveyEntity> findByDeletedIsFalseAndIdGreaterThanOrderByIdAsc(UUID after, Pageable page);
+
+    /***
+     * Scroll over all active surveys with a forward-only cursor, the caller must close the stream
+     * @return Stream<SurveyEntity>
+     */
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "100"),
+            @QueryHint(name = HINT_READONLY, value = "true")
+    })
+    @Query("select s from SurveyEntity s where s.deleted = false order by s.id")
+    Stream<SurveyEntity> streamByDeletedIsFalse();
+
+    /***
+     * Initialize the questions of already loaded surveys with a single query
+     * @param surveys - surveys attached to the current persistence context
+     * @return List<SurveyEntity>
+     */
+    @QueryHints(@QueryHint(name = PASS_DISTINCT_THROUGH, value = "false"))
+    @Query("select distinct s from SurveyEntity s left join fetch s.questions where s in :surveys")
+    List<SurveyEntity> fetchQuestions(@Param("surveys") Collection<SurveyEntity> surveys);
+
+    /***
+     * Initialize the answers of all questions of already loaded surveys with a single query
+     * @param surveys - surveys attached to the current persistence context
+     * @return List<QuestionEntity>
+     */
+    @QueryHints(@QueryHint(name = PASS_DISTINCT_THROUGH, value = "false"))
+    @Query("select distinct q from SurveyEntity s join s.questions q left join fetch q.answers where s in :surveys")
+    List<QuestionEntity> fetchAnswers(@Param("surveys") Collection<SurveyEntity> surveys);
+
+    /***
+     * Aggregate the versions of a survey, its questions and its answers without loading any of them
+     * @param surveyId - survey Id
+     * @return Optional<SurveyVersion>
+     */
+    @Query("select new com.marketlogic.surveychallenge.repository.SurveyVersion(s.version, " +
+            "(select count(q) + coalesce(sum(q.version), 0) from SurveyEntity qs join qs.questions q where qs = s), " +
+            "(select count(a) + coalesce(sum(a.version), 0) from SurveyEntity qs join qs.questions q join q.answers a where qs = s)) " +
+            "from SurveyEntity s where s.id = :surveyId")
+    Optional<SurveyVersion> findSurveyVersion(@Param("surveyId") UUID surveyId);
+
+    @Query("select distinct s.id from SurveyEntity s join s.questions q where q.id in (:questionIds)")
+    List<UUID> findSurveyIdsByQuestionIds(@Param("questionIds") Collection<UUID> questionIds);
+
+    /***
+     * Mark a question of a survey as deleted without loading the survey
+     * @param surveyId - survey Id
+     * @param questionId - question Id
+     * @return number of updated questions
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "update questions set deleted = true, version = version + 1 " +
+            "where id = :questionId and survey_id = :surveyId", nativeQuery = true)
+    int disableQuestion(@Param("surveyId") UUID surveyId, @Param("questionId") UUID questionId);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "update questions set deleted = true, version = version + 1 " +
+            "where id in (:questionIds)", nativeQuery = true)
+    int disableQuestions(@Param("questionIds") Collection<UUID> questionIds);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update SurveyEntity s set s.version = s.version + 1 where s.id = :surveyId")
+    int incrementVersion(@Param("surveyId") UUID surveyId);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update SurveyEntity s set s.version = s.version + 1 where s.id in (:surveyIds)")
+    int incrementVersions(@Param("surveyIds") Collection<UUID> surveyIds);
 }
@@ -0,0 +1,191 @@
+package com.marketlogic.surveychallenge.repository;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.zip.CRC32C;
+
+/***
+ * One memory mapped file of the response journal. The file starts with a small header followed by
+ * fixed-size records, each protected by a CRC32C over its payload. A record is either an answer or
+ * the commit or abort marker of a batch, both carry the batch number. Unwritten space is zero,
+ * which never carries a valid checksum, so the first invalid record marks the end of the segment.
+ */
+final class JournalSegment implements Closeable {
+    static final int MAGIC = 0x534A5232; // "SJR2"
+    static final int HEADER_SIZE = 8;
+    static final int RECORD_SIZE = 108;
+    static final int ANSWER = 1;
+    static final int COMMIT = 2;
+    static final int ABORT = 3;
+    private static final int PAYLOAD_SIZE = RECORD_SIZE - Integer.BYTES;
+    private static final int ANSWER_OFFSET = Integer.BYTES + Long.BYTES;
+
+    private final long index;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final CRC32C crc = new CRC32C();
+
+    private JournalSegment(long index, FileChannel channel, MappedByteBuffer buffer) {
+        this.index = index;
+        this.channel = channel;
+        this.buffer = buffer;
+    }
+
+    /***
+     * Map a segment file, a new file is created with the given size and an empty header
+     * @param path - segment file
+     * @param index - position of the segment in the journal
+     * @param size - size of a new segment, existing files keep their size
+     * @return segment positioned after the header
+     */
+    static JournalSegment open(Path path, long index, long size) throws IOException {
+        FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            long existing = channel.size();
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, existing > 0 ? existing : size);
+            if (existing == 0) {
+                buffer.putInt(0, MAGIC);
+                buffer.putInt(Integer.BYTES, RECORD_SIZE);
+            } else if (buffer.getInt(0) != MAGIC || buffer.getInt(Integer.BYTES) != RECORD_SIZE) {
+                throw new IOException("Not a response journal segment: " + path);
+            }
+            buffer.position(HEADER_SIZE);
+            return new JournalSegment(index, channel, buffer);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    long index() {
+        return index;
+    }
+
+    /***
+     * Read the valid records from the start of the segment, leave the segment positioned after the
+     * last of them and zero everything behind it, so a torn or partly flushed tail can never turn
+     * valid again once new records are appended
+     * @param records - receives the records in journal order
+     * @return number of bytes dropped behind the last valid record
+     */
+    long recover(Records records) {
+        int position = HEADER_SIZE;
+        while (position + RECORD_SIZE <= buffer.limit() && isValid(position)) {
+            int kind = buffer.getInt(position);
+            long batch = buffer.getLong(position + Integer.BYTES);
+            if (kind == ANSWER)
+                records.answer(batch, read(position + ANSWER_OFFSET));
+            else
+                records.marker(batch, kind == COMMIT);
+            position += RECORD_SIZE;
+        }
+        buffer.position(position);
+
+        long dropped = 0;
+        for (int i = position; i < buffer.limit(); i++) {
+            if (buffer.get(i) != 0) {
+                buffer.put(i, (byte) 0);
+                dropped = i - position + 1;
+            }
+        }
+        return dropped;
+    }
+
+    /***
+     * Write one answer record at the current position without forcing it
+     * @return false when the segment is full
+     */
+    boolean append(long batch, SubmittedAnswerEntity answer) {
+        if (buffer.remaining() < RECORD_SIZE)
+            return false;
+
+        int start = buffer.position();
+        buffer.putInt(ANSWER);
+        buffer.putLong(batch);
+        putUuid(answer.getId());
+        putUuid(answer.getResponseId());
+        putUuid(answer.getSurveyId());
+        putUuid(answer.getQuestionId());
+        putUuid(answer.getAnswerId());
+        buffer.putLong(answer.getSubmittedAt().getEpochSecond());
+        buffer.putInt(answer.getSubmittedAt().getNano());
+        buffer.putInt(checksum(start));
+        return true;
+    }
+
+    /***
+     * Write the commit or abort marker of a batch at the current position without forcing it
+     * @return false when the segment is full
+     */
+    boolean appendMarker(long batch, boolean committed) {
+        if (buffer.remaining() < RECORD_SIZE)
+            return false;
+
+        int start = buffer.position();
+        buffer.putInt(committed ? COMMIT : ABORT);
+        buffer.putLong(batch);
+        buffer.position(start + PAYLOAD_SIZE);
+        buffer.putInt(checksum(start));
+        return true;
+    }
+
+    /***
+     * Flush the records written so far to the storage device
+     */
+    void force() {
+        buffer.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        channel.close();
+    }
+
+    private boolean isValid(int position) {
+        int kind = buffer.getInt(position);
+        return kind >= ANSWER && kind <= ABORT && buffer.getInt(position + PAYLOAD_SIZE) == checksum(position);
+    }
+
+    private int checksum(int position) {
+        crc.reset();
+        crc.update(buffer.duplicate().position(position).limit(position + PAYLOAD_SIZE));
+        return (int) crc.getValue();
+    }
+
+    private SubmittedAnswerEntity read(int position) {
+        return SubmittedAnswerEntity.builder()
+                .id(getUuid(position))
+                .responseId(getUuid(position + 16))
+                .surveyId(getUuid(position + 32))
+                .questionId(getUuid(position + 48))
+                .answerId(getUuid(position + 64))
+                .submittedAt(Instant.ofEpochSecond(buffer.getLong(position + 80), buffer.getInt(position + 88)))
+                .build();
+    }
+
+    private void putUuid(UUID id) {
+        buffer.putLong(id.getMostSignificantBits());
+        buffer.putLong(id.getLeastSignificantBits());
+    }
+
+    private UUID getUuid(int position) {
+        return new UUID(buffer.getLong(position), buffer.getLong(position + Long.BYTES));
+    }
+
+    /***
+     * Receives the records of a segment in journal order
+     */
+    interface Records {
+        void answer(long batch, SubmittedAnswerEntity answer);
+
+        void marker(long batch, boolean committed);
+    }
+}
@@ -0,0 +1,234 @@
+package com.marketlogic.surveychallenge.repository;
+
+import com.marketlogic.surveychallenge.config.ResponseJournalProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/***
+ * Append-only journal of submitted answers in memory mapped segment files. The submission writer
+ * appends a whole batch and forces it once before the batch goes to the database, so one fsync
+ * covers every submission of the batch. Once the database transaction has ended the writer appends
+ * a commit or abort marker for the batch and forces it before any submission of the batch is
+ * acknowledged. Only batches followed by their commit marker are recovered, a batch that failed or
+ * was cut off by a crash is skipped. The journal is not thread safe, it is recovered and then
+ * written by the submission writer only.
+ */
+@Slf4j
+@Component
+public class ResponseJournal {
+    private static final Pattern SEGMENT_NAME = Pattern.compile("responses-(\\d+)\\.journal");
+
+    private final boolean enabled;
+    private final Path directory;
+    private final long segmentSize;
+    private JournalSegment current;
+    private long lastBatch;
+
+    public ResponseJournal(ResponseJournalProperties properties) {
+        this.enabled = properties.isEnabled();
+        this.directory = properties.getDirectory();
+        this.segmentSize = properties.getSegmentSize().toBytes();
+        if (segmentSize < JournalSegment.HEADER_SIZE + JournalSegment.RECORD_SIZE)
+            throw new IllegalArgumentException("Journal segments must hold at least one record");
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /***
+     * Read every valid record, truncate a torn tail of the last segment and open the journal for appending.
+     * Does nothing when the journal is disabled.
+     * @param batchSize - maximum number of records handed over at once
+     * @param replay - receives the answers of committed batches in journal order
+     * @return number of recovered answers
+     */
+    public long recover(int batchSize, Consumer<List<SubmittedAnswerEntity>> replay) {
+        if (!enabled)
+            return 0;
+
+        try {
+            Files.createDirectories(directory);
+            List<Path> segments = segments();
+            Recovery recovery = new Recovery(batchSize, replay);
+            for (int i = 0; i < segments.size(); i++) {
+                JournalSegment segment = JournalSegment.open(segments.get(i), index(segments.get(i)), segmentSize);
+                long dropped = segment.recover(recovery);
+                if (dropped > 0)
+                    log.warn("Truncated {} bytes of incomplete records from journal segment {}", dropped, segments.get(i));
+
+                if (i == segments.size() - 1) {
+                    current = segment;
+                } else {
+                    segment.close();
+                }
+            }
+            recovery.skipPending();
+            if (recovery.skipped > 0)
+                log.warn("Skipped {} journaled answers of batches that were not committed", recovery.skipped);
+            lastBatch = recovery.lastBatch;
+            if (current == null)
+                current = JournalSegment.open(segmentPath(0), 0, segmentSize);
+
+            // replayed records are final once the truncated tail is on disk
+            current.force();
+            return recovery.recovered;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to recover the response journal in " + directory, e);
+        }
+    }
+
+    /***
+     * Append the answers as a new batch and force them to the storage device, starting new segments
+     * as needed. Does nothing when the journal is disabled.
+     * @param answers - answers of one write batch
+     * @return number of the batch, to commit or abort it once the database transaction has ended
+     */
+    public long append(List<SubmittedAnswerEntity> answers) {
+        if (!enabled)
+            return 0;
+        if (current == null)
+            throw new IllegalStateException("Response journal has not been recovered");
+
+        long batch = ++lastBatch;
+        try {
+            for (SubmittedAnswerEntity answer : answers) {
+                if (!current.append(batch, answer)) {
+                    rotate();
+                    current.append(batch, answer);
+                }
+            }
+            current.force();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to append to the response journal in " + directory, e);
+        }
+        return batch;
+    }
+
+    /***
+     * Mark a batch as written to the database and force the marker, the batch is replayed from now on
+     * @param batch - number returned by append
+     */
+    public void commit(long batch) {
+        appendMarker(batch, true);
+    }
+
+    /***
+     * Mark a batch as rejected by the database, the batch is never replayed
+     * @param batch - number returned by append
+     */
+    public void abort(long batch) {
+        appendMarker(batch, false);
+    }
+
+    private void appendMarker(long batch, boolean committed) {
+        if (!enabled)
+            return;
+        if (current == null)
+            throw new IllegalStateException("Response journal has not been recovered");
+
+        try {
+            if (!current.appendMarker(batch, committed)) {
+                rotate();
+                current.appendMarker(batch, committed);
+            }
+            current.force();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to append to the response journal in " + directory, e);
+        }
+    }
+
+    private void rotate() throws IOException {
+        JournalSegment next = JournalSegment.open(segmentPath(current.index() + 1), current.index() + 1, segmentSize);
+        current.close();
+        current = next;
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        if (current != null) {
+            current.close();
+            current = null;
+        }
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> SEGMENT_NAME.matcher(file.getFileName().toString()).matches())
+                    .sorted((a, b) -> Long.compare(index(a), index(b)))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private Path segmentPath(long index) {
+        return directory.resolve(String.format("responses-%012d.journal", index));
+    }
+
+    private static long index(Path segment) {
+        Matcher matcher = SEGMENT_NAME.matcher(segment.getFileName().toString());
+        if (!matcher.matches())
+            throw new IllegalArgumentException("Not a journal segment: " + segment);
+        return Long.parseLong(matcher.group(1));
+    }
+
+    /***
+     * Holds back the answers of the batch being read until its marker, the writer appends one batch
+     * at a time so a batch is complete once a marker or the answers of a later batch follow
+     */
+    private static final class Recovery implements JournalSegment.Records {
+        private final int chunkSize;
+        private final Consumer<List<SubmittedAnswerEntity>> replay;
+        private final List<SubmittedAnswerEntity> pending = new ArrayList<>();
+        private long pendingBatch;
+        private long lastBatch;
+        private long recovered;
+        private long skipped;
+
+        Recovery(int chunkSize, Consumer<List<SubmittedAnswerEntity>> replay) {
+            this.chunkSize = chunkSize;
+            this.replay = replay;
+        }
+
+        @Override
+        public void answer(long batch, SubmittedAnswerEntity answer) {
+            if (batch != pendingBatch)
+                skipPending();
+            pendingBatch = batch;
+            lastBatch = Math.max(lastBatch, batch);
+            pending.add(answer);
+        }
+
+        @Override
+        public void marker(long batch, boolean committed) {
+            lastBatch = Math.max(lastBatch, batch);
+            if (batch != pendingBatch)
+                return;
+            if (!committed) {
+                skipPending();
+                return;
+            }
+            for (int i = 0; i < pending.size(); i += chunkSize)
+                replay.accept(List.copyOf(pending.subList(i, Math.min(i + chunkSize, pending.size()))));
+            recovered += pending.size();
+            pending.clear();
+        }
+
+        void skipPending() {
+            skipped += pending.size();
+            pending.clear();
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.marketlogic.surveychallenge.repository;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+import java.time.Instant;
+import java.util.UUID;
+
+/***
+ * Idempotency key of a stored survey response, unique per survey. Rows are written in batches by
+ * SubmissionJdbcRepository, the entity only describes the table.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity(name = "ResponseKeyEntity")
+@Table(name = "response_keys", uniqueConstraints = {
+        @UniqueConstraint(name = "response_keys_key_uq", columnNames = {"survey_id", "idempotency_key"})
+})
+public class ResponseKeyEntity {
+    public static final int MAX_KEY_LENGTH = 255;
+
+    @Id
+    @Column(name = "response_id", nullable = false, columnDefinition = "uuid")
+    private UUID responseId;
+
+    @Column(name = "survey_id", nullable = false, columnDefinition = "uuid")
+    private UUID surveyId;
+
+    @Column(name = "idempotency_key", nullable = false, length = ResponseKeyEntity.MAX_KEY_LENGTH)
+    private String idempotencyKey;
+
+    @Column(name = "submitted_at", nullable = false)
+    private Instant submittedAt;
+}
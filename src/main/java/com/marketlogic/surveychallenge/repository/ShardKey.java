@@ -0,0 +1,15 @@
+package com.marketlogic.surveychallenge.repository;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/***
+ * Marks the survey id parameter of a bean method, the method runs on the shard of that survey.
+ * Applied outside of transactions, so a transaction started by the method begins on that shard.
+ */
+@Target(ElementType.PARAMETER)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ShardKey {
+}
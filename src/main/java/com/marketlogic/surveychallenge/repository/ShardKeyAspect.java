@@ -0,0 +1,44 @@
+package com.marketlogic.surveychallenge.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.lang.annotation.Annotation;
+import java.util.UUID;
+
+/***
+ * Binds the shard of the @ShardKey argument around the call. Ordered before the transaction
+ * interceptor, which takes its connection from the routing datasource once the shard is bound.
+ * Only service beans are advised, @ShardKey has no effect elsewhere.
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@RequiredArgsConstructor
+public class ShardKeyAspect {
+    private final ShardRouter router;
+
+    @Around("within(com.marketlogic.surveychallenge..service..*)"
+            + " && execution(* *(.., @com.marketlogic.surveychallenge.repository.ShardKey (*), ..))")
+    public Object onShard(ProceedingJoinPoint call) throws Throwable {
+        Annotation[][] annotations = ((MethodSignature) call.getSignature()).getMethod().getParameterAnnotations();
+        Object[] args = call.getArgs();
+        for (int i = 0; i < args.length; i++)
+            for (Annotation annotation : annotations[i])
+                if (annotation instanceof ShardKey && args[i] instanceof UUID) {
+                    Integer previous = ShardRouter.bind(router.shardOf((UUID) args[i]));
+                    try {
+                        return call.proceed();
+                    } finally {
+                        ShardRouter.restore(previous);
+                    }
+                }
+        return call.proceed();
+    }
+}
@@ -0,0 +1,162 @@
+package com.marketlogic.surveychallenge.repository;
+
+import com.marketlogic.surveychallenge.config.ShardingProperties;
+import com.marketlogic.surveychallenge.metrics.QueryCounts;
+import com.marketlogic.surveychallenge.metrics.RequestQueryCounter;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/***
+ * Places every survey, and everything stored per survey, on the shard picked by the random bits of
+ * its id. The shard bound to the current thread is read by ShardRoutingDataSource when a connection
+ * is taken, so a transaction stays on the shard that was bound when it began. Work spanning shards
+ * runs one transaction per shard, there is no atomic commit across shards. With sharding disabled
+ * there is a single shard 0 and everything runs inline on the calling thread.
+ */
+@Component
+public class ShardRouter {
+    private static final ThreadLocal<Integer> CURRENT = new ThreadLocal<>();
+
+    private final int count;
+    private final TransactionTemplate writeTransaction;
+    private final TransactionTemplate readTransaction;
+    private final ExecutorService fanOut;
+
+    public ShardRouter(ShardingProperties properties, PlatformTransactionManager transactionManager) {
+        this.count = properties.isEnabled() ? properties.getUrls().size() : 1;
+        if (count < 1)
+            throw new IllegalArgumentException("Sharding requires at least one datasource url");
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+        AtomicInteger threads = new AtomicInteger();
+        int fanOutThreads = count * Math.max(properties.getFanOutConcurrency(), 1);
+        this.fanOut = count == 1 ? null : Executors.newFixedThreadPool(fanOutThreads, task -> {
+            Thread thread = new Thread(task, "shard-fan-out-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /***
+     * @return shard bound to the current thread, 0 when none is bound
+     */
+    public static int currentShard() {
+        Integer shard = CURRENT.get();
+        return shard == null ? 0 : shard;
+    }
+
+    public int count() {
+        return count;
+    }
+
+    public int shardOf(UUID surveyId) {
+        return count == 1 ? 0 : (int) Math.floorMod(surveyId.getLeastSignificantBits(), (long) count);
+    }
+
+    /***
+     * Run a call with the shard bound, statements outside of a transaction each take a connection of the shard
+     * @param shard - shard number
+     * @param call - call to run
+     * @return result of the call
+     */
+    public <T> T onShard(int shard, Supplier<T> call) {
+        Integer previous = bind(shard);
+        try {
+            return call.get();
+        } finally {
+            restore(previous);
+        }
+    }
+
+    /***
+     * Run a call in a transaction on the given shard
+     * @param shard - shard number
+     * @param readOnly - whether the transaction is read-only
+     * @param call - call to run
+     * @return result of the call
+     */
+    public <T> T inTransaction(int shard, boolean readOnly, Supplier<T> call) {
+        TransactionTemplate transaction = readOnly ? readTransaction : writeTransaction;
+        return onShard(shard, () -> transaction.execute(status -> call.get()));
+    }
+
+    /***
+     * Run a call in a transaction on every shard, in parallel when there is more than one. Statements
+     * are counted into the request of the calling thread. The fan-out pool is bounded, calls beyond
+     * survey.sharding.fan-out-concurrency wait for its threads.
+     * @param readOnly - whether the transactions are read-only
+     * @param call - receives the shard number
+     * @return results in shard order
+     */
+    public <T> List<T> inEachShard(boolean readOnly, IntFunction<T> call) {
+        if (count == 1)
+            return List.of(inTransaction(0, readOnly, () -> call.apply(0)));
+
+        QueryCounts counts = RequestQueryCounter.current();
+        List<CompletableFuture<T>> results = new ArrayList<>(count);
+        for (int shard = 0; shard < count; shard++) {
+            int s = shard;
+            results.add(CompletableFuture.supplyAsync(() -> RequestQueryCounter.callWith(counts,
+                    () -> inTransaction(s, readOnly, () -> call.apply(s))), fanOut));
+        }
+        try {
+            List<T> joined = new ArrayList<>(count);
+            results.forEach(result -> joined.add(result.join()));
+            return joined;
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw e;
+        }
+    }
+
+    /***
+     * Group items by the shard of their survey, keeping their order within a shard
+     * @param items - items to group
+     * @param surveyId - survey id of an item
+     * @return items per shard number in shard order, shards without items are left out
+     */
+    public <T> Map<Integer, List<T>> partition(Collection<T> items, Function<T, UUID> surveyId) {
+        Map<Integer, List<T>> shards = new TreeMap<>();
+        for (T item : items)
+            shards.computeIfAbsent(shardOf(surveyId.apply(item)), shard -> new ArrayList<>()).add(item);
+        return shards;
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (fanOut != null)
+            fanOut.shutdown();
+    }
+
+    static Integer bind(int shard) {
+        Integer previous = CURRENT.get();
+        CURRENT.set(shard);
+        return previous;
+    }
+
+    static void restore(Integer previous) {
+        if (previous == null)
+            CURRENT.remove();
+        else
+            CURRENT.set(previous);
+    }
+}
@@ -0,0 +1,24 @@
+package com.marketlogic.surveychallenge.repository;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+
+/***
+ * Hands out connections of the shard bound to the current thread by ShardRouter, shard 0 when none is bound
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource {
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return ShardRouter.currentShard();
+    }
+
+    /***
+     * Close the connection pools of the shards
+     */
+    public void close() throws Exception {
+        for (DataSource shard : getResolvedDataSources().values())
+            if (shard instanceof AutoCloseable)
+                ((AutoCloseable) shard).close();
+    }
+}
@@ -0,0 +1,172 @@
+package com.marketlogic.surveychallenge.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+@Repository
+@RequiredArgsConstructor
+public class SubmissionJdbcRepository {
+    private static final String INSERT_ANSWER =
+            "insert into responses (id, response_id, survey_id, question_id, answer_id, submitted_at) " +
+            "values (?, ?, ?, ?, ?, ?)";
+    private static final String SELECT_ANY = "select 1 from responses limit 1";
+    private static final String SELECT_ANSWERS_BY_RESPONSE =
+            "select response_id, survey_id, question_id, answer_id from responses order by response_id";
+    private static final String SELECT_ANSWERS_SINCE =
+            "select survey_id, question_id, answer_id, submitted_at from responses where submitted_at >= ?";
+    private static final String SELECT_QUESTION_IDS =
+            "select distinct question_id from responses where survey_id = ? order by question_id";
+    private static final String SELECT_ANSWERS_OF_QUESTIONS =
+            "select response_id, question_id, answer_id, submitted_at from responses " +
+            "where survey_id = ? and question_id between ? and ?";
+    private static final String INSERT_NEW_KEY =
+            "insert into response_keys (response_id, survey_id, idempotency_key, submitted_at) " +
+            "select ?, ?, ?, ? where not exists " +
+            "(select 1 from response_keys where survey_id = ? and idempotency_key = ?)";
+    private static final String SELECT_KEY =
+            "select response_id, survey_id, idempotency_key, submitted_at from response_keys " +
+            "where survey_id = ? and idempotency_key = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /***
+     * Insert submitted answers with JDBC batching, the caller owns the transaction
+     * @param answers - rows to insert
+     */
+    public void insertAll(List<SubmittedAnswerEntity> answers) {
+        jdbcTemplate.batchUpdate(INSERT_ANSWER, answers, answers.size(), (ps, answer) -> {
+            ps.setObject(1, answer.getId());
+            ps.setObject(2, answer.getResponseId());
+            ps.setObject(3, answer.getSurveyId());
+            ps.setObject(4, answer.getQuestionId());
+            ps.setObject(5, answer.getAnswerId());
+            ps.setTimestamp(6, Timestamp.from(answer.getSubmittedAt()));
+        });
+    }
+
+    /***
+     * Insert the idempotency keys that are not stored yet with one JDBC batch, the caller owns the
+     * transaction. The unique constraint on survey and key backs the check against concurrent writers.
+     * @param keys - keys of new responses
+     * @return per key whether it was inserted, false when the key belongs to an earlier response
+     */
+    public boolean[] insertNewKeys(List<ResponseKeyEntity> keys) {
+        int[] counts = jdbcTemplate.batchUpdate(INSERT_NEW_KEY, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                ResponseKeyEntity key = keys.get(i);
+                ps.setObject(1, key.getResponseId());
+                ps.setObject(2, key.getSurveyId());
+                ps.setString(3, key.getIdempotencyKey());
+                ps.setTimestamp(4, Timestamp.from(key.getSubmittedAt()));
+                ps.setObject(5, key.getSurveyId());
+                ps.setString(6, key.getIdempotencyKey());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return keys.size();
+            }
+        });
+        boolean[] inserted = new boolean[counts.length];
+        for (int i = 0; i < counts.length; i++)
+            inserted[i] = counts[i] != 0;
+        return inserted;
+    }
+
+    public Optional<ResponseKeyEntity> findKey(UUID surveyId, String idempotencyKey) {
+        return jdbcTemplate.query(SELECT_KEY, (rs, rowNum) -> ResponseKeyEntity.builder()
+                        .responseId(rs.getObject(1, UUID.class))
+                        .surveyId(rs.getObject(2, UUID.class))
+                        .idempotencyKey(rs.getString(3))
+                        .submittedAt(rs.getTimestamp(4).toInstant())
+                        .build(), surveyId, idempotencyKey)
+                .stream()
+                .findFirst();
+    }
+
+    /***
+     * Stream every submitted answer without its row id and submission time, the answers of a
+     * response are handed over one after the other
+     * @param consumer - called for every answer, ordered by response id
+     */
+    public void forEachAnswer(Consumer<SubmittedAnswerEntity> consumer) {
+        jdbcTemplate.query(SELECT_ANSWERS_BY_RESPONSE, rs -> {
+            consumer.accept(SubmittedAnswerEntity.builder()
+                    .responseId(rs.getObject(1, UUID.class))
+                    .surveyId(rs.getObject(2, UUID.class))
+                    .questionId(rs.getObject(3, UUID.class))
+                    .answerId(rs.getObject(4, UUID.class))
+                    .build());
+        });
+    }
+
+    /***
+     * Stream the answers submitted since the given time without their row and response ids
+     * @param since - earliest submission time
+     * @param consumer - called for every answer
+     */
+    public void forEachAnswerSince(Instant since, Consumer<SubmittedAnswerEntity> consumer) {
+        jdbcTemplate.query(SELECT_ANSWERS_SINCE, rs -> {
+            consumer.accept(SubmittedAnswerEntity.builder()
+                    .surveyId(rs.getObject(1, UUID.class))
+                    .questionId(rs.getObject(2, UUID.class))
+                    .answerId(rs.getObject(3, UUID.class))
+                    .submittedAt(rs.getTimestamp(4).toInstant())
+                    .build());
+        }, Timestamp.from(since));
+    }
+
+    /***
+     * @param surveyId - survey Id
+     * @return ids of the questions with submitted answers, ascending
+     */
+    public List<UUID> findQuestionIds(UUID surveyId) {
+        return jdbcTemplate.queryForList(SELECT_QUESTION_IDS, UUID.class, surveyId);
+    }
+
+    /***
+     * Stream the answers of a range of questions from a forward-only, read-only cursor. The rows are
+     * fetched from the database in batches of the fetch size, the caller owns the transaction.
+     * @param surveyId - survey Id
+     * @param firstQuestion - lowest question id of the range
+     * @param lastQuestion - highest question id of the range
+     * @param fetchSize - rows fetched per round trip
+     * @param consumer - called for every answer, without its row id and survey id
+     */
+    public void forEachAnswerOfQuestions(UUID surveyId, UUID firstQuestion, UUID lastQuestion, int fetchSize,
+                                         Consumer<SubmittedAnswerEntity> consumer) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(SELECT_ANSWERS_OF_QUESTIONS,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(fetchSize);
+            ps.setObject(1, surveyId);
+            ps.setObject(2, firstQuestion);
+            ps.setObject(3, lastQuestion);
+            return ps;
+        }, rs -> {
+            consumer.accept(SubmittedAnswerEntity.builder()
+                    .responseId(rs.getObject(1, UUID.class))
+                    .questionId(rs.getObject(2, UUID.class))
+                    .answerId(rs.getObject(3, UUID.class))
+                    .submittedAt(rs.getTimestamp(4).toInstant())
+                    .build());
+        });
+    }
+
+    public boolean isEmpty() {
+        return jdbcTemplate.queryForList(SELECT_ANY).isEmpty();
+    }
+}
@@ -0,0 +1,48 @@
+package com.marketlogic.surveychallenge.repository;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import java.time.Instant;
+import java.util.UUID;
+
+/***
+ * One answer of a submitted survey response. Rows are written in batches by SubmissionJdbcRepository,
+ * the entity only describes the table.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity(name = "SubmittedAnswerEntity")
+@Table(name = "responses", indexes = {
+        @Index(name = "responses_survey_question_idx", columnList = "survey_id, question_id"),
+        @Index(name = "responses_response_idx", columnList = "response_id")
+})
+public class SubmittedAnswerEntity {
+    @Id
+    @Column(name = "id", nullable = false, columnDefinition = "uuid")
+    private UUID id;
+
+    @Column(name = "response_id", nullable = false, columnDefinition = "uuid")
+    private UUID responseId;
+
+    @Column(name = "survey_id", nullable = false, columnDefinition = "uuid")
+    private UUID surveyId;
+
+    @Column(name = "question_id", nullable = false, columnDefinition = "uuid")
+    private UUID questionId;
+
+    @Column(name = "answer_id", nullable = false, columnDefinition = "uuid")
+    private UUID answerId;
+
+    @Column(name = "submitted_at", nullable = false)
+    private Instant submittedAt;
+}
@@ -0,0 +1,15 @@
+package com.marketlogic.surveychallenge.repository;
+
+import lombok.Value;
+
+import java.util.UUID;
+
+/***
+ * Active survey rendered as UTF-8 JSON together with the version it was rendered from
+ */
+@Value
+public class SurveyDocument {
+    UUID surveyId;
+    SurveyVersion version;
+    byte[] json;
+}
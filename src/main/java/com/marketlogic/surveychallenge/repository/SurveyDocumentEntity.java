@@ -0,0 +1,40 @@
+package com.marketlogic.surveychallenge.repository;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.util.UUID;
+
+/***
+ * Read model row holding the rendered JSON of an active survey. Rows are maintained by
+ * SurveyDocumentJdbcRepository, the entity only describes the table.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity(name = "SurveyDocumentEntity")
+@Table(name = "survey_documents")
+public class SurveyDocumentEntity {
+    @Id
+    @Column(name = "survey_id", nullable = false, columnDefinition = "uuid")
+    private UUID surveyId;
+
+    @Column(name = "version", nullable = false)
+    private long version;
+
+    @Column(name = "question_versions", nullable = false)
+    private long questionVersions;
+
+    @Column(name = "answer_versions", nullable = false)
+    private long answerVersions;
+
+    @Column(name = "document", nullable = false, columnDefinition = "varbinary")
+    private byte[] document;
+}
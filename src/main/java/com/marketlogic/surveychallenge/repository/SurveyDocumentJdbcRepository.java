@@ -0,0 +1,85 @@
+package com.marketlogic.surveychallenge.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/***
+ * Read model of one row per active survey, written in the transaction that changes the survey.
+ * A row is only replaced by a document of the same or a newer survey version, so a rebuild that
+ * read a survey before a concurrent write never overwrites the newer document.
+ */
+@Repository
+@RequiredArgsConstructor
+public class SurveyDocumentJdbcRepository {
+    private static final String UPSERT =
+            "merge into survey_documents d using (values (cast(? as uuid), cast(? as bigint), cast(? as bigint), " +
+            "cast(? as bigint), cast(? as varbinary))) s (survey_id, version, question_versions, answer_versions, document) " +
+            "on d.survey_id = s.survey_id " +
+            "when matched and d.version <= s.version then update set version = s.version, " +
+            "question_versions = s.question_versions, answer_versions = s.answer_versions, document = s.document " +
+            "when not matched then insert (survey_id, version, question_versions, answer_versions, document) " +
+            "values (s.survey_id, s.version, s.question_versions, s.answer_versions, s.document)";
+    private static final String COLUMNS = "select survey_id, version, question_versions, answer_versions, document from survey_documents ";
+    private static final String SELECT_BY_ID = COLUMNS + "where survey_id = ?";
+    private static final String SELECT_BY_IDS = COLUMNS + "where survey_id in (:ids)";
+    private static final String SELECT_AFTER = COLUMNS + "where survey_id > ? order by survey_id limit ?";
+    private static final String DELETE_WITHOUT_SURVEY = "delete from survey_documents d where not exists " +
+            "(select 1 from surveys s where s.id = d.survey_id and s.deleted = false)";
+    private static final UUID MIN_ID = new UUID(0, 0);
+    private static final RowMapper<SurveyDocument> MAPPER = (rs, i) -> new SurveyDocument(
+            rs.getObject(1, UUID.class),
+            new SurveyVersion(rs.getLong(2), rs.getLong(3), rs.getLong(4)),
+            rs.getBytes(5));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    /***
+     * Insert or replace documents with one JDBC batch, the caller owns the transaction
+     * @param documents - documents of active surveys
+     */
+    public void upsertAll(List<SurveyDocument> documents) {
+        jdbcTemplate.batchUpdate(UPSERT, documents, documents.size(), (ps, document) -> {
+            ps.setObject(1, document.getSurveyId());
+            ps.setLong(2, document.getVersion().getSurvey());
+            ps.setLong(3, document.getVersion().getQuestions());
+            ps.setLong(4, document.getVersion().getAnswers());
+            ps.setBytes(5, document.getJson());
+        });
+    }
+
+    public Optional<SurveyDocument> findById(UUID surveyId) {
+        return jdbcTemplate.query(SELECT_BY_ID, MAPPER, surveyId).stream().findFirst();
+    }
+
+    public List<SurveyDocument> findAllById(Collection<UUID> surveyIds) {
+        return namedJdbcTemplate.query(SELECT_BY_IDS, Map.of("ids", surveyIds), MAPPER);
+    }
+
+    /***
+     * Range scan of the documents in id order
+     * @param after - keyset cursor, null for the first page
+     * @param limit - maximum number of documents
+     * @return documents ordered by survey id
+     */
+    public List<SurveyDocument> findAfter(UUID after, int limit) {
+        return jdbcTemplate.query(SELECT_AFTER, MAPPER, after == null ? MIN_ID : after, limit);
+    }
+
+    /***
+     * Delete documents of surveys that are deleted or no longer exist
+     * @return number of deleted documents
+     */
+    public int deleteWithoutSurvey() {
+        return jdbcTemplate.update(DELETE_WITHOUT_SURVEY);
+    }
+}
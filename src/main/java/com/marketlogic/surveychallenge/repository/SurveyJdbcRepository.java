@@ -0,0 +1,150 @@
+package com.marketlogic.surveychallenge.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+@Repository
+@RequiredArgsConstructor
+public class SurveyJdbcRepository {
+    private static final String INSERT_SURVEY =
+            "insert into surveys (id, version, name, description, deleted) values (?, ?, ?, ?, ?)";
+    private static final String INSERT_QUESTION =
+            "insert into questions (id, version, name, description, deleted, survey_id) values (?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_ANSWER =
+            "insert into answers (id, version, name, description, deleted, question_id) values (?, ?, ?, ?, ?, ?)";
+    private static final String SELECT_SURVEYS =
+            "select id, version, name, description, deleted from surveys where id > ? order by id limit ?";
+    private static final String SELECT_QUESTIONS =
+            "select id, version, name, description, deleted, survey_id from questions " +
+            "where survey_id between ? and ? order by survey_id, id";
+    private static final String SELECT_ANSWERS =
+            "select a.id, a.version, a.name, a.description, a.deleted, a.question_id from answers a " +
+            "join questions q on q.id = a.question_id where q.survey_id between ? and ? order by a.question_id, a.id";
+    private static final String SELECT_ANY = "select 1 from surveys limit 1";
+    private static final String[] CHILD_TABLES = {"questions", "answers"};
+    private static final UUID MIN_ID = new UUID(0, 0);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /***
+     * Insert surveys with their questions and answers using one JDBC batch per table. Ids must be
+     * assigned by the caller, the caller owns the transaction.
+     * @param surveys - surveys with assigned ids
+     */
+    public void insertAll(List<SurveyEntity> surveys) {
+        List<Child<QuestionEntity>> questions = new ArrayList<>();
+        List<Child<AnswerEntity>> answers = new ArrayList<>();
+        for (SurveyEntity survey : surveys)
+            for (QuestionEntity question : survey.getQuestions()) {
+                questions.add(new Child<>(survey.getId(), question));
+                for (AnswerEntity answer : question.getAnswers())
+                    answers.add(new Child<>(question.getId(), answer));
+            }
+
+        jdbcTemplate.batchUpdate(INSERT_SURVEY, surveys, surveys.size(), (ps, survey) -> {
+            ps.setObject(1, survey.getId());
+            ps.setLong(2, survey.getVersion());
+            ps.setString(3, survey.getName());
+            ps.setString(4, survey.getDescription());
+            ps.setBoolean(5, survey.getDeleted());
+        });
+        jdbcTemplate.batchUpdate(INSERT_QUESTION, questions, questions.size(), (ps, child) -> {
+            ps.setObject(1, child.entity.getId());
+            ps.setLong(2, child.entity.getVersion());
+            ps.setString(3, child.entity.getName());
+            ps.setString(4, child.entity.getDescription());
+            ps.setBoolean(5, child.entity.getDeleted());
+            ps.setObject(6, child.parentId);
+        });
+        jdbcTemplate.batchUpdate(INSERT_ANSWER, answers, answers.size(), (ps, child) -> {
+            ps.setObject(1, child.entity.getId());
+            ps.setLong(2, child.entity.getVersion());
+            ps.setString(3, child.entity.getName());
+            ps.setString(4, child.entity.getDescription());
+            ps.setBoolean(5, child.entity.getDeleted());
+            ps.setObject(6, child.parentId);
+        });
+    }
+
+    /***
+     * Read the next surveys in id order with all their questions and answers, including deleted rows,
+     * in three queries
+     * @param after - id of the last survey of the previous chunk, null for the first chunk
+     * @param limit - maximum number of surveys
+     * @return surveys with questions and answers ordered by id
+     */
+    public List<SurveyEntity> findAllAfter(UUID after, int limit) {
+        List<SurveyEntity> surveys = jdbcTemplate.query(SELECT_SURVEYS, (rs, i) -> SurveyEntity.builder()
+                .id(rs.getObject(1, UUID.class))
+                .version(rs.getLong(2))
+                .name(rs.getString(3))
+                .description(rs.getString(4))
+                .deleted(rs.getBoolean(5))
+                .build(), after == null ? MIN_ID : after, limit);
+        if (surveys.isEmpty())
+            return surveys;
+
+        UUID first = surveys.get(0).getId();
+        UUID last = surveys.get(surveys.size() - 1).getId();
+        Map<UUID, SurveyEntity> surveysById = new HashMap<>();
+        surveys.forEach(survey -> surveysById.put(survey.getId(), survey));
+        Map<UUID, QuestionEntity> questionsById = new HashMap<>();
+        jdbcTemplate.query(SELECT_QUESTIONS, rs -> {
+            QuestionEntity question = QuestionEntity.builder()
+                    .id(rs.getObject(1, UUID.class))
+                    .version(rs.getLong(2))
+                    .name(rs.getString(3))
+                    .description(rs.getString(4))
+                    .deleted(rs.getBoolean(5))
+                    .build();
+            surveysById.get(rs.getObject(6, UUID.class)).getQuestions().add(question);
+            questionsById.put(question.getId(), question);
+        }, first, last);
+        jdbcTemplate.query(SELECT_ANSWERS, rs -> {
+            questionsById.get(rs.getObject(6, UUID.class)).getAnswers().add(AnswerEntity.builder()
+                    .id(rs.getObject(1, UUID.class))
+                    .version(rs.getLong(2))
+                    .name(rs.getString(3))
+                    .description(rs.getString(4))
+                    .deleted(rs.getBoolean(5))
+                    .build());
+        }, first, last);
+        return surveys;
+    }
+
+    public boolean isEmpty() {
+        return jdbcTemplate.queryForList(SELECT_ANY).isEmpty();
+    }
+
+    /***
+     * Stop checking the foreign keys of questions and answers on insert, so bulk loads skip a
+     * parent lookup per row. The statements commit the current transaction.
+     */
+    public void disableReferentialIntegrity() {
+        for (String table : CHILD_TABLES)
+            jdbcTemplate.execute("alter table " + table + " set referential_integrity false");
+    }
+
+    /***
+     * Check the foreign keys of questions and answers again, validating every row inserted while
+     * they were disabled in one pass per table
+     * @param check - whether to validate the rows, false only to restore the checks after a failure
+     */
+    public void enableReferentialIntegrity(boolean check) {
+        for (String table : CHILD_TABLES)
+            jdbcTemplate.execute("alter table " + table + " set referential_integrity true " + (check ? "check" : "nocheck"));
+    }
+
+    @RequiredArgsConstructor
+    private static final class Child<T> {
+        private final UUID parentId;
+        private final T entity;
+    }
+}
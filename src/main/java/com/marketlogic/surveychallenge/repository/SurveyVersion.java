@@ -0,0 +1,33 @@
+package com.marketlogic.surveychallenge.repository;
+
+import lombok.Value;
+
+/***
+ * Version of a survey together with the count plus version sum of its questions and of its answers,
+ * deleted ones included. Versions only ever grow and children are never removed, so any change to
+ * the survey or to one of its children changes at least one of the three values.
+ */
+@Value
+public class SurveyVersion {
+    long survey;
+    long questions;
+    long answers;
+
+    public static SurveyVersion of(SurveyEntity survey) {
+        long questions = 0;
+        long answers = 0;
+        for (QuestionEntity question : survey.getQuestions()) {
+            questions += 1 + question.getVersion();
+            for (AnswerEntity answer : question.getAnswers())
+                answers += 1 + answer.getVersion();
+        }
+        return new SurveyVersion(survey.getVersion(), questions, answers);
+    }
+
+    /***
+     * @return strong entity tag, quoted as sent in the ETag header
+     */
+    public String toETag() {
+        return "\"" + Long.toHexString(survey) + "." + Long.toHexString(questions) + "." + Long.toHexString(answers) + "\"";
+    }
+}
@@ -0,0 +1,25 @@
+package com.marketlogic.surveychallenge.rest;
+
+import com.marketlogic.surveychallenge.repository.CatalogSnapshotStats;
+import com.marketlogic.surveychallenge.service.CatalogSnapshot;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+/***
+ * Actuator endpoint writing a catalog snapshot on demand, POST /actuator/catalogsnapshot
+ */
+@Component
+@Endpoint(id = "catalogsnapshot")
+@RequiredArgsConstructor
+public class CatalogSnapshotEndpoint {
+    private final CatalogSnapshot catalogSnapshot;
+
+    @WriteOperation
+    public CatalogSnapshotStats writeSnapshot() throws IOException {
+        return catalogSnapshot.write();
+    }
+}
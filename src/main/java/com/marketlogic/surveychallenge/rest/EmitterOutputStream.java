@@ -0,0 +1,37 @@
+package com.marketlogic.surveychallenge.rest;
+
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/***
+ * Sends every write to a response body emitter as one flushed chunk, callers are expected to
+ * write whole chunks rather than single bytes
+ */
+class EmitterOutputStream extends OutputStream {
+    private final ResponseBodyEmitter emitter;
+    private final MediaType mediaType;
+
+    EmitterOutputStream(ResponseBodyEmitter emitter, MediaType mediaType) {
+        this.emitter = emitter;
+        this.mediaType = mediaType;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        byte[] chunk = off == 0 && len == b.length ? b : Arrays.copyOfRange(b, off, off + len);
+        try {
+            emitter.send(chunk, mediaType);
+        } catch (IllegalStateException e) {
+            throw new IOException("Response is already complete", e);
+        }
+    }
+}
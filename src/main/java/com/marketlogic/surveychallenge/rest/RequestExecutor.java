@@ -0,0 +1,95 @@
+package com.marketlogic.surveychallenge.rest;
+
+import com.marketlogic.surveychallenge.config.RequestExecutorProperties;
+import com.marketlogic.surveychallenge.exceptions.ServerBusyException;
+import com.marketlogic.surveychallenge.metrics.QueryCounts;
+import com.marketlogic.surveychallenge.metrics.RequestQueryCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/***
+ * Runs the service calls of request handlers off the servlet container threads, so requests waiting
+ * for the database or for a lock do not hold connector threads. The platform mode uses a bounded pool
+ * with a bounded queue and rejects calls beyond both, the virtual mode starts a virtual thread per call
+ * and leaves bounding database work to the connection pool. The statement counts of the request
+ * follow the call to the worker thread. Not a java.util.concurrent.Executor bean on purpose, that
+ * would replace the application task executor of Spring MVC.
+ */
+@Slf4j
+@Component
+public class RequestExecutor {
+    public static final String METRIC_PREFIX = "survey.requests";
+
+    private final ExecutorService executor;
+
+    public RequestExecutor(RequestExecutorProperties properties, MeterRegistry registry) {
+        ExecutorService executor = properties.getMode() == RequestExecutorProperties.Mode.VIRTUAL
+                ? newVirtualThreadExecutor()
+                : newPlatformThreadExecutor(properties);
+        this.executor = ExecutorServiceMetrics.monitor(registry, executor, METRIC_PREFIX);
+        log.info("Running request service calls on {} threads", properties.getMode().name().toLowerCase());
+    }
+
+    /***
+     * @param call - service call
+     * @return CompletableFuture completed with the result of the call on a worker thread
+     * @throws ServerBusyException when the platform pool and its queue are full
+     */
+    public <T> CompletableFuture<T> supply(Supplier<T> call) {
+        QueryCounts counts = RequestQueryCounter.current();
+        try {
+            return CompletableFuture.supplyAsync(() -> RequestQueryCounter.callWith(counts, call), executor);
+        } catch (RejectedExecutionException e) {
+            throw new ServerBusyException("Request executor is saturated");
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(10, TimeUnit.SECONDS))
+            log.warn("Request service calls did not finish in time");
+    }
+
+    private static ExecutorService newPlatformThreadExecutor(RequestExecutorProperties properties) {
+        AtomicInteger threads = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(properties.getThreads(), properties.getThreads(),
+                properties.getKeepAlive().toMillis(), TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(properties.getQueueCapacity()),
+                task -> {
+                    Thread thread = new Thread(task, "survey-request-" + threads.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /***
+     * Looked up reflectively since the build targets Java 11, so the application still builds and
+     * runs on Java versions without virtual threads as long as the platform mode is used
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException("Virtual threads require Java 21 or newer, running on "
+                    + Runtime.version());
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Virtual thread executor could not be created", e);
+        }
+    }
+}
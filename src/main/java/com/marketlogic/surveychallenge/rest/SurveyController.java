@@ -1,46 +1,211 @@
 package com.marketlogic.surveychallenge.rest;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.marketlogic.surveychallenge.config.ResponseExportProperties;
+import com.marketlogic.surveychallenge.exceptions.SurveyRequestValidationException;
+import com.marketlogic.surveychallenge.rest.dto.BulkImportResponse;
+import com.marketlogic.surveychallenge.rest.dto.DisableQuestionsRequest;
+import com.marketlogic.surveychallenge.rest.dto.DisableQuestionsResponse;
+import com.marketlogic.surveychallenge.rest.dto.DistributionResponse;
+import com.marketlogic.surveychallenge.rest.dto.SubmissionRequest;
+import com.marketlogic.surveychallenge.rest.dto.SubmissionResponse;
+import com.marketlogic.surveychallenge.rest.dto.SurveyPageResponse;
 import com.marketlogic.surveychallenge.rest.dto.SurveyRequest;
 import com.marketlogic.surveychallenge.rest.dto.SurveyResponse;
+import com.marketlogic.surveychallenge.service.AckMode;
+import com.marketlogic.surveychallenge.service.CachedSurvey;
+import com.marketlogic.surveychallenge.service.IResponseExportService;
+import com.marketlogic.surveychallenge.service.IStatisticsService;
+import com.marketlogic.surveychallenge.service.ISubmissionService;
 import com.marketlogic.surveychallenge.service.ISurveyService;
+import com.marketlogic.surveychallenge.service.SurveyFields;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.Duration;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
 
+/***
+ * Every handler is recorded in http.server.requests by the web MVC metrics filter, with a percentile
+ * histogram enabled in application.properties. Handlers that may touch the database run their
+ * service calls on the request executor and return a CompletableFuture, the container thread is
+ * released as soon as the call is handed over.
+ */
 @RestController
 @RequiredArgsConstructor
 @Slf4j
 @RequestMapping("/api/v1")
 public class SurveyController {
+    public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+    public static final String APPLICATION_SMILE_VALUE = "application/x-jackson-smile";
+    public static final String TEXT_CSV_VALUE = "text/csv";
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    private static final List<MediaType> BINARY_MEDIA_TYPES =
+            List.of(MediaType.APPLICATION_CBOR, MediaType.parseMediaType(APPLICATION_SMILE_VALUE));
+
     private final ISurveyService surveyService;
+    private final ISubmissionService submissionService;
+    private final IStatisticsService statisticsService;
+    private final IResponseExportService exportService;
+    private final ObjectMapper objectMapper;
+    private final RequestExecutor requestExecutor;
+    private final WriteLimiter writeLimiter;
+    private final ResponseExportProperties exportProperties;
 
     /***
-     * Return list of all active surveys
-     * @return List<SurveyResponse>
+     * Return a page of active surveys ordered by id, or the best matches of a search, tagged with
+     * the catalog version. Not modified is returned without reading any survey when the client
+     * holds the current version. The page is encoded as CBOR or Smile when the client prefers it, a
+     * JSON page of full surveys is written from the stored survey documents.
+     * @param after - cursor returned with the previous page, omitted for the first page
+     * @param q - search text matched by prefix against names, descriptions and question texts, a
+     *          search returns the best matches in one page without a cursor
+     * @param limit - maximum number of surveys in the page
+     * @param fields - comma separated fields to return like id,name or questions.answers.name, all when omitted
+     * @param accept - Accept request header
+     * @param ifNoneMatch - If-None-Match request header
+     * @return SurveyPageResponse
      */
     @GetMapping(value = "/surveys")
-    public ResponseEntity<List<SurveyResponse>> getSurveys() {
-        return ResponseEntity.ok(surveyService.getSurveys());
+    public CompletableFuture<ResponseEntity<?>> getSurveys(@RequestParam(required = false) UUID after,
+                                                         @RequestParam(required = false) String q,
+                                                         @RequestParam(defaultValue = "100") int limit,
+                                                         @RequestParam(required = false) String fields,
+                                                         @RequestHeader(value = HttpHeaders.ACCEPT, required = false)
+                                                         String accept,
+                                                         @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false)
+                                                         String ifNoneMatch) {
+        SurveyFields selected = SurveyFields.parse(fields);
+        if (q != null && after != null)
+            throw new SurveyRequestValidationException("Search results have no cursor");
+
+        Optional<MediaType> binary = preferredBinaryType(accept);
+        String etag = binary.map(type -> variantETag(surveyService.getCatalogETag(), type.getSubtype()))
+                .orElseGet(surveyService::getCatalogETag);
+        if (matchesETag(ifNoneMatch, etag))
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(etag)
+                    .header(HttpHeaders.VARY, HttpHeaders.ACCEPT)
+                    .build());
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .eTag(etag)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        binary.ifPresent(response::contentType);
+        if (q == null && binary.isEmpty() && selected.isAll())
+            return requestExecutor.supply(() -> response.contentType(MediaType.APPLICATION_JSON)
+                    .body(surveyService.getEncodedSurveys(after, limit).toJson()));
+        return requestExecutor.supply(() -> response.body(q != null
+                ? surveyService.searchSurveys(q, limit, selected)
+                : surveyService.getSurveys(after, limit, selected)));
+    }
+
+    /***
+     * Stream all active surveys as newline delimited JSON, one survey per line
+     * @return StreamingResponseBody
+     */
+    @GetMapping(value = "/surveys", produces = APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamSurveys() {
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                generator.disable(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM);
+                generator.setRootValueSeparator(null);
+                surveyService.streamSurveys(survey -> {
+                    try {
+                        objectMapper.writeValue(generator, survey);
+                        generator.writeRaw('\n');
+                        generator.flush();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(APPLICATION_NDJSON_VALUE))
+                .body(body);
     }
 
     /***
-     * Return a single survey even though it removed before
+     * Return a single survey even though it removed before. JSON is written from the cached
+     * encoding, gzip compressed when the client accepts it, CBOR or Smile are encoded from the
+     * cached survey when the client prefers them. Not modified is returned when the client holds
+     * the current version, the survey is neither loaded nor mapped for that.
      * @param surveyId - survey Id
+     * @param accept - Accept request header
+     * @param acceptEncoding - Accept-Encoding request header
+     * @param ifNoneMatch - If-None-Match request header
      * @return SurveyResponse
      */
-    @GetMapping(value = "/surveys/{surveyId}")
-    public ResponseEntity<SurveyResponse> getSurvey(@PathVariable UUID surveyId) {
-        return ResponseEntity.of(surveyService.getSurvey(surveyId));
+    @GetMapping(value = "/surveys/{surveyId}",
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, APPLICATION_SMILE_VALUE})
+    public CompletableFuture<ResponseEntity<?>> getSurvey(@PathVariable UUID surveyId,
+                                                          @RequestHeader(value = HttpHeaders.ACCEPT, required = false)
+                                                          String accept,
+                                                          @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false)
+                                                          String acceptEncoding,
+                                                          @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false)
+                                                          String ifNoneMatch) {
+        return requestExecutor.supply(() -> getEncodedSurvey(surveyId, preferredBinaryType(accept), acceptEncoding, ifNoneMatch));
+    }
+
+    private ResponseEntity<?> getEncodedSurvey(UUID surveyId, Optional<MediaType> binary, String acceptEncoding, String ifNoneMatch) {
+        boolean gzip = binary.isEmpty() && acceptsGzip(acceptEncoding);
+        String variant = binary.map(MediaType::getSubtype).orElse(gzip ? "gzip" : null);
+        if (ifNoneMatch != null) {
+            Optional<String> etag = surveyService.getSurveyETag(surveyId).map(tag -> variantETag(tag, variant));
+            if (etag.isPresent() && matchesETag(ifNoneMatch, etag.get()))
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                        .eTag(etag.get())
+                        .header(HttpHeaders.VARY, HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING)
+                        .build();
+        }
+
+        Optional<CachedSurvey> survey = surveyService.getEncodedSurvey(surveyId);
+        if (survey.isEmpty())
+            return ResponseEntity.notFound().build();
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .eTag(variantETag(survey.get().getEtag(), variant))
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING);
+        if (binary.isPresent())
+            return response.contentType(binary.get()).body(survey.get().getSurvey());
+
+        response.contentType(MediaType.APPLICATION_JSON);
+        if (!gzip)
+            return response.contentLength(survey.get().getJson().length)
+                    .body(survey.get().getJson());
+
+        return response.header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                .contentLength(survey.get().getGzip().length)
+                .body(survey.get().getGzip());
     }
 
     /***
@@ -49,8 +214,21 @@ public class SurveyController {
      * @return SurveyResponse
      */
     @PostMapping(value = "/surveys")
-    public ResponseEntity<SurveyResponse> newSurvey(@RequestBody SurveyRequest survey) {
-        return ResponseEntity.of(surveyService.newSurvey(survey));
+    public CompletableFuture<ResponseEntity<SurveyResponse>> newSurvey(@RequestBody SurveyRequest survey) {
+        return writeLimiter.admit(() -> requestExecutor.supply(() ->
+                ResponseEntity.of(surveyService.newSurvey(survey))));
+    }
+
+    /***
+     * Import many surveys from a JSON array or from newline delimited JSON. Runs on the container
+     * thread, which reads the request body while the import proceeds.
+     * @param body - surveys to import
+     * @return BulkImportResponse
+     */
+    @PostMapping(value = "/surveys:bulk",
+            consumes = {MediaType.APPLICATION_JSON_VALUE, APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<BulkImportResponse> importSurveys(InputStream body) throws IOException {
+        return ResponseEntity.ok(surveyService.importSurveys(body));
     }
 
     /***
@@ -60,8 +238,191 @@ public class SurveyController {
      * @return SurveyResponse
      */
     @DeleteMapping(value = "/surveys/{surveyId}/questions/{questionId}")
-    public ResponseEntity<SurveyResponse> deleteSurveyQuestion(@PathVariable UUID surveyId,
-                                                               @PathVariable UUID questionId) {
-        return ResponseEntity.of(surveyService.deleteSurveyQuestion(surveyId, questionId));
+    public CompletableFuture<ResponseEntity<SurveyResponse>> deleteSurveyQuestion(@PathVariable UUID surveyId,
+                                                                                  @PathVariable UUID questionId) {
+        return writeLimiter.admit(() -> requestExecutor.supply(() ->
+                ResponseEntity.of(surveyService.deleteSurveyQuestion(surveyId, questionId))));
+    }
+
+    /***
+     * Mark many questions of any surveys as deleted at once
+     * @param request - question Ids
+     * @return DisableQuestionsResponse
+     */
+    @PostMapping(value = "/surveys/questions:disable")
+    public CompletableFuture<ResponseEntity<DisableQuestionsResponse>> disableQuestions(@RequestBody DisableQuestionsRequest request) {
+        return writeLimiter.admit(() -> requestExecutor.supply(() ->
+                ResponseEntity.ok(surveyService.disableQuestions(request))));
+    }
+
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null)
+            return false;
+
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (parts[0].trim().equalsIgnoreCase("gzip"))
+                return parts.length == 1 || !parts[1].trim().matches("q=0(\\.0*)?");
+        }
+        return false;
+    }
+
+    /***
+     * Strong tags must differ between encodings of the same version
+     * @param etag - tag of the JSON encoding
+     * @param variant - name of another encoding, null for JSON
+     */
+    private static String variantETag(String etag, String variant) {
+        return variant == null ? etag : etag.substring(0, etag.length() - 1) + "-" + variant + "\"";
+    }
+
+    /***
+     * Binary media type the client ranks first in the Accept header, wildcards select JSON
+     * @param accept - Accept request header
+     * @return CBOR or Smile media type, empty for JSON
+     */
+    private static Optional<MediaType> preferredBinaryType(String accept) {
+        if (accept == null)
+            return Optional.empty();
+
+        List<MediaType> accepted;
+        try {
+            accepted = MediaType.parseMediaTypes(accept);
+        } catch (InvalidMediaTypeException e) {
+            return Optional.empty();
+        }
+        MediaType.sortBySpecificityAndQuality(accepted);
+        for (MediaType type : accepted) {
+            if (type.getQualityValue() == 0)
+                continue;
+            if (type.isCompatibleWith(MediaType.APPLICATION_JSON))
+                return Optional.empty();
+            for (MediaType binary : BINARY_MEDIA_TYPES)
+                if (type.equalsTypeAndSubtype(binary))
+                    return Optional.of(binary);
+        }
+        return Optional.empty();
+    }
+
+    /***
+     * Weak comparison of the If-None-Match header against the current tag, as required for it
+     * @param ifNoneMatch - If-None-Match request header
+     * @param etag - current tag of the resource
+     * @return true when the client holds the current version
+     */
+    private static boolean matchesETag(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null)
+            return false;
+
+        for (String tag : ifNoneMatch.split(",")) {
+            tag = tag.trim();
+            if (tag.startsWith("W/"))
+                tag = tag.substring(2);
+            if (tag.equals("*") || tag.equals(etag))
+                return true;
+        }
+        return false;
+    }
+
+    /***
+     * Submit answers to the active questions of a survey
+     * @param surveyId - survey Id
+     * @param submission - selected answer per question
+     * @param ack - DURABLE to respond once the submission is stored, ENQUEUE to respond once it is queued
+     * @param idempotencyKey - optional client key, retries with the same key return the original response,
+     *                       another submission with a recently used key is rejected with 422
+     * @return SubmissionResponse
+     */
+    @PostMapping(value = "/surveys/{surveyId}/responses")
+    public CompletableFuture<ResponseEntity<SubmissionResponse>> submitResponse(@PathVariable UUID surveyId,
+                                                                                @RequestBody SubmissionRequest submission,
+                                                                                @RequestParam(defaultValue = "DURABLE") AckMode ack,
+                                                                                @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        HttpStatus status = ack == AckMode.DURABLE ? HttpStatus.CREATED : HttpStatus.ACCEPTED;
+        return writeLimiter.admit(() -> requestExecutor
+                        .supply(() -> submissionService.submit(surveyId, submission, ack, idempotencyKey))
+                        .thenCompose(response -> response))
+                .thenApply(response -> response
+                        .map(body -> ResponseEntity.status(status).body(body))
+                        .orElseGet(() -> ResponseEntity.notFound().build()));
+    }
+
+    /***
+     * Stream every submitted answer of a survey as CSV with one row per answer. The rows of all
+     * questions are read in parallel question ranges and written in chunks as they are encoded.
+     * An export that fails or exceeds survey.export.timeout after the first chunk aborts the
+     * connection, so a truncated export never ends like a complete one.
+     * @param surveyId - survey Id
+     * @param parallelism - number of question ranges read in parallel
+     * @return CSV with the columns response_id, question_id, answer_id and submitted_at, 503 when
+     * survey.export.max-concurrent-exports exports are running
+     */
+    @GetMapping(value = "/surveys/{surveyId}/responses/export", produces = TEXT_CSV_VALUE)
+    public CompletableFuture<ResponseEntity<ResponseBodyEmitter>> exportResponses(@PathVariable UUID surveyId,
+                                                                                  @RequestParam(defaultValue = "1") int parallelism) {
+        if (parallelism < 1)
+            throw new SurveyRequestValidationException("Parallelism must be at least 1");
+        return requestExecutor.supply(() -> surveyService.getSurvey(surveyId).isPresent())
+                .thenApply(exists -> exists
+                        ? startExport(surveyId, parallelism)
+                        : ResponseEntity.notFound().build());
+    }
+
+    private ResponseEntity<ResponseBodyEmitter> startExport(UUID surveyId, int parallelism) {
+        MediaType csv = MediaType.parseMediaType(TEXT_CSV_VALUE);
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter(exportProperties.getTimeout().toMillis());
+        CompletableFuture<Long> export = exportService.exportCsv(surveyId, parallelism,
+                new EmitterOutputStream(emitter, csv));
+        export.whenComplete((rows, e) -> {
+            if (e == null)
+                emitter.complete();
+            else
+                emitter.completeWithError(e);
+        });
+        emitter.onTimeout(() -> {
+            export.cancel(false);
+            emitter.completeWithError(new TimeoutException("Export of survey " + surveyId + " timed out"));
+        });
+        emitter.onError(e -> export.cancel(false));
+
+        return ResponseEntity.ok()
+                .contentType(csv)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename(surveyId + "-responses.csv")
+                        .build()
+                        .toString())
+                .body(emitter);
+    }
+
+    /***
+     * Return the relative distribution of the answers of an active question, optionally among the
+     * respondents that gave the filter answers or within a rolling time window
+     * @param surveyId - survey Id
+     * @param questionId - question Id
+     * @param filter - answer Ids, respondents match when they gave any filter answer of every filtered question
+     * @param window - time span before now, for example 15m, 1h, 1d or PT15M, not combined with filters
+     * @return DistributionResponse
+     */
+    @GetMapping(value = "/surveys/{surveyId}/questions/{questionId}/distribution")
+    public CompletableFuture<ResponseEntity<DistributionResponse>> getDistribution(@PathVariable UUID surveyId,
+                                                                                   @PathVariable UUID questionId,
+                                                                                   @RequestParam(name = "filter", required = false) List<UUID> filter,
+                                                                                   @RequestParam(name = "window", required = false) String window) {
+        List<UUID> answerIds = filter == null ? List.of() : filter;
+        return requestExecutor.supply(() -> {
+            if (window == null)
+                return ResponseEntity.of(statisticsService.getDistribution(surveyId, questionId, answerIds));
+            if (!answerIds.isEmpty())
+                throw new SurveyRequestValidationException("Filters cannot be combined with a window");
+            return ResponseEntity.of(statisticsService.getWindowDistribution(surveyId, questionId, parseWindow(window)));
+        });
+    }
+
+    private static Duration parseWindow(String window) {
+        try {
+            return DurationStyle.detectAndParse(window);
+        } catch (IllegalArgumentException e) {
+            throw new SurveyRequestValidationException("Invalid window " + window);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,23 @@
+package com.marketlogic.surveychallenge.rest;
+
+import com.marketlogic.surveychallenge.rest.dto.DocumentRebuildResponse;
+import com.marketlogic.surveychallenge.service.ISurveyService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+/***
+ * Actuator endpoint regenerating the survey documents from the survey tables, POST /actuator/surveydocuments
+ */
+@Component
+@Endpoint(id = "surveydocuments")
+@RequiredArgsConstructor
+public class SurveyDocumentsEndpoint {
+    private final ISurveyService surveyService;
+
+    @WriteOperation
+    public DocumentRebuildResponse rebuild() {
+        return surveyService.rebuildDocuments();
+    }
+}
@@ -0,0 +1,137 @@
+package com.marketlogic.surveychallenge.rest;
+
+import com.marketlogic.surveychallenge.config.WriteLimiterProperties;
+import com.marketlogic.surveychallenge.exceptions.ServerBusyException;
+import com.marketlogic.surveychallenge.exceptions.SubmissionQueueFullException;
+import com.marketlogic.surveychallenge.exceptions.TooManyRequestsException;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/***
+ * Adaptive concurrency limit of the write endpoints with additive increase and multiplicative
+ * decrease. A write over the limit is rejected right away instead of queueing for connections and
+ * row locks. Every completed write is a sample: one slower than the latency threshold or failing
+ * because the executor, the submission queue or the database is overloaded shrinks the limit by the
+ * backoff ratio, any other grows it by one per limit's worth of samples while at least half of it is
+ * in use. The limit shrinks at most once per window of writes: overloaded writes that started before
+ * the last decrease were admitted under the old limit and are ignored. Reads are not limited, and
+ * the maximum limit keeps writes from taking every worker thread.
+ */
+@Component
+public class WriteLimiter {
+    public static final String METRIC_PREFIX = "survey.writes";
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyThresholdNanos;
+    private final double backoffRatio;
+    private final Duration retryAfter;
+    private final AtomicInteger inflight = new AtomicInteger();
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder overloaded = new LongAdder();
+    private volatile double limit;
+    private long lastDecrease;
+
+    public WriteLimiter(WriteLimiterProperties properties, MeterRegistry registry) {
+        if (properties.getMinLimit() < 1 || properties.getMaxLimit() < properties.getMinLimit())
+            throw new IllegalArgumentException("Write limits must satisfy 1 <= min-limit <= max-limit");
+        this.minLimit = properties.getMinLimit();
+        this.maxLimit = properties.getMaxLimit();
+        this.latencyThresholdNanos = properties.getLatencyThreshold().toNanos();
+        this.backoffRatio = properties.getBackoffRatio();
+        this.retryAfter = properties.getRetryAfter();
+        this.limit = Math.max(minLimit, Math.min(maxLimit, properties.getInitialLimit()));
+        this.lastDecrease = System.nanoTime();
+
+        Gauge.builder(METRIC_PREFIX + ".limit", this, WriteLimiter::getLimit).register(registry);
+        Gauge.builder(METRIC_PREFIX + ".inflight", inflight, AtomicInteger::get).register(registry);
+        FunctionCounter.builder(METRIC_PREFIX + ".rejected", rejected, LongAdder::sum).register(registry);
+    }
+
+    /***
+     * Run a write if the limit admits it
+     * @param write - starts the write, the permit is held until the returned future completes
+     * @return future of the write
+     * @throws TooManyRequestsException when the limit is reached
+     */
+    public <T> CompletableFuture<T> admit(Supplier<CompletableFuture<T>> write) {
+        if (!tryAcquire()) {
+            rejected.increment();
+            throw new TooManyRequestsException("Too many concurrent writes, retry later.", retryAfter);
+        }
+        admitted.increment();
+
+        long start = System.nanoTime();
+        CompletableFuture<T> result;
+        try {
+            result = write.get();
+        } catch (RuntimeException e) {
+            release(start, e);
+            throw e;
+        }
+        return result.whenComplete((value, e) -> release(start, e));
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public WriteLimiterStats getStats() {
+        return WriteLimiterStats.builder()
+                .limit(getLimit())
+                .inflight(inflight.get())
+                .admitted(admitted.sum())
+                .rejected(rejected.sum())
+                .overloaded(overloaded.sum())
+                .build();
+    }
+
+    private boolean tryAcquire() {
+        while (true) {
+            int current = inflight.get();
+            if (current >= (int) limit)
+                return false;
+            if (inflight.compareAndSet(current, current + 1))
+                return true;
+        }
+    }
+
+    private void release(long start, Throwable failure) {
+        boolean overload = System.nanoTime() - start > latencyThresholdNanos || isOverload(failure);
+        int used = inflight.getAndDecrement();
+        if (overload)
+            overloaded.increment();
+        adjust(overload, start, used);
+    }
+
+    private synchronized void adjust(boolean overload, long start, int used) {
+        if (overload) {
+            if (start - lastDecrease < 0)
+                return;
+            limit = Math.max(minLimit, limit * backoffRatio);
+            lastDecrease = System.nanoTime();
+        } else if (2 * used >= limit)
+            limit = Math.min(maxLimit, limit + 1 / limit);
+    }
+
+    private static boolean isOverload(Throwable failure) {
+        if (failure instanceof CompletionException && failure.getCause() != null)
+            failure = failure.getCause();
+        return failure instanceof ServerBusyException
+                || failure instanceof SubmissionQueueFullException
+                || failure instanceof TransientDataAccessException
+                || failure instanceof CannotCreateTransactionException;
+    }
+}
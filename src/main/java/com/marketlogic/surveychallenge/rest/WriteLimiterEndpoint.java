@@ -0,0 +1,21 @@
+package com.marketlogic.surveychallenge.rest;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+/***
+ * Actuator endpoint with the state of the write limiter, GET /actuator/writelimiter
+ */
+@Component
+@Endpoint(id = "writelimiter")
+@RequiredArgsConstructor
+public class WriteLimiterEndpoint {
+    private final WriteLimiter writeLimiter;
+
+    @ReadOperation
+    public WriteLimiterStats stats() {
+        return writeLimiter.getStats();
+    }
+}
@@ -0,0 +1,17 @@
+package com.marketlogic.surveychallenge.rest;
+
+import lombok.Builder;
+import lombok.Value;
+
+/***
+ * Current limit and in-flight writes of the write limiter with counts since startup
+ */
+@Value
+@Builder
+public class WriteLimiterStats {
+    int limit;
+    int inflight;
+    long admitted;
+    long rejected;
+    long overloaded;
+}
@@ -0,0 +1,21 @@
+package com.marketlogic.surveychallenge.rest.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class AnswerDistributionResponse {
+    private UUID id;
+    private String name;
+    private long count;
+    private double ratio;
+}
@@ -0,0 +1,15 @@
+package com.marketlogic.surveychallenge.rest.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkImportFailure {
+    private int index;
+    private String message;
+}
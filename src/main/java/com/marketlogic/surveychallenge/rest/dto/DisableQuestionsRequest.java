@@ -0,0 +1,19 @@
+package com.marketlogic.surveychallenge.rest.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DisableQuestionsRequest {
+    @Builder.Default
+    private List<UUID> questionIds = new ArrayList<>();
+}
@@ -0,0 +1,22 @@
+package com.marketlogic.surveychallenge.rest.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class DisableQuestionsResponse {
+    private int questions;
+    @Builder.Default
+    private List<UUID> surveyIds = new ArrayList<>();
+}
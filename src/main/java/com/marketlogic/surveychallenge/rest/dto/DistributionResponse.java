@@ -0,0 +1,26 @@
+package com.marketlogic.surveychallenge.rest.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class DistributionResponse {
+    private UUID surveyId;
+    private UUID questionId;
+    private Instant windowStart;
+    private long total;
+    @Builder.Default
+    private List<AnswerDistributionResponse> answers = new ArrayList<>();
+}
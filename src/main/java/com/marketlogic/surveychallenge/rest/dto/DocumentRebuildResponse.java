@@ -0,0 +1,16 @@
+package com.marketlogic.surveychallenge.rest.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DocumentRebuildResponse {
+    private long surveys;
+    private long removed;
+    private long durationMillis;
+}
@@ -0,0 +1,18 @@
+package com.marketlogic.surveychallenge.rest.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SubmissionRequest {
+    @Builder.Default
+    private List<SubmittedAnswerRequest> answers = new ArrayList<>();
+}
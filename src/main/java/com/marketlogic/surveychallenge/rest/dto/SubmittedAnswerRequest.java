@@ -0,0 +1,17 @@
+package com.marketlogic.surveychallenge.rest.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SubmittedAnswerRequest {
+    private UUID questionId;
+    private UUID answerId;
+}
@@ -0,0 +1,29 @@
+package com.marketlogic.surveychallenge.service;
+
+import com.marketlogic.surveychallenge.rest.dto.SubmissionResponse;
+import lombok.Value;
+
+import java.util.concurrent.CompletableFuture;
+
+/***
+ * The response to an accepted submission without its answers, so remembering it for retries does
+ * not keep the submission itself once it is written. Persisted completes with the stored response.
+ */
+@Value
+class AcceptedSubmission {
+    SubmissionResponse response;
+    CompletableFuture<SubmissionResponse> persisted;
+
+    static AcceptedSubmission of(Submission submission) {
+        return new AcceptedSubmission(toResponse(submission),
+                submission.getPersisted().thenApply(AcceptedSubmission::toResponse));
+    }
+
+    private static SubmissionResponse toResponse(Submission submission) {
+        return SubmissionResponse.builder()
+                .id(submission.getId())
+                .surveyId(submission.getSurveyId())
+                .submittedAt(submission.getSubmittedAt())
+                .build();
+    }
+}
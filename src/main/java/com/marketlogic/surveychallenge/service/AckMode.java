@@ -0,0 +1,15 @@
+package com.marketlogic.surveychallenge.service;
+
+/***
+ * Point at which a submission is acknowledged to the caller
+ */
+public enum AckMode {
+    /***
+     * After the submission has been committed to the database
+     */
+    DURABLE,
+    /***
+     * As soon as the submission has been validated and queued for the writer
+     */
+    ENQUEUE
+}
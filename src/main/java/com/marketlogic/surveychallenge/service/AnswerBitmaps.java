@@ -0,0 +1,152 @@
+package com.marketlogic.surveychallenge.service;
+
+import com.marketlogic.surveychallenge.repository.ShardRouter;
+import com.marketlogic.surveychallenge.repository.SubmissionJdbcRepository;
+import com.marketlogic.surveychallenge.repository.SubmittedAnswerEntity;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/***
+ * In-memory respondent bitmaps per answer for filtered distributions. Every response gets a dense
+ * respondent number within its survey and every answer keeps a compressed bitmap of the
+ * respondents that gave it, so counting the answers of the respondents matching a filter is a
+ * bitmap intersection and a cardinality count.
+ * <p>
+ * Respondent numbers are assigned in the order responses are recorded and are not stored, the
+ * bitmaps are rebuilt from the responses table on startup, before the submission writer starts.
+ * Answers of one response have to be recorded one after the other.
+ */
+@Slf4j
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@RequiredArgsConstructor
+public class AnswerBitmaps implements ApplicationRunner {
+    private final SubmissionJdbcRepository repo;
+    private final ShardRouter router;
+    private final ConcurrentMap<UUID, SurveyBitmaps> surveys = new ConcurrentHashMap<>();
+
+    @Override
+    public void run(ApplicationArguments args) {
+        long start = System.nanoTime();
+        long[] answers = new long[1];
+        for (int shard = 0; shard < router.count(); shard++)
+            router.onShard(shard, () -> {
+                repo.forEachAnswer(answer -> {
+                    record(answer);
+                    answers[0]++;
+                });
+                return null;
+            });
+        surveys.values().forEach(SurveyBitmaps::optimize);
+        log.info("Indexed {} answers of {} respondents in {} ms", answers[0],
+                surveys.values().stream().mapToLong(SurveyBitmaps::respondents).sum(),
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    public void record(List<SubmittedAnswerEntity> answers) {
+        answers.forEach(this::record);
+    }
+
+    /***
+     * Count the respondents of every answer among the respondents that match the filter, an
+     * answer matches a filter group when the respondent gave any answer of the group, and the
+     * filter when every group matches
+     * @param surveyId - survey of the answers
+     * @param answerIds - answers to count
+     * @param filter - groups of filter answers, no group counts every respondent
+     * @return respondents per answer, in the order of answerIds
+     */
+    public long[] count(UUID surveyId, List<UUID> answerIds, Collection<? extends Collection<UUID>> filter) {
+        SurveyBitmaps bitmaps = surveys.get(surveyId);
+        return bitmaps == null ? new long[answerIds.size()] : bitmaps.count(answerIds, filter);
+    }
+
+    private void record(SubmittedAnswerEntity answer) {
+        surveys.computeIfAbsent(answer.getSurveyId(), id -> new SurveyBitmaps())
+                .add(answer.getResponseId(), answer.getAnswerId());
+    }
+
+    /***
+     * Bitmaps of one survey, the response last recorded keeps its number for the rest of its answers
+     */
+    private static final class SurveyBitmaps {
+        private static final RoaringBitmap EMPTY = new RoaringBitmap();
+
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+        private final Map<UUID, RoaringBitmap> answers = new HashMap<>();
+        private UUID lastResponse;
+        private int respondents;
+
+        void add(UUID responseId, UUID answerId) {
+            lock.writeLock().lock();
+            try {
+                if (!responseId.equals(lastResponse)) {
+                    lastResponse = responseId;
+                    respondents++;
+                }
+                answers.computeIfAbsent(answerId, id -> new RoaringBitmap()).add(respondents - 1);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        long[] count(List<UUID> answerIds, Collection<? extends Collection<UUID>> filter) {
+            long[] counts = new long[answerIds.size()];
+            lock.readLock().lock();
+            try {
+                RoaringBitmap matching = null;
+                for (Collection<UUID> group : filter) {
+                    List<RoaringBitmap> any = new ArrayList<>(group.size());
+                    group.forEach(answerId -> any.add(answers.getOrDefault(answerId, EMPTY)));
+                    RoaringBitmap groupMatching = RoaringBitmap.or(any.iterator());
+                    matching = matching == null ? groupMatching : RoaringBitmap.and(matching, groupMatching);
+                    if (matching.isEmpty())
+                        return counts;
+                }
+
+                for (int i = 0; i < counts.length; i++) {
+                    RoaringBitmap bitmap = answers.getOrDefault(answerIds.get(i), EMPTY);
+                    counts[i] = matching == null ? bitmap.getLongCardinality() : RoaringBitmap.andCardinality(bitmap, matching);
+                }
+                return counts;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        void optimize() {
+            lock.writeLock().lock();
+            try {
+                answers.values().forEach(RoaringBitmap::runOptimize);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        long respondents() {
+            lock.readLock().lock();
+            try {
+                return respondents;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.marketlogic.surveychallenge.service;
+
+import com.marketlogic.surveychallenge.repository.AnswerCountEntity;
+import com.marketlogic.surveychallenge.repository.AnswerCountJdbcRepository;
+import com.marketlogic.surveychallenge.repository.ShardRouter;
+import com.marketlogic.surveychallenge.repository.SubmittedAnswerEntity;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/***
+ * In-memory submission totals per answer. Increments are striped with LongAdder so concurrent
+ * writers do not contend, totals are flushed to the answer_counts table in the background and
+ * loaded back on startup. Totals are stored on the shard of their survey.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AnswerCounters implements ApplicationRunner {
+    private final AnswerCountJdbcRepository repo;
+    private final ShardRouter router;
+    private final ConcurrentMap<UUID, Counter> counters = new ConcurrentHashMap<>();
+
+    @Override
+    public void run(ApplicationArguments args) {
+        List<AnswerCountEntity> counts = new ArrayList<>();
+        router.inEachShard(true, shard -> repo.findAll()).forEach(counts::addAll);
+        counts.forEach(count -> {
+            Counter counter = counter(count.getAnswerId(), count.getSurveyId(), count.getQuestionId());
+            counter.adder.add(count.getTotal());
+            counter.flushed = count.getTotal();
+        });
+        log.info("Loaded submission totals of {} answers", counts.size());
+    }
+
+    public void record(List<SubmittedAnswerEntity> answers) {
+        answers.forEach(answer -> counter(answer.getAnswerId(), answer.getSurveyId(), answer.getQuestionId())
+                .adder.increment());
+    }
+
+    public long count(UUID answerId) {
+        Counter counter = counters.get(answerId);
+        return counter == null ? 0 : counter.adder.sum();
+    }
+
+    /***
+     * Write the totals that changed since the previous flush
+     */
+    @PreDestroy
+    @Scheduled(fixedDelayString = "${survey.counters.flush-interval-ms:1000}")
+    public synchronized void flush() {
+        List<AnswerCountEntity> changed = new ArrayList<>();
+        counters.forEach((answerId, counter) -> {
+            long total = counter.adder.sum();
+            if (total != counter.flushed)
+                changed.add(AnswerCountEntity.builder()
+                        .answerId(answerId)
+                        .surveyId(counter.surveyId)
+                        .questionId(counter.questionId)
+                        .total(total)
+                        .build());
+        });
+        if (changed.isEmpty())
+            return;
+
+        router.partition(changed, AnswerCountEntity::getSurveyId)
+                .forEach((shard, counts) -> router.onShard(shard, () -> {
+                    repo.saveAll(counts);
+                    return null;
+                }));
+        changed.forEach(count -> counters.get(count.getAnswerId()).flushed = count.getTotal());
+    }
+
+    private Counter counter(UUID answerId, UUID surveyId, UUID questionId) {
+        return counters.computeIfAbsent(answerId, id -> new Counter(surveyId, questionId));
+    }
+
+    @RequiredArgsConstructor
+    private static final class Counter {
+        private final UUID surveyId;
+        private final UUID questionId;
+        private final LongAdder adder = new LongAdder();
+        private volatile long flushed;
+    }
+}
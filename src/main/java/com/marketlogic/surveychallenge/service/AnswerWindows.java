@@ -0,0 +1,189 @@
+package com.marketlogic.surveychallenge.service;
+
+import com.marketlogic.surveychallenge.config.AnswerWindowProperties;
+import com.marketlogic.surveychallenge.repository.ShardRouter;
+import com.marketlogic.surveychallenge.repository.SubmissionJdbcRepository;
+import com.marketlogic.surveychallenge.repository.SubmittedAnswerEntity;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/***
+ * Submission counts per answer in fixed time buckets for rolling window distributions. Every
+ * answer with submissions keeps a ring of buckets, a slot packs the bucket number in its upper and
+ * the count in its lower 32 bits, so incrementing and recycling an expired bucket is one
+ * compare-and-set and never allocates. A window sums the buckets it covers, exact at bucket
+ * granularity, submissions older than the retention are dropped. Rings without a submission within
+ * the retention are evicted by a periodic sweep, so memory follows the answers submitted recently
+ * rather than every answer ever submitted.
+ * <p>
+ * The buckets are rebuilt from the answers submitted within the retention on startup, before the
+ * submission writer starts.
+ */
+@Slf4j
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class AnswerWindows implements ApplicationRunner {
+    private static final long COUNT_MASK = 0xFFFF_FFFFL;
+
+    private final SubmissionJdbcRepository repo;
+    private final ShardRouter router;
+    private final long bucketMillis;
+    private final int buckets;
+    private final ConcurrentMap<UUID, AtomicLongArray> rings = new ConcurrentHashMap<>();
+    // recorders share the read lock, the sweep takes the write lock so no count lands in an evicted ring
+    private final ReadWriteLock sweepLock = new ReentrantReadWriteLock();
+
+    public AnswerWindows(SubmissionJdbcRepository repo, ShardRouter router, AnswerWindowProperties properties) {
+        this.repo = repo;
+        this.router = router;
+        this.bucketMillis = properties.getBucketDuration().toMillis();
+        this.buckets = (int) Math.max(1, properties.getRetention().toMillis() / bucketMillis);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        long start = System.nanoTime();
+        Instant since = Instant.ofEpochMilli((bucket(Instant.now()) - buckets + 1) * bucketMillis);
+        long[] answers = new long[1];
+        sweepLock.readLock().lock();
+        try {
+            for (int shard = 0; shard < router.count(); shard++)
+                router.onShard(shard, () -> {
+                    repo.forEachAnswerSince(since, answer -> {
+                        record(answer);
+                        answers[0]++;
+                    });
+                    return null;
+                });
+        } finally {
+            sweepLock.readLock().unlock();
+        }
+        log.info("Counted {} answers submitted since {} in {} ms", answers[0], since,
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    public void record(List<SubmittedAnswerEntity> answers) {
+        sweepLock.readLock().lock();
+        try {
+            answers.forEach(this::record);
+        } finally {
+            sweepLock.readLock().unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${survey.windows.sweep-interval-ms:60000}")
+    public void sweep() {
+        int evicted = sweep(Instant.now());
+        if (evicted > 0)
+            log.debug("Evicted {} answer windows without submissions in the last {}", evicted, getRetention());
+    }
+
+    /***
+     * Evict the rings whose newest bucket is older than the retention, they count nothing in any window
+     * @param now - end of the retention
+     * @return number of evicted rings
+     */
+    int sweep(Instant now) {
+        int oldest = (int) (bucket(now) - buckets + 1);
+        int[] evicted = new int[1];
+        sweepLock.writeLock().lock();
+        try {
+            rings.values().removeIf(ring -> {
+                for (int i = 0; i < ring.length(); i++) {
+                    long slot = ring.get(i);
+                    if ((slot & COUNT_MASK) != 0 && (int) (slot >>> 32) - oldest >= 0)
+                        return false;
+                }
+                evicted[0]++;
+                return true;
+            });
+        } finally {
+            sweepLock.writeLock().unlock();
+        }
+        return evicted[0];
+    }
+
+    int size() {
+        return rings.size();
+    }
+
+    public Duration getRetention() {
+        return Duration.ofMillis(bucketMillis * buckets);
+    }
+
+    /***
+     * @param window - time span to count, rounded up to whole buckets
+     * @param now - end of the window
+     * @return start of the oldest bucket the window covers
+     */
+    public Instant windowStart(Duration window, Instant now) {
+        return Instant.ofEpochMilli((bucket(now) - windowBuckets(window) + 1) * bucketMillis);
+    }
+
+    /***
+     * Count the submissions of every answer in the buckets of the window, the current bucket included
+     * @param answerIds - answers to count
+     * @param window - time span to count, rounded up to whole buckets and at most the retention
+     * @param now - end of the window
+     * @return submissions per answer, in the order of answerIds
+     */
+    public long[] count(List<UUID> answerIds, Duration window, Instant now) {
+        long last = bucket(now);
+        int covered = windowBuckets(window);
+        long[] counts = new long[answerIds.size()];
+        for (int i = 0; i < counts.length; i++) {
+            AtomicLongArray ring = rings.get(answerIds.get(i));
+            if (ring == null)
+                continue;
+            for (long bucket = last - covered + 1; bucket <= last; bucket++) {
+                long slot = ring.get(slot(bucket));
+                if ((int) (slot >>> 32) == (int) bucket)
+                    counts[i] += slot & COUNT_MASK;
+            }
+        }
+        return counts;
+    }
+
+    private void record(SubmittedAnswerEntity answer) {
+        long bucket = bucket(answer.getSubmittedAt());
+        AtomicLongArray ring = rings.computeIfAbsent(answer.getAnswerId(), id -> new AtomicLongArray(buckets));
+        int index = slot(bucket);
+        int stamp = (int) bucket;
+        while (true) {
+            long slot = ring.get(index);
+            int age = stamp - (int) (slot >>> 32);
+            if (age < 0)
+                return;
+            long next = age == 0 ? slot + 1 : (long) stamp << 32 | 1;
+            if (ring.compareAndSet(index, slot, next))
+                return;
+        }
+    }
+
+    private int windowBuckets(Duration window) {
+        return (int) Math.min(buckets, Math.max(1, (window.toMillis() + bucketMillis - 1) / bucketMillis));
+    }
+
+    private long bucket(Instant time) {
+        return Math.floorDiv(time.toEpochMilli(), bucketMillis);
+    }
+
+    private int slot(long bucket) {
+        return (int) Math.floorMod(bucket, (long) buckets);
+    }
+}
@@ -0,0 +1,104 @@
+package com.marketlogic.surveychallenge.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.marketlogic.surveychallenge.repository.SurveyDocument;
+import com.marketlogic.surveychallenge.repository.SurveyVersion;
+import com.marketlogic.surveychallenge.rest.dto.AnswerResponse;
+import com.marketlogic.surveychallenge.rest.dto.QuestionResponse;
+import com.marketlogic.surveychallenge.rest.dto.SurveyResponse;
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.zip.GZIPOutputStream;
+
+/***
+ * Survey response as of a given survey version together with its UTF-8 JSON encoding, the
+ * gzip compressed variant of it and the entity tag of the version. Both encodings are produced
+ * once per version. The response and the byte arrays are shared between readers and must not be
+ * modified.
+ */
+@Getter
+public class CachedSurvey {
+    private static final int OBJECT_OVERHEAD = 64;
+
+    @Getter(AccessLevel.NONE)
+    private final SurveyVersion surveyVersion;
+    private final long version;
+    private final String etag;
+    private final SurveyResponse survey;
+    private final byte[] json;
+    private final byte[] gzip;
+    private final int weight;
+
+    public CachedSurvey(SurveyVersion version, SurveyResponse survey, ObjectMapper objectMapper) {
+        this(version, survey, encode(survey, objectMapper));
+    }
+
+    /***
+     * Survey of a read model document, the stored JSON is kept as the encoding
+     */
+    public CachedSurvey(SurveyDocument document, ObjectMapper objectMapper) {
+        this(document.getVersion(), decode(document.getJson(), objectMapper), document.getJson());
+    }
+
+    private CachedSurvey(SurveyVersion version, SurveyResponse survey, byte[] json) {
+        this.surveyVersion = version;
+        this.version = version.getSurvey();
+        this.etag = version.toETag();
+        this.survey = survey;
+        this.json = json;
+        this.gzip = compress(json);
+        this.weight = estimateWeight(survey) + json.length + gzip.length;
+    }
+
+    /***
+     * @return read model document of this survey version
+     */
+    public SurveyDocument toDocument() {
+        return new SurveyDocument(survey.getId(), surveyVersion, json);
+    }
+
+    static SurveyResponse decode(byte[] json, ObjectMapper objectMapper) {
+        try {
+            return objectMapper.readValue(json, SurveyResponse.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static byte[] encode(SurveyResponse survey, ObjectMapper objectMapper) {
+        try {
+            return objectMapper.writeValueAsBytes(survey);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte[] compress(byte[] json) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(json.length / 4 + 32);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private static int estimateWeight(SurveyResponse survey) {
+        long weight = OBJECT_OVERHEAD + chars(survey.getName()) + chars(survey.getDescription());
+        for (QuestionResponse question : survey.getQuestions()) {
+            weight += OBJECT_OVERHEAD + chars(question.getName()) + chars(question.getDescription());
+            for (AnswerResponse answer : question.getAnswers())
+                weight += OBJECT_OVERHEAD + chars(answer.getName()) + chars(answer.getDescription());
+        }
+        return (int) Math.min(weight, Integer.MAX_VALUE);
+    }
+
+    private static long chars(String value) {
+        return value == null ? 0 : 2L * value.length();
+    }
+}
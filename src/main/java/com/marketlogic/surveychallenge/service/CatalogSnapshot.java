@@ -0,0 +1,163 @@
+package com.marketlogic.surveychallenge.service;
+
+import com.marketlogic.surveychallenge.config.CatalogSnapshotProperties;
+import com.marketlogic.surveychallenge.repository.CatalogSnapshotReader;
+import com.marketlogic.surveychallenge.repository.CatalogSnapshotStats;
+import com.marketlogic.surveychallenge.repository.CatalogSnapshotWriter;
+import com.marketlogic.surveychallenge.repository.ShardRouter;
+import com.marketlogic.surveychallenge.repository.SurveyEntity;
+import com.marketlogic.surveychallenge.repository.SurveyJdbcRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+
+/***
+ * Binary snapshot of the whole survey catalog, including deleted rows and versions. The snapshot
+ * is written on demand and on shutdown from one repeatable read transaction per shard, so the
+ * surveys of a shard are consistent even while surveys are written. On startup it is bulk loaded
+ * into an empty catalog with JDBC batches, one transaction per chunk and shard, writing the survey
+ * documents of every chunk along with it. Foreign keys are only validated once all rows are loaded.
+ */
+@Slf4j
+@Component
+public class CatalogSnapshot implements ApplicationRunner {
+    private final SurveyJdbcRepository repo;
+    private final ShardRouter router;
+    private final ISurveyService surveyService;
+    private final TransactionTemplate snapshotTransaction;
+    private final CatalogVersion catalogVersion;
+    private final boolean enabled;
+    private final Path file;
+    private final int chunkSize;
+    private volatile boolean started;
+
+    public CatalogSnapshot(SurveyJdbcRepository repo,
+                           ShardRouter router,
+                           ISurveyService surveyService,
+                           PlatformTransactionManager transactionManager,
+                           CatalogVersion catalogVersion,
+                           CatalogSnapshotProperties properties) {
+        this.repo = repo;
+        this.router = router;
+        this.surveyService = surveyService;
+        this.snapshotTransaction = new TransactionTemplate(transactionManager);
+        this.snapshotTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.snapshotTransaction.setReadOnly(true);
+        this.catalogVersion = catalogVersion;
+        this.enabled = properties.isEnabled();
+        this.file = properties.getFile();
+        this.chunkSize = properties.getChunkSize();
+    }
+
+    /***
+     * Load the snapshot when snapshots are enabled, the file exists and the catalog is empty. An
+     * invalid snapshot fails the startup, and the shutdown snapshot is only written once this has
+     * completed, so a failed start never replaces the snapshot with an empty catalog.
+     */
+    @Override
+    public void run(ApplicationArguments args) throws IOException {
+        if (!enabled)
+            return;
+        if (!Files.exists(file)) {
+            log.info("No catalog snapshot at {}", file);
+        } else if (!router.inEachShard(true, shard -> repo.isEmpty()).stream().allMatch(Boolean::booleanValue)) {
+            log.info("Catalog is not empty, snapshot {} is not loaded", file);
+        } else {
+            load();
+        }
+        started = true;
+    }
+
+    /***
+     * Insert every survey of the snapshot file and its document. The foreign keys of questions and
+     * answers are not checked per row but validated in one pass per table after the last chunk, a
+     * snapshot with orphaned rows fails then.
+     * @return counts of the loaded snapshot
+     */
+    public CatalogSnapshotStats load() throws IOException {
+        long start = System.nanoTime();
+        try (CatalogSnapshotReader reader = new CatalogSnapshotReader(file)) {
+            eachShard(repo::disableReferentialIntegrity);
+            boolean loaded = false;
+            try {
+                for (List<SurveyEntity> chunk = reader.read(chunkSize); !chunk.isEmpty(); chunk = reader.read(chunkSize)) {
+                    router.partition(chunk, SurveyEntity::getId).forEach((shard, surveys) ->
+                            router.inTransaction(shard, false, () -> {
+                                surveyService.insertSurveys(surveys);
+                                return null;
+                            }));
+                }
+                loaded = true;
+            } finally {
+                boolean check = loaded;
+                eachShard(() -> repo.enableReferentialIntegrity(check));
+            }
+            catalogVersion.incrementAfterCommit();
+            CatalogSnapshotStats stats = reader.getStats();
+            log.info("Loaded {} surveys, {} questions and {} answers from {} in {} ms", stats.getSurveys(),
+                    stats.getQuestions(), stats.getAnswers(), file, (System.nanoTime() - start) / 1_000_000);
+            return stats;
+        }
+    }
+
+    private void eachShard(Runnable call) {
+        for (int shard = 0; shard < router.count(); shard++)
+            router.onShard(shard, () -> {
+                call.run();
+                return null;
+            });
+    }
+
+    /***
+     * Replace the snapshot file with the current catalog
+     * @return counts and size of the new snapshot
+     */
+    public synchronized CatalogSnapshotStats write() throws IOException {
+        long start = System.nanoTime();
+        try (CatalogSnapshotWriter writer = new CatalogSnapshotWriter(file)) {
+            for (int shard = 0; shard < router.count(); shard++)
+                router.onShard(shard, () -> snapshotTransaction.execute(status -> {
+                    UUID after = null;
+                    for (List<SurveyEntity> chunk = repo.findAllAfter(null, chunkSize); !chunk.isEmpty();
+                         chunk = repo.findAllAfter(after, chunkSize)) {
+                        try {
+                            writer.write(chunk);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                        after = chunk.get(chunk.size() - 1).getId();
+                    }
+                    return null;
+                }));
+            CatalogSnapshotStats stats = writer.commit();
+            log.info("Wrote {} surveys, {} questions and {} answers to {} in {} ms", stats.getSurveys(),
+                    stats.getQuestions(), stats.getAnswers(), file, (System.nanoTime() - start) / 1_000_000);
+            return stats;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    @PreDestroy
+    public void writeOnShutdown() {
+        if (!started)
+            return;
+        try {
+            write();
+        } catch (IOException | RuntimeException e) {
+            log.error("Failed to write the catalog snapshot to {}", file, e);
+        }
+    }
+}
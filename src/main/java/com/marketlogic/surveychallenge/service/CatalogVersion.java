@@ -0,0 +1,39 @@
+package com.marketlogic.surveychallenge.service;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/***
+ * Version of the whole survey catalog, advanced once a write to any survey has committed. Readers
+ * take the version before reading, so a page is never tagged with a version newer than its content.
+ * The start time of the instance is part of the tag, tags of a previous run never match.
+ */
+@Component
+public class CatalogVersion {
+    private final long epoch = System.currentTimeMillis();
+    private final AtomicLong version = new AtomicLong();
+
+    /***
+     * @return strong entity tag of the current version, quoted as sent in the ETag header
+     */
+    public String getETag() {
+        return "\"" + Long.toHexString(epoch) + "." + Long.toHexString(version.get()) + "\"";
+    }
+
+    public void incrementAfterCommit() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            version.incrementAndGet();
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                version.incrementAndGet();
+            }
+        });
+    }
+}
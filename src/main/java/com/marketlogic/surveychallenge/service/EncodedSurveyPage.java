@@ -0,0 +1,49 @@
+package com.marketlogic.surveychallenge.service;
+
+import com.marketlogic.surveychallenge.repository.SurveyDocument;
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+
+/***
+ * Page of full surveys as their stored JSON documents, written into the page as they are without
+ * decoding them. The JSON encoding equals the one of a SurveyPageResponse holding the same surveys.
+ */
+@Getter
+public class EncodedSurveyPage {
+    @Getter(AccessLevel.NONE)
+    private static final byte[] START = "{\"surveys\":[".getBytes(StandardCharsets.UTF_8);
+
+    private final List<SurveyDocument> surveys;
+    private final UUID nextCursor;
+
+    public EncodedSurveyPage(List<SurveyDocument> surveys, UUID nextCursor) {
+        this.surveys = surveys;
+        this.nextCursor = nextCursor;
+    }
+
+    /***
+     * @return UTF-8 JSON of the page
+     */
+    public byte[] toJson() {
+        int size = START.length + 64;
+        for (SurveyDocument survey : surveys)
+            size += survey.getJson().length + 1;
+        ByteArrayOutputStream out = new ByteArrayOutputStream(size);
+        out.writeBytes(START);
+        for (int i = 0; i < surveys.size(); i++) {
+            if (i > 0)
+                out.write(',');
+            out.writeBytes(surveys.get(i).getJson());
+        }
+        out.write(']');
+        if (nextCursor != null)
+            out.writeBytes((",\"nextCursor\":\"" + nextCursor + '"').getBytes(StandardCharsets.UTF_8));
+        out.write('}');
+        return out.toByteArray();
+    }
+}
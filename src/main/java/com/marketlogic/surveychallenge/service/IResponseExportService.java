@@ -0,0 +1,9 @@
+package com.marketlogic.surveychallenge.service;
+
+import java.io.OutputStream;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+public interface IResponseExportService {
+    CompletableFuture<Long> exportCsv(UUID surveyId, int parallelism, OutputStream out);
+}
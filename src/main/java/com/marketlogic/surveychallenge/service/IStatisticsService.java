@@ -0,0 +1,16 @@
+package com.marketlogic.surveychallenge.service;
+
+import com.marketlogic.surveychallenge.rest.dto.DistributionResponse;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+public interface IStatisticsService {
+    Optional<DistributionResponse> getDistribution(UUID surveyId, UUID questionId);
+
+    Optional<DistributionResponse> getDistribution(UUID surveyId, UUID questionId, List<UUID> filter);
+
+    Optional<DistributionResponse> getWindowDistribution(UUID surveyId, UUID questionId, Duration window);
+}
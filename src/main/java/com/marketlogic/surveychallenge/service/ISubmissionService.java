@@ -0,0 +1,13 @@
+package com.marketlogic.surveychallenge.service;
+
+import com.marketlogic.surveychallenge.rest.dto.SubmissionRequest;
+import com.marketlogic.surveychallenge.rest.dto.SubmissionResponse;
+
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+public interface ISubmissionService {
+    CompletableFuture<Optional<SubmissionResponse>> submit(UUID surveyId, SubmissionRequest submission, AckMode ack,
+                                                           String idempotencyKey);
+}
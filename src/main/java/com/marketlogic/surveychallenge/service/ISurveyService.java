@@ -1,15 +1,34 @@
 package com.marketlogic.surveychallenge.service;
 
+import com.marketlogic.surveychallenge.repository.SurveyEntity;
+import com.marketlogic.surveychallenge.rest.dto.BulkImportResponse;
+import com.marketlogic.surveychallenge.rest.dto.DisableQuestionsRequest;
+import com.marketlogic.surveychallenge.rest.dto.DisableQuestionsResponse;
+import com.marketlogic.surveychallenge.rest.dto.DocumentRebuildResponse;
+import com.marketlogic.surveychallenge.rest.dto.SurveyPageResponse;
 import com.marketlogic.surveychallenge.rest.dto.SurveyRequest;
 import com.marketlogic.surveychallenge.rest.dto.SurveyResponse;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 public interface ISurveyService {
-    List<SurveyResponse> getSurveys();
+    SurveyPageResponse getSurveys(UUID after, int limit, SurveyFields fields);
+    EncodedSurveyPage getEncodedSurveys(UUID after, int limit);
+    SurveyPageResponse searchSurveys(String query, int limit, SurveyFields fields);
+    void streamSurveys(Consumer<SurveyResponse> sink);
     Optional<SurveyResponse> getSurvey(UUID surveyId);
+    Optional<CachedSurvey> getEncodedSurvey(UUID surveyId);
+    Optional<String> getSurveyETag(UUID surveyId);
+    String getCatalogETag();
     Optional<SurveyResponse> newSurvey(SurveyRequest survey);
     Optional<SurveyResponse> deleteSurveyQuestion(UUID surveyId, UUID questionId);
+    DisableQuestionsResponse disableQuestions(DisableQuestionsRequest request);
+    BulkImportResponse importSurveys(InputStream body) throws IOException;
+    void insertSurveys(List<SurveyEntity> surveys);
+    DocumentRebuildResponse rebuildDocuments();
 }
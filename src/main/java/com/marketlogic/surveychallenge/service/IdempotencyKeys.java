@@ -0,0 +1,90 @@
+package com.marketlogic.surveychallenge.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.marketlogic.surveychallenge.config.SubmissionProperties;
+import com.marketlogic.surveychallenge.exceptions.IdempotencyKeyReusedException;
+import lombok.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/***
+ * Bounded in-memory store of recently used idempotency keys per survey, expiring a fixed time after
+ * the submission was accepted. Every key holds a fingerprint of the submitted body and one future of
+ * the accepted response, so retries and concurrent duplicates share the original result without
+ * reaching the database, and a different body under a used key is rejected. Only the response is
+ * kept, never the answers. Keys are dropped again when the submission is rejected or fails to be
+ * written, so the client can retry.
+ * <p>
+ * Evicted keys are caught by the unique key check of the submission writer, which stores no body,
+ * so a retry after eviction returns the stored response whatever body it carries.
+ */
+@Component
+public class IdempotencyKeys {
+    private final Cache<Key, Entry> keys;
+
+    public IdempotencyKeys(SubmissionProperties properties) {
+        this.keys = Caffeine.newBuilder()
+                .maximumSize(properties.getIdempotencyKeys())
+                .expireAfterWrite(properties.getIdempotencyKeyExpiry())
+                .build();
+    }
+
+    /***
+     * Accept a submission once per survey and key
+     * @param surveyId - survey Id
+     * @param idempotencyKey - client supplied key
+     * @param fingerprint - hash of the submitted body, equal for retries of the same submission
+     * @param accept - validates and queues the submission, runs only for the first use of the key
+     * @return the submission accepted for the key, empty when the survey does not exist
+     * @throws IdempotencyKeyReusedException when the key was used for a submission with another body
+     */
+    CompletableFuture<Optional<AcceptedSubmission>> acceptOnce(UUID surveyId, String idempotencyKey, long fingerprint,
+                                                               Supplier<Optional<Submission>> accept) {
+        Key key = new Key(surveyId, idempotencyKey);
+        ConcurrentMap<Key, Entry> map = keys.asMap();
+        Entry entry = new Entry(fingerprint, new CompletableFuture<>());
+        Entry original = map.putIfAbsent(key, entry);
+        if (original != null) {
+            if (original.getFingerprint() != fingerprint)
+                throw new IdempotencyKeyReusedException("Idempotency key was used for another submission");
+            return original.getAccepted();
+        }
+
+        Optional<AcceptedSubmission> accepted;
+        try {
+            accepted = accept.get().map(AcceptedSubmission::of);
+        } catch (RuntimeException e) {
+            map.remove(key, entry);
+            entry.getAccepted().completeExceptionally(e);
+            throw e;
+        }
+        accepted.ifPresent(a -> a.getPersisted().whenComplete((stored, e) -> {
+            if (e != null)
+                map.remove(key, entry);
+        }));
+        entry.getAccepted().complete(accepted);
+        return entry.getAccepted();
+    }
+
+    void invalidateAll() {
+        keys.invalidateAll();
+    }
+
+    @Value
+    private static class Key {
+        UUID surveyId;
+        String idempotencyKey;
+    }
+
+    @Value
+    private static class Entry {
+        long fingerprint;
+        CompletableFuture<Optional<AcceptedSubmission>> accepted;
+    }
+}
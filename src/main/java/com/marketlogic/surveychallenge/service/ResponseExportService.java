@@ -0,0 +1,227 @@
+package com.marketlogic.surveychallenge.service;
+
+import com.marketlogic.surveychallenge.config.ResponseExportProperties;
+import com.marketlogic.surveychallenge.exceptions.ServerBusyException;
+import com.marketlogic.surveychallenge.exceptions.SurveyRequestValidationException;
+import com.marketlogic.surveychallenge.repository.ShardRouter;
+import com.marketlogic.surveychallenge.repository.SubmissionJdbcRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/***
+ * Streams the submitted answers of a survey as CSV. The questions with answers are split into
+ * contiguous id ranges, every range is read by a worker from a forward-only cursor in a read-only
+ * transaction and encoded into chunks of bounded size. The chunks of all ranges are merged through
+ * a bounded queue and written by one writer thread per export, so memory stays bounded by the queue
+ * and one chunk per worker whatever the number of rows. Rows are ordered within a chunk only.
+ * <p>
+ * Writers and readers run on pools shared by all exports. Exports beyond the configured number of
+ * concurrent exports are rejected, and the readers of all exports together never hold more database
+ * connections than survey.export.max-parallelism.
+ * <p>
+ * A failing worker, a failing output stream or a cancelled export stops the export, the output then
+ * ends after the last complete chunk and the returned future completes exceptionally.
+ */
+@Slf4j
+@Service
+public class ResponseExportService implements IResponseExportService {
+    static final String CSV_HEADER = "response_id,question_id,answer_id,submitted_at\n";
+    private static final byte[] END = new byte[0];
+    private static final long POLL_MILLIS = 100;
+
+    private final SubmissionJdbcRepository repo;
+    private final ShardRouter router;
+    private final ResponseExportProperties properties;
+    private final Semaphore exports;
+    private final ExecutorService writers;
+    private final ExecutorService readers;
+
+    public ResponseExportService(SubmissionJdbcRepository repo, ShardRouter router, ResponseExportProperties properties) {
+        this.repo = repo;
+        this.router = router;
+        this.properties = properties;
+        this.exports = new Semaphore(Math.max(properties.getMaxConcurrentExports(), 1));
+        this.writers = newPool(Math.max(properties.getMaxConcurrentExports(), 1), "survey-export-writer-");
+        this.readers = newPool(Math.max(properties.getMaxParallelism(), 1), "survey-export-reader-");
+    }
+
+    /***
+     * Start writing the CSV header and every submitted answer of the survey
+     * @param surveyId - survey Id
+     * @param parallelism - question ranges read in parallel, bounded by survey.export.max-parallelism
+     * @param out - destination, flushed but not closed
+     * @return number of exported answers, cancelling the future stops the export
+     * @throws ServerBusyException when survey.export.max-concurrent-exports exports are running
+     */
+    @Override
+    public CompletableFuture<Long> exportCsv(UUID surveyId, int parallelism, OutputStream out) {
+        if (parallelism < 1)
+            throw new SurveyRequestValidationException("Parallelism must be at least 1");
+        if (!exports.tryAcquire())
+            throw new ServerBusyException("Too many exports are running");
+
+        CompletableFuture<Long> export = new CompletableFuture<>();
+        AtomicBoolean cancelled = new AtomicBoolean();
+        export.whenComplete((rows, e) -> cancelled.set(true));
+        try {
+            writers.execute(() -> {
+                List<CompletableFuture<Long>> reads = new ArrayList<>();
+                try {
+                    export.complete(write(surveyId, parallelism, out, reads, cancelled));
+                } catch (Throwable e) {
+                    export.completeExceptionally(e);
+                } finally {
+                    cancelled.set(true);
+                    CompletableFuture.allOf(reads.toArray(new CompletableFuture[0]))
+                            .whenComplete((rows, e) -> exports.release());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            exports.release();
+            throw new ServerBusyException("Export writers are shut down");
+        }
+        return export;
+    }
+
+    @PreDestroy
+    public void stop() {
+        writers.shutdownNow();
+        readers.shutdownNow();
+    }
+
+    private long write(UUID surveyId, int parallelism, OutputStream out, List<CompletableFuture<Long>> reads,
+                       AtomicBoolean cancelled) throws IOException {
+        long start = System.nanoTime();
+        int shard = router.shardOf(surveyId);
+        List<UUID> questionIds = router.inTransaction(shard, true, () -> repo.findQuestionIds(surveyId));
+        List<List<UUID>> ranges = split(questionIds, Math.min(parallelism, properties.getMaxParallelism()));
+        out.write(CSV_HEADER.getBytes(StandardCharsets.US_ASCII));
+
+        BlockingQueue<byte[]> chunks = new ArrayBlockingQueue<>(Math.max(properties.getQueueCapacity(), 1));
+        try {
+            for (List<UUID> range : ranges)
+                reads.add(CompletableFuture
+                        .supplyAsync(() -> read(shard, surveyId, range, chunks, cancelled), readers)
+                        .whenComplete((rows, e) -> offer(chunks, END, cancelled)));
+
+            for (int finished = 0; finished < reads.size(); ) {
+                byte[] chunk = chunks.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (cancelled.get())
+                    throw new CancellationException("Export cancelled");
+                if (chunk == null)
+                    continue;
+                if (chunk != END) {
+                    out.write(chunk);
+                    continue;
+                }
+                finished++;
+                reads.stream().filter(CompletableFuture::isCompletedExceptionally).findFirst()
+                        .ifPresent(ResponseExportService::join);
+            }
+            long rows = 0;
+            for (CompletableFuture<Long> read : reads)
+                rows += join(read);
+            out.flush();
+            log.info("Exported {} answers of survey {} from {} question ranges in {} ms", rows, surveyId,
+                    ranges.size(), (System.nanoTime() - start) / 1_000_000);
+            return rows;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Export of survey " + surveyId + " interrupted");
+        }
+    }
+
+    /***
+     * Split sorted question ids into at most the given number of contiguous ranges of similar size
+     */
+    static List<List<UUID>> split(List<UUID> questionIds, int parts) {
+        List<List<UUID>> ranges = new ArrayList<>();
+        int count = Math.min(parts, questionIds.size());
+        for (int i = 0; i < count; i++)
+            ranges.add(questionIds.subList(i * questionIds.size() / count, (i + 1) * questionIds.size() / count));
+        return ranges;
+    }
+
+    private long read(int shard, UUID surveyId, List<UUID> range, BlockingQueue<byte[]> chunks, AtomicBoolean cancelled) {
+        int chunkSize = (int) properties.getChunkSize().toBytes();
+        StringBuilder csv = new StringBuilder(chunkSize + CSV_HEADER.length() * 4);
+        long[] rows = new long[1];
+        router.inTransaction(shard, true, () -> {
+            repo.forEachAnswerOfQuestions(surveyId, range.get(0), range.get(range.size() - 1), properties.getFetchSize(),
+                    answer -> {
+                        csv.append(answer.getResponseId()).append(',')
+                                .append(answer.getQuestionId()).append(',')
+                                .append(answer.getAnswerId()).append(',')
+                                .append(answer.getSubmittedAt()).append('\n');
+                        rows[0]++;
+                        if (csv.length() >= chunkSize)
+                            put(chunks, csv, cancelled);
+                    });
+            return null;
+        });
+        if (csv.length() > 0)
+            put(chunks, csv, cancelled);
+        return rows[0];
+    }
+
+    private static void put(BlockingQueue<byte[]> chunks, StringBuilder csv, AtomicBoolean cancelled) {
+        if (!offer(chunks, csv.toString().getBytes(StandardCharsets.US_ASCII), cancelled))
+            throw new CancellationException("Export cancelled");
+        csv.setLength(0);
+    }
+
+    /***
+     * Wait for room in the queue until the export is cancelled
+     * @return false when the export was cancelled
+     */
+    private static boolean offer(BlockingQueue<byte[]> chunks, byte[] chunk, AtomicBoolean cancelled) {
+        try {
+            while (!cancelled.get())
+                if (chunks.offer(chunk, POLL_MILLIS, TimeUnit.MILLISECONDS))
+                    return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return false;
+    }
+
+    private static ExecutorService newPool(int threads, String name) {
+        AtomicInteger count = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, task -> {
+            Thread thread = new Thread(task, name + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.marketlogic.surveychallenge.service;
+
+import com.marketlogic.surveychallenge.exceptions.SurveyRequestValidationException;
+import com.marketlogic.surveychallenge.metrics.SurveyMetrics;
+import com.marketlogic.surveychallenge.rest.dto.AnswerDistributionResponse;
+import com.marketlogic.surveychallenge.rest.dto.AnswerResponse;
+import com.marketlogic.surveychallenge.rest.dto.DistributionResponse;
+import com.marketlogic.surveychallenge.rest.dto.QuestionResponse;
+import com.marketlogic.surveychallenge.rest.dto.SurveyResponse;
+import io.micrometer.core.annotation.Timed;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class StatisticsService implements IStatisticsService {
+    private final ISurveyService surveyService;
+    private final AnswerCounters counters;
+    private final AnswerWindows windows;
+    private final AnswerBitmaps bitmaps;
+
+    @Override
+    @Timed(value = SurveyMetrics.SERVICE_TIMER, histogram = true)
+    public Optional<DistributionResponse> getDistribution(UUID surveyId, UUID questionId) {
+        return getDistribution(surveyId, questionId, List.of());
+    }
+
+    /***
+     * Without filter answers the submission totals are used, otherwise the respondent bitmaps are
+     * intersected. Filter answers of the same question match respondents that gave any of them.
+     */
+    @Override
+    @Timed(value = SurveyMetrics.SERVICE_TIMER, histogram = true)
+    public Optional<DistributionResponse> getDistribution(UUID surveyId, UUID questionId, List<UUID> filter) {
+        return surveyService.getSurvey(surveyId)
+                .flatMap(survey -> survey.getQuestions().stream()
+                        .filter(q -> q.getId().equals(questionId))
+                        .findFirst()
+                        .map(question -> buildDistributionResponse(surveyId, question, filter.isEmpty()
+                                ? question.getAnswers().stream().mapToLong(answer -> counters.count(answer.getId())).toArray()
+                                : bitmaps.count(surveyId, answerIds(question), filterGroups(survey, filter)))));
+    }
+
+    /***
+     * Count the submissions within the window, the window is rounded up to whole buckets and the
+     * response starts at the first bucket counted
+     */
+    @Override
+    @Timed(value = SurveyMetrics.SERVICE_TIMER, histogram = true)
+    public Optional<DistributionResponse> getWindowDistribution(UUID surveyId, UUID questionId, Duration window) {
+        if (window.isNegative() || window.isZero() || window.compareTo(windows.getRetention()) > 0)
+            throw new SurveyRequestValidationException("Window must be positive and at most " + windows.getRetention());
+
+        Instant now = Instant.now();
+        return surveyService.getSurvey(surveyId)
+                .flatMap(survey -> survey.getQuestions().stream()
+                        .filter(q -> q.getId().equals(questionId))
+                        .findFirst()
+                        .map(question -> {
+                            DistributionResponse distribution = buildDistributionResponse(surveyId, question,
+                                    windows.count(answerIds(question), window, now));
+                            distribution.setWindowStart(windows.windowStart(window, now));
+                            return distribution;
+                        }));
+    }
+
+    private static List<UUID> answerIds(QuestionResponse question) {
+        return question.getAnswers().stream().map(AnswerResponse::getId).collect(Collectors.toList());
+    }
+
+    /***
+     * Group the filter answers by their question
+     * @throws SurveyRequestValidationException when a filter answer is not an answer of an active question
+     */
+    private static Collection<Set<UUID>> filterGroups(SurveyResponse survey, List<UUID> filter) {
+        Map<UUID, UUID> questionOfAnswer = new HashMap<>();
+        survey.getQuestions().forEach(question -> question.getAnswers()
+                .forEach(answer -> questionOfAnswer.put(answer.getId(), question.getId())));
+
+        Map<UUID, Set<UUID>> groups = new LinkedHashMap<>();
+        for (UUID answerId : filter) {
+            UUID questionId = questionOfAnswer.get(answerId);
+            if (questionId == null)
+                throw new SurveyRequestValidationException("Filter answer " + answerId + " is not an answer of the survey");
+            groups.computeIfAbsent(questionId, id -> new HashSet<>()).add(answerId);
+        }
+        return groups.values();
+    }
+
+    private DistributionResponse buildDistributionResponse(UUID surveyId, QuestionResponse question, long[] counts) {
+        List<AnswerResponse> answers = question.getAnswers();
+        long total = LongStream.of(counts).sum();
+
+        return DistributionResponse.builder()
+                .surveyId(surveyId)
+                .questionId(question.getId())
+                .total(total)
+                .answers(IntStream.range(0, answers.size())
+                        .mapToObj(i -> buildAnswerDistributionResponse(answers.get(i), counts[i], total))
+                        .collect(Collectors.toList()))
+                .build();
+    }
+
+    private AnswerDistributionResponse buildAnswerDistributionResponse(AnswerResponse answer, long count, long total) {
+        return AnswerDistributionResponse.builder()
+                .id(answer.getId())
+                .name(answer.getName())
+                .count(count)
+                .ratio(total == 0 ? 0 : (double) count / total)
+                .build();
+    }
+}
@@ -0,0 +1,26 @@
+package com.marketlogic.surveychallenge.service;
+
+import com.marketlogic.surveychallenge.repository.SubmittedAnswerEntity;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/***
+ * A validated survey response waiting in the write pipeline. Once written, persisted completes with
+ * the stored response, which is an earlier one when the idempotency key was already stored.
+ */
+@Getter
+@Builder
+public class Submission {
+    private final UUID id;
+    private final UUID surveyId;
+    private final Instant submittedAt;
+    private final String idempotencyKey;
+    private final List<SubmittedAnswerEntity> answers;
+    @Builder.Default
+    private final CompletableFuture<Submission> persisted = new CompletableFuture<>();
+}
@@ -0,0 +1,270 @@
+package com.marketlogic.surveychallenge.service;
+
+import com.marketlogic.surveychallenge.config.SubmissionProperties;
+import com.marketlogic.surveychallenge.repository.ResponseJournal;
+import com.marketlogic.surveychallenge.repository.ResponseKeyEntity;
+import com.marketlogic.surveychallenge.repository.ShardRouter;
+import com.marketlogic.surveychallenge.repository.SubmissionJdbcRepository;
+import com.marketlogic.surveychallenge.repository.SubmittedAnswerEntity;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/***
+ * Drains accepted submissions from a bounded queue and writes them with JDBC batch inserts,
+ * one transaction per batch and shard. A batch is written when it reaches the maximum size or when the
+ * maximum delay after its first submission has passed. Answer counters, windows and respondent
+ * bitmaps are updated once the batch is committed.
+ * <p>
+ * With the response journal enabled every batch is appended to the journal and forced before it is
+ * written to the database, and committed or aborted in the journal once the transaction has ended.
+ * On startup the journal is recovered before the writer starts draining, and its committed batches
+ * are replayed into the responses table, the answer counters, windows and respondent bitmaps when
+ * the table is empty.
+ * <p>
+ * Idempotency keys are stored in the same transaction as the answers, a submission whose key is
+ * already stored completes with the earlier response instead of being written again.
+ */
+@Slf4j
+@Component
+public class SubmissionBatchWriter implements ApplicationRunner {
+    private static final long IDLE_POLL_MILLIS = 100;
+
+    private final SubmissionJdbcRepository repo;
+    private final ShardRouter router;
+    private final AnswerCounters counters;
+    private final AnswerWindows windows;
+    private final AnswerBitmaps bitmaps;
+    private final ResponseJournal journal;
+    private final int maxBatchSize;
+    private final long maxDelayNanos;
+    private final BlockingQueue<Submission> queue;
+    private final Thread worker;
+    private volatile boolean running = true;
+
+    public SubmissionBatchWriter(SubmissionJdbcRepository repo,
+                                 ShardRouter router,
+                                 AnswerCounters counters,
+                                 AnswerWindows windows,
+                                 AnswerBitmaps bitmaps,
+                                 ResponseJournal journal,
+                                 SubmissionProperties properties) {
+        this.repo = repo;
+        this.router = router;
+        this.counters = counters;
+        this.windows = windows;
+        this.bitmaps = bitmaps;
+        this.journal = journal;
+        this.maxBatchSize = properties.getMaxBatchSize();
+        this.maxDelayNanos = properties.getMaxDelay().toNanos();
+        this.queue = new ArrayBlockingQueue<>(properties.getQueueCapacity());
+        this.worker = new Thread(this::run, "submission-writer");
+        this.worker.setDaemon(true);
+    }
+
+    /***
+     * Recover the response journal and start the writer, accepted submissions wait in the queue until then
+     */
+    @Override
+    public void run(ApplicationArguments args) {
+        boolean replay = journal.isEnabled()
+                && router.inEachShard(true, shard -> repo.isEmpty()).stream().allMatch(Boolean::booleanValue);
+        long recovered = journal.recover(maxBatchSize, answers -> {
+            if (replay) {
+                router.partition(answers, SubmittedAnswerEntity::getSurveyId).forEach((shard, shardAnswers) ->
+                        router.inTransaction(shard, false, () -> {
+                            repo.insertAll(shardAnswers);
+                            return null;
+                        }));
+                counters.record(answers);
+                windows.record(answers);
+                bitmaps.record(answers);
+            }
+        });
+        if (replay)
+            log.info("Replayed {} journaled answers", recovered);
+        worker.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        worker.join();
+    }
+
+    /***
+     * Queue a submission without blocking
+     * @param submission - validated submission
+     * @return false when the queue is full or the writer has stopped
+     */
+    public boolean offer(Submission submission) {
+        if (!running || !queue.offer(submission))
+            return false;
+        // the writer may have stopped and failed the queue before this submission arrived
+        return running || !queue.remove(submission);
+    }
+
+    public int queueSize() {
+        return queue.size();
+    }
+
+    private void run() {
+        List<Submission> batch = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Submission first = queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null)
+                    continue;
+
+                batch.add(first);
+                fillBatch(batch);
+                write(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+                queue.drainTo(batch);
+                log.warn("Submission writer interrupted, failing {} pending submissions", batch.size());
+                IllegalStateException stopped = new IllegalStateException("Submission writer was interrupted");
+                batch.forEach(submission -> submission.getPersisted().completeExceptionally(stopped));
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void fillBatch(List<Submission> batch) throws InterruptedException {
+        long deadline = System.nanoTime() + maxDelayNanos;
+        while (batch.size() < maxBatchSize) {
+            queue.drainTo(batch, maxBatchSize - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= maxBatchSize || remaining <= 0)
+                return;
+
+            Submission next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null)
+                return;
+            batch.add(next);
+        }
+    }
+
+    private void write(List<Submission> batch) {
+        router.partition(batch, Submission::getSurveyId).forEach(this::write);
+    }
+
+    /***
+     * Write the submissions of one shard in one transaction, a failure fails only these submissions.
+     * The journaled batch is committed or aborted once the transaction has ended, so the journal
+     * never replays answers the database rejected.
+     */
+    private void write(int shard, List<Submission> batch) {
+        List<SubmittedAnswerEntity> answers = new ArrayList<>();
+        long[] journaled = {-1};
+        List<Submission> stored;
+        try {
+            stored = router.inTransaction(shard, false, () -> {
+                List<Submission> responses = storeKeys(batch);
+                for (int i = 0; i < batch.size(); i++)
+                    if (responses.get(i) == batch.get(i))
+                        answers.addAll(batch.get(i).getAnswers());
+                journaled[0] = journal.append(answers);
+                repo.insertAll(answers);
+                return responses;
+            });
+        } catch (RuntimeException e) {
+            log.error("Failed to write a batch of {} submissions to shard {}", batch.size(), shard, e);
+            abortJournaled(journaled[0]);
+            batch.forEach(submission -> submission.getPersisted().completeExceptionally(e));
+            return;
+        }
+
+        RuntimeException unjournaled = null;
+        try {
+            journal.commit(journaled[0]);
+        } catch (RuntimeException e) {
+            log.error("Failed to commit a journaled batch of {} submissions, the batch is stored but not acknowledged",
+                    batch.size(), e);
+            unjournaled = e;
+        }
+        counters.record(answers);
+        windows.record(answers);
+        bitmaps.record(answers);
+        for (int i = 0; i < batch.size(); i++) {
+            if (unjournaled == null)
+                batch.get(i).getPersisted().complete(stored.get(i));
+            else
+                batch.get(i).getPersisted().completeExceptionally(unjournaled);
+        }
+    }
+
+    /***
+     * Abort a journaled batch, a batch without any marker is skipped on recovery as well
+     */
+    private void abortJournaled(long batch) {
+        if (batch < 0)
+            return;
+        try {
+            journal.abort(batch);
+        } catch (RuntimeException e) {
+            log.error("Failed to abort journaled batch {}", batch, e);
+        }
+    }
+
+    /***
+     * Store the idempotency keys of the batch. A submission whose key is already stored, because
+     * the key was evicted from memory before the client retried, is replaced by the stored response
+     * and its answers are not written.
+     * @return per submission the response stored for it
+     */
+    private List<Submission> storeKeys(List<Submission> batch) {
+        List<Submission> keyed = new ArrayList<>();
+        List<ResponseKeyEntity> keys = new ArrayList<>();
+        for (Submission submission : batch) {
+            if (submission.getIdempotencyKey() == null)
+                continue;
+            keyed.add(submission);
+            keys.add(ResponseKeyEntity.builder()
+                    .responseId(submission.getId())
+                    .surveyId(submission.getSurveyId())
+                    .idempotencyKey(submission.getIdempotencyKey())
+                    .submittedAt(submission.getSubmittedAt())
+                    .build());
+        }
+        if (keyed.isEmpty())
+            return batch;
+
+        boolean[] inserted = repo.insertNewKeys(keys);
+        Map<Submission, Submission> duplicates = new IdentityHashMap<>();
+        for (int i = 0; i < keyed.size(); i++) {
+            if (inserted[i])
+                continue;
+            ResponseKeyEntity original = repo.findKey(keys.get(i).getSurveyId(), keys.get(i).getIdempotencyKey())
+                    .orElseThrow(() -> new IllegalStateException("Idempotency key is neither new nor stored"));
+            duplicates.put(keyed.get(i), Submission.builder()
+                    .id(original.getResponseId())
+                    .surveyId(original.getSurveyId())
+                    .submittedAt(original.getSubmittedAt())
+                    .idempotencyKey(original.getIdempotencyKey())
+                    .answers(List.of())
+                    .build());
+        }
+        if (duplicates.isEmpty())
+            return batch;
+
+        log.debug("Dropped {} submissions with stored idempotency keys", duplicates.size());
+        return batch.stream()
+                .map(submission -> duplicates.getOrDefault(submission, submission))
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,143 @@
+package com.marketlogic.surveychallenge.service;
+
+import com.marketlogic.surveychallenge.exceptions.SubmissionQueueFullException;
+import com.marketlogic.surveychallenge.exceptions.SubmissionValidationException;
+import com.marketlogic.surveychallenge.metrics.SurveyMetrics;
+import com.marketlogic.surveychallenge.repository.ResponseKeyEntity;
+import com.marketlogic.surveychallenge.repository.SubmittedAnswerEntity;
+import com.marketlogic.surveychallenge.repository.UuidV7Generator;
+import com.marketlogic.surveychallenge.rest.dto.QuestionResponse;
+import com.marketlogic.surveychallenge.rest.dto.SubmissionRequest;
+import com.marketlogic.surveychallenge.rest.dto.SubmissionResponse;
+import com.marketlogic.surveychallenge.rest.dto.SubmittedAnswerRequest;
+import com.marketlogic.surveychallenge.rest.dto.SurveyResponse;
+import io.micrometer.core.annotation.Timed;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SubmissionService implements ISubmissionService {
+    private final ISurveyService surveyService;
+    private final SubmissionBatchWriter writer;
+    private final IdempotencyKeys idempotencyKeys;
+
+    @Override
+    @Timed(value = SurveyMetrics.SERVICE_TIMER, histogram = true)
+    public CompletableFuture<Optional<SubmissionResponse>> submit(UUID surveyId, SubmissionRequest submission,
+                                                                  AckMode ack, String idempotencyKey) {
+        if (idempotencyKey == null)
+            return acknowledge(accept(surveyId, submission, null).map(AcceptedSubmission::of), ack);
+
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > ResponseKeyEntity.MAX_KEY_LENGTH)
+            throw new SubmissionValidationException("Idempotency key must have 1 to "
+                    + ResponseKeyEntity.MAX_KEY_LENGTH + " characters");
+
+        return idempotencyKeys.acceptOnce(surveyId, idempotencyKey, fingerprint(submission),
+                        () -> accept(surveyId, submission, idempotencyKey))
+                .thenCompose(accepted -> acknowledge(accepted, ack));
+    }
+
+    /***
+     * Hash of the answers of a submission independent of their order, a valid submission answers
+     * every question once so equal answers make an equal submission
+     */
+    private static long fingerprint(SubmissionRequest submission) {
+        if (submission == null || submission.getAnswers() == null)
+            return 0;
+        long hash = 0;
+        for (SubmittedAnswerRequest answer : submission.getAnswers())
+            hash += mix(mix(hash(answer.getQuestionId())) ^ hash(answer.getAnswerId()));
+        return hash;
+    }
+
+    private static long hash(UUID id) {
+        return id == null ? 0 : mix(id.getMostSignificantBits()) ^ id.getLeastSignificantBits();
+    }
+
+    /***
+     * Finalizer of MurmurHash3, spreads every input bit over the whole hash
+     */
+    private static long mix(long h) {
+        h = (h ^ (h >>> 33)) * 0xff51afd7ed558ccdL;
+        h = (h ^ (h >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return h ^ (h >>> 33);
+    }
+
+    private Optional<Submission> accept(UUID surveyId, SubmissionRequest submission, String idempotencyKey) {
+        Optional<SurveyResponse> survey = surveyService.getSurvey(surveyId);
+        if (survey.isEmpty())
+            return Optional.empty();
+
+        Submission accepted = createSubmission(survey.get(), submission, idempotencyKey);
+        if (!writer.offer(accepted))
+            throw new SubmissionQueueFullException("Submission queue is full");
+        return Optional.of(accepted);
+    }
+
+    private CompletableFuture<Optional<SubmissionResponse>> acknowledge(Optional<AcceptedSubmission> accepted,
+                                                                        AckMode ack) {
+        if (accepted.isEmpty())
+            return CompletableFuture.completedFuture(Optional.empty());
+        if (ack == AckMode.ENQUEUE)
+            return CompletableFuture.completedFuture(Optional.of(accepted.get().getResponse()));
+
+        return accepted.get().getPersisted().thenApply(Optional::of);
+    }
+
+    private Submission createSubmission(SurveyResponse survey, SubmissionRequest submission, String idempotencyKey) {
+        if (submission == null || submission.getAnswers() == null || submission.getAnswers().isEmpty())
+            throw new SubmissionValidationException("Submission has no answers");
+
+        Map<UUID, QuestionResponse> questions = survey.getQuestions().stream()
+                .collect(Collectors.toMap(QuestionResponse::getId, Function.identity()));
+        UUID id = UuidV7Generator.next();
+        // the precision of the stored timestamp, so a replayed response matches the original one
+        Instant submittedAt = Instant.now().truncatedTo(ChronoUnit.MICROS);
+        Set<UUID> answered = new HashSet<>();
+        List<SubmittedAnswerEntity> answers = new ArrayList<>(submission.getAnswers().size());
+        for (SubmittedAnswerRequest answer : submission.getAnswers()) {
+            QuestionResponse question = questions.get(answer.getQuestionId());
+            if (question == null)
+                throw new SubmissionValidationException("Question is not defined in the survey");
+
+            if (!answered.add(question.getId()))
+                throw new SubmissionValidationException("Question is answered more than once");
+
+            if (question.getAnswers().stream().noneMatch(a -> a.getId().equals(answer.getAnswerId())))
+                throw new SubmissionValidationException("Answer is not defined for the question");
+
+            answers.add(SubmittedAnswerEntity.builder()
+                    .id(UuidV7Generator.next())
+                    .responseId(id)
+                    .surveyId(survey.getId())
+                    .questionId(question.getId())
+                    .answerId(answer.getAnswerId())
+                    .submittedAt(submittedAt)
+                    .build());
+        }
+
+        return Submission.builder()
+                .id(id)
+                .surveyId(survey.getId())
+                .submittedAt(submittedAt)
+                .idempotencyKey(idempotencyKey)
+                .answers(answers)
+                .build();
+    }
+}
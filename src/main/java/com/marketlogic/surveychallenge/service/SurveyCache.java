@@ -0,0 +1,93 @@
+package com.marketlogic.surveychallenge.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.marketlogic.surveychallenge.config.SurveyCacheProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.Optional;
+import java.util.UUID;
+
+/***
+ * Bounded W-TinyLFU cache of survey responses keyed by survey id. Entries carry the survey version
+ * they were built from and an entry is only ever replaced by one of the same or a newer version, so
+ * a reader that loaded a survey before a concurrent write cannot overwrite the written state.
+ * There is no expiry, writers replace entries once their transaction has committed.
+ */
+@Component
+public class SurveyCache {
+    public static final String CACHE_NAME = "surveys";
+
+    private final Cache<UUID, CachedSurvey> cache;
+
+    public SurveyCache(SurveyCacheProperties properties, MeterRegistry registry) {
+        Caffeine<Object, Object> builder = Caffeine.newBuilder().recordStats();
+        if (properties.getMaxWeightBytes() > 0)
+            builder.maximumWeight(properties.getMaxWeightBytes())
+                    .weigher((UUID id, CachedSurvey survey) -> survey.getWeight());
+        else
+            builder.maximumSize(properties.getMaxEntries());
+        this.cache = builder.build();
+        CaffeineCacheMetrics.monitor(registry, cache, CACHE_NAME);
+    }
+
+    public Optional<CachedSurvey> get(UUID surveyId) {
+        return Optional.ofNullable(cache.getIfPresent(surveyId));
+    }
+
+    /***
+     * Store a survey unless a newer version is already cached
+     * @param survey - survey with the version it was built from
+     */
+    public void put(CachedSurvey survey) {
+        cache.asMap().merge(survey.getSurvey().getId(), survey,
+                (cached, loaded) -> loaded.getVersion() >= cached.getVersion() ? loaded : cached);
+    }
+
+    /***
+     * Evict a written survey right away and store it once the surrounding transaction commits,
+     * so neither a rolled back write nor the state before the write is served from the cache
+     * @param survey - survey with the version it was written with
+     */
+    public void putAfterCommit(CachedSurvey survey) {
+        cache.invalidate(survey.getSurvey().getId());
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            put(survey);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                put(survey);
+            }
+        });
+    }
+
+    /***
+     * Evict written surveys right away and again once the surrounding transaction commits, dropping
+     * anything a concurrent reader loaded before the commit
+     * @param surveyIds - ids of written surveys
+     */
+    public void invalidateAfterCommit(Collection<UUID> surveyIds) {
+        cache.invalidateAll(surveyIds);
+        if (!TransactionSynchronizationManager.isSynchronizationActive())
+            return;
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                cache.invalidateAll(surveyIds);
+            }
+        });
+    }
+
+    public long size() {
+        return cache.estimatedSize();
+    }
+}
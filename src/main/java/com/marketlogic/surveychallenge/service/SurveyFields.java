@@ -0,0 +1,78 @@
+package com.marketlogic.surveychallenge.service;
+
+import com.marketlogic.surveychallenge.exceptions.SurveyRequestValidationException;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/***
+ * Fields of a survey listing selected with the fields parameter, like id,name or questions.answers.name.
+ * A path selects the field with everything below it, so questions selects the questions with all
+ * their fields and answers. The id is included on every selected level, no levels below the
+ * selected ones are read.
+ */
+@Getter
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class SurveyFields {
+    public static final String ID = "id";
+    public static final List<String> COLUMNS = List.of(ID, "name", "description");
+    public static final SurveyFields ALL = new SurveyFields(Set.copyOf(COLUMNS), Set.copyOf(COLUMNS), Set.copyOf(COLUMNS));
+
+    private final Set<String> survey;
+    private final Set<String> questions;
+    private final Set<String> answers;
+
+    /***
+     * @param fields - comma separated field paths, all fields when null or blank
+     * @return SurveyFields
+     */
+    public static SurveyFields parse(String fields) {
+        if (fields == null || fields.isBlank())
+            return ALL;
+
+        Set<String> survey = new LinkedHashSet<>(List.of(ID));
+        Set<String> questions = new LinkedHashSet<>();
+        Set<String> answers = new LinkedHashSet<>();
+        for (String field : fields.split(",")) {
+            String path = field.trim();
+            if (path.isEmpty())
+                continue;
+
+            String[] parts = path.split("\\.", -1);
+            if (parts.length == 1 && COLUMNS.contains(parts[0]))
+                survey.add(parts[0]);
+            else if (parts[0].equals("questions"))
+                addQuestionFields(path, parts, questions, answers);
+            else
+                throw new SurveyRequestValidationException("Unknown field " + path);
+        }
+        return new SurveyFields(Collections.unmodifiableSet(survey), Collections.unmodifiableSet(questions),
+                Collections.unmodifiableSet(answers));
+    }
+
+    private static void addQuestionFields(String path, String[] parts, Set<String> questions, Set<String> answers) {
+        questions.add(ID);
+        if (parts.length == 1) {
+            questions.addAll(COLUMNS);
+            answers.addAll(COLUMNS);
+        } else if (parts.length == 2 && COLUMNS.contains(parts[1])) {
+            questions.add(parts[1]);
+        } else if (parts[1].equals("answers") && parts.length == 2) {
+            answers.addAll(COLUMNS);
+        } else if (parts[1].equals("answers") && parts.length == 3 && COLUMNS.contains(parts[2])) {
+            answers.add(ID);
+            answers.add(parts[2]);
+        } else {
+            throw new SurveyRequestValidationException("Unknown field " + path);
+        }
+    }
+
+    public boolean isAll() {
+        return survey.containsAll(COLUMNS) && questions.containsAll(COLUMNS) && answers.containsAll(COLUMNS);
+    }
+}
@@ -0,0 +1,364 @@
+package com.marketlogic.surveychallenge.service;
+
+import com.marketlogic.surveychallenge.repository.QuestionEntity;
+import com.marketlogic.surveychallenge.repository.ShardRouter;
+import com.marketlogic.surveychallenge.repository.SurveyEntity;
+import com.marketlogic.surveychallenge.repository.SurveyJdbcRepository;
+import com.marketlogic.surveychallenge.rest.dto.QuestionResponse;
+import com.marketlogic.surveychallenge.rest.dto.SurveyResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+/***
+ * In-memory inverted index over survey names, descriptions and active question texts. Text is
+ * split on anything but letters and digits and lowercased. Every token maps to a posting list of
+ * ints holding a dense document number and the fields the token occurs in, query terms match
+ * tokens by prefix. A survey that is written again gets a new document number and the old one is
+ * dropped from the postings once enough documents are dead.
+ * <p>
+ * Writers update the index after their transaction commits, versions keep an older write from
+ * replacing a newer one. The index is built from the database once the application is ready,
+ * searches are rejected until then.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SurveySearchIndex {
+    static final int NAME = 4;
+    static final int QUESTION = 2;
+    static final int DESCRIPTION = 1;
+    private static final int FIELD_BITS = 3;
+    private static final int BUILD_CHUNK_SIZE = 1000;
+    private static final int MIN_DEAD_FOR_COMPACTION = 1024;
+
+    private final SurveyJdbcRepository jdbcRepo;
+    private final ShardRouter router;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final NavigableMap<String, Postings> terms = new TreeMap<>();
+    private final Map<UUID, Integer> docs = new HashMap<>();
+    private final BitSet live = new BitSet();
+    private UUID[] surveyIds = new UUID[1024];
+    private long[] versions = new long[1024];
+    private int nextDoc;
+    private volatile boolean ready;
+
+    /***
+     * Index every active survey of every shard, tokenizing chunks of the catalog in parallel while
+     * the next chunk is read. The tokenizer threads are dedicated to the build, and at most two
+     * chunks per thread are read ahead of the index, so the build never holds the whole catalog in
+     * memory.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        long start = System.nanoTime();
+        int threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        AtomicInteger count = new AtomicInteger();
+        ExecutorService tokenizers = Executors.newFixedThreadPool(threads, task -> {
+            Thread thread = new Thread(task, "search-index-build-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        Deque<CompletableFuture<List<Document>>> pending = new ArrayDeque<>();
+        int surveys = 0;
+        try {
+            for (int shard = 0; shard < router.count(); shard++) {
+                UUID after = null;
+                for (List<SurveyEntity> chunk = readChunk(shard, null); !chunk.isEmpty(); chunk = readChunk(shard, after)) {
+                    List<SurveyEntity> read = chunk;
+                    pending.add(CompletableFuture.supplyAsync(() -> read.stream()
+                            .filter(survey -> !survey.getDeleted())
+                            .map(Document::of)
+                            .collect(Collectors.toList()), tokenizers));
+                    after = chunk.get(chunk.size() - 1).getId();
+                    if (pending.size() >= 2 * threads)
+                        surveys += addAll(pending.remove().join());
+                }
+            }
+            while (!pending.isEmpty())
+                surveys += addAll(pending.remove().join());
+        } finally {
+            tokenizers.shutdownNow();
+        }
+        ready = true;
+        log.info("Indexed {} surveys with {} terms in {} ms", surveys, termCount(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private int addAll(List<Document> documents) {
+        lock.writeLock().lock();
+        try {
+            documents.forEach(this::add);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return documents.size();
+    }
+
+    private List<SurveyEntity> readChunk(int shard, UUID after) {
+        return router.onShard(shard, () -> jdbcRepo.findAllAfter(after, BUILD_CHUNK_SIZE));
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /***
+     * Index a written survey once the surrounding transaction commits
+     * @param survey - active questions of the survey as written
+     * @param version - survey version written
+     */
+    public void putAfterCommit(SurveyResponse survey, long version) {
+        Document document = Document.of(survey, version);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            put(document);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                put(document);
+            }
+        });
+    }
+
+    /***
+     * Find the best matching surveys. Every query term has to match a token by prefix, surveys
+     * score higher for exact tokens and for matches in the name over question texts over the
+     * description, ties go to the older survey.
+     * @param query - search text
+     * @param limit - maximum number of results
+     * @return survey ids, best match first
+     */
+    public List<UUID> search(String query, int limit) {
+        List<String> queryTerms = tokenize(query).stream().distinct().collect(Collectors.toList());
+        if (queryTerms.isEmpty() || limit <= 0)
+            return List.of();
+
+        lock.readLock().lock();
+        try {
+            Map<Integer, Integer> scores = null;
+            for (String term : queryTerms) {
+                scores = score(term, scores);
+                if (scores.isEmpty())
+                    return List.of();
+            }
+
+            PriorityQueue<Map.Entry<Integer, Integer>> top = new PriorityQueue<>(limit + 1, Map.Entry
+                    .<Integer, Integer>comparingByValue()
+                    .thenComparing(Map.Entry.<Integer, Integer>comparingByKey().reversed()));
+            for (Map.Entry<Integer, Integer> entry : scores.entrySet()) {
+                top.add(entry);
+                if (top.size() > limit)
+                    top.poll();
+            }
+            UUID[] result = new UUID[top.size()];
+            for (int i = result.length - 1; i >= 0; i--)
+                result[i] = surveyIds[top.poll().getKey()];
+            return Arrays.asList(result);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return docs.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null)
+            return tokens;
+
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean part = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (part && start < 0) {
+                start = i;
+            } else if (!part && start >= 0) {
+                tokens.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    private Map<Integer, Integer> score(String term, Map<Integer, Integer> candidates) {
+        Map<Integer, Integer> scores = new HashMap<>();
+        for (Map.Entry<String, Postings> entry : terms.subMap(term, true, term + Character.MAX_VALUE, false).entrySet()) {
+            int boost = entry.getKey().length() == term.length() ? 2 : 1;
+            Postings postings = entry.getValue();
+            for (int i = 0; i < postings.size; i++) {
+                int doc = postings.entries[i] >>> FIELD_BITS;
+                if (!live.get(doc) || candidates != null && !candidates.containsKey(doc))
+                    continue;
+                int score = boost * (postings.entries[i] & ((1 << FIELD_BITS) - 1));
+                scores.merge(doc, candidates == null ? score : candidates.get(doc) + score, Math::max);
+            }
+        }
+        return scores;
+    }
+
+    private void put(Document document) {
+        lock.writeLock().lock();
+        try {
+            add(document);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void add(Document document) {
+        Integer previous = docs.get(document.surveyId);
+        if (previous != null) {
+            if (versions[previous] >= document.version)
+                return;
+            live.clear(previous);
+        }
+
+        if (nextDoc == surveyIds.length) {
+            surveyIds = Arrays.copyOf(surveyIds, nextDoc * 2);
+            versions = Arrays.copyOf(versions, nextDoc * 2);
+        }
+        int doc = nextDoc++;
+        surveyIds[doc] = document.surveyId;
+        versions[doc] = document.version;
+        live.set(doc);
+        docs.put(document.surveyId, doc);
+        document.fields.forEach((token, fields) ->
+                terms.computeIfAbsent(token, t -> new Postings()).add(doc << FIELD_BITS | fields));
+
+        int dead = nextDoc - docs.size();
+        if (dead >= MIN_DEAD_FOR_COMPACTION && dead > docs.size())
+            compact();
+    }
+
+    /***
+     * Renumber the live documents densely and drop dead entries and empty terms
+     */
+    private void compact() {
+        int[] renumbered = new int[nextDoc];
+        int live = 0;
+        for (int doc = 0; doc < nextDoc; doc++) {
+            if (this.live.get(doc)) {
+                renumbered[doc] = live;
+                surveyIds[live] = surveyIds[doc];
+                versions[live] = versions[doc];
+                docs.put(surveyIds[live], live);
+                live++;
+            } else {
+                renumbered[doc] = -1;
+            }
+        }
+        Arrays.fill(surveyIds, live, nextDoc, null);
+        nextDoc = live;
+        this.live.clear();
+        this.live.set(0, live);
+
+        for (Iterator<Postings> postings = terms.values().iterator(); postings.hasNext(); ) {
+            Postings list = postings.next();
+            list.retain(renumbered);
+            if (list.size == 0)
+                postings.remove();
+        }
+    }
+
+    private int termCount() {
+        lock.readLock().lock();
+        try {
+            return terms.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /***
+     * Growable sorted array of document numbers shifted left by FIELD_BITS and or-ed with field flags
+     */
+    private static final class Postings {
+        private int[] entries = new int[2];
+        private int size;
+
+        void add(int entry) {
+            if (size == entries.length)
+                entries = Arrays.copyOf(entries, size + (size >> 1) + 1);
+            entries[size++] = entry;
+        }
+
+        void retain(int[] renumbered) {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                int doc = renumbered[entries[i] >>> FIELD_BITS];
+                if (doc >= 0)
+                    entries[kept++] = doc << FIELD_BITS | entries[i] & ((1 << FIELD_BITS) - 1);
+            }
+            size = kept;
+            if (entries.length > 2 * kept + 2)
+                entries = Arrays.copyOf(entries, kept);
+        }
+    }
+
+    /***
+     * Tokens of one survey version with the fields they occur in
+     */
+    @RequiredArgsConstructor
+    private static final class Document {
+        private final UUID surveyId;
+        private final long version;
+        private final Map<String, Integer> fields;
+
+        static Document of(SurveyEntity survey) {
+            return of(survey.getId(), survey.getVersion(), survey.getName(), survey.getDescription(),
+                    survey.getQuestions().stream()
+                            .filter(question -> !question.getDeleted())
+                            .map(QuestionEntity::getName)
+                            .collect(Collectors.toList()));
+        }
+
+        static Document of(SurveyResponse survey, long version) {
+            return of(survey.getId(), version, survey.getName(), survey.getDescription(),
+                    survey.getQuestions() == null ? List.of() : survey.getQuestions().stream()
+                            .map(QuestionResponse::getName)
+                            .collect(Collectors.toList()));
+        }
+
+        private static Document of(UUID surveyId, long version, String name, String description, List<String> questions) {
+            Map<String, Integer> fields = new HashMap<>();
+            tokenize(name).forEach(token -> fields.merge(token, NAME, (a, b) -> a | b));
+            tokenize(description).forEach(token -> fields.merge(token, DESCRIPTION, (a, b) -> a | b));
+            questions.forEach(question -> tokenize(question).forEach(token -> fields.merge(token, QUESTION, (a, b) -> a | b)));
+            return new Document(surveyId, version, fields);
+        }
+    }
+}
@@ -1,65 +1,635 @@
 package com.marketlogic.surveychallenge.service;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.marketlogic.surveychallenge.config.SurveyDocumentProperties;
+import com.marketlogic.surveychallenge.config.SurveyImportProperties;
+import com.marketlogic.surveychallenge.exceptions.ServerBusyException;
 import com.marketlogic.surveychallenge.exceptions.SurveyRequestValidationException;
+import com.marketlogic.surveychallenge.metrics.SurveyMetrics;
 import com.marketlogic.surveychallenge.repository.AnswerEntity;
 import com.marketlogic.surveychallenge.repository.ISurveyRepository;
 import com.marketlogic.surveychallenge.repository.QuestionEntity;
+import com.marketlogic.surveychallenge.repository.ShardKey;
+import com.marketlogic.surveychallenge.repository.ShardRouter;
+import com.marketlogic.surveychallenge.repository.SurveyDocument;
+import com.marketlogic.surveychallenge.repository.SurveyDocumentJdbcRepository;
 import com.marketlogic.surveychallenge.repository.SurveyEntity;
+import com.marketlogic.surveychallenge.repository.SurveyJdbcRepository;
+import com.marketlogic.surveychallenge.repository.SurveyVersion;
+import com.marketlogic.surveychallenge.repository.UuidV7Generator;
 import com.marketlogic.surveychallenge.rest.dto.AnswerRequest;
 import com.marketlogic.surveychallenge.rest.dto.AnswerResponse;
+import com.marketlogic.surveychallenge.rest.dto.BulkImportFailure;
+import com.marketlogic.surveychallenge.rest.dto.BulkImportResponse;
+import com.marketlogic.surveychallenge.rest.dto.DisableQuestionsRequest;
+import com.marketlogic.surveychallenge.rest.dto.DisableQuestionsResponse;
+import com.marketlogic.surveychallenge.rest.dto.DocumentRebuildResponse;
 import com.marketlogic.surveychallenge.rest.dto.QuestionRequest;
 import com.marketlogic.surveychallenge.rest.dto.QuestionResponse;
+import com.marketlogic.surveychallenge.rest.dto.SurveyPageResponse;
 import com.marketlogic.surveychallenge.rest.dto.SurveyRequest;
 import com.marketlogic.surveychallenge.rest.dto.SurveyResponse;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import javax.persistence.Tuple;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class SurveyService implements ISurveyService {
+    public static final int MAX_PAGE_SIZE = 1000;
+    public static final int STREAM_CHUNK_SIZE = 100;
+    /***
+     * Order of ids in the database, which compares UUIDs as unsigned numbers unlike UUID.compareTo
+     */
+    static final Comparator<UUID> ID_ORDER = Comparator
+            .comparing(UUID::getMostSignificantBits, Long::compareUnsigned)
+            .thenComparing(UUID::getLeastSignificantBits, Long::compareUnsigned);
+
     private final ISurveyRepository repo;
+    private final SurveyJdbcRepository jdbcRepo;
+    private final EntityManager entityManager;
+    private final SurveyCache cache;
+    private final CatalogVersion catalogVersion;
+    private final ObjectMapper objectMapper;
+    private final SurveyImportProperties importProperties;
+    private final SurveySearchIndex searchIndex;
+    private final ShardRouter router;
+    private final SurveyDocumentJdbcRepository documents;
+    private final SurveyDocumentProperties documentProperties;
+    private ExecutorService rebuildWorkers;
+
+    @PostConstruct
+    public void startRebuildWorkers() {
+        AtomicInteger threads = new AtomicInteger();
+        rebuildWorkers = Executors.newFixedThreadPool(Math.max(documentProperties.getRebuildThreads(), 1), task -> {
+            Thread thread = new Thread(task, "survey-document-rebuild-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void stopRebuildWorkers() {
+        rebuildWorkers.shutdownNow();
+    }
+
+    /***
+     * Return a page of active surveys with the selected fields. Full surveys are a range scan of
+     * the survey documents, otherwise only the selected columns are queried and questions or
+     * answers are not read at all unless selected. Every shard reads a full page after the cursor
+     * in parallel, the page is the first surveys of their merge.
+     * @param after - keyset cursor, null for the first page
+     * @param limit - page size, capped at MAX_PAGE_SIZE
+     * @param fields - selected fields
+     * @return SurveyPageResponse
+     */
+    @Override
+    @Timed(value = SurveyMetrics.SERVICE_TIMER, histogram = true)
+    public SurveyPageResponse getSurveys(UUID after, int limit, SurveyFields fields) {
+        if (fields.isAll()) {
+            EncodedSurveyPage page = getEncodedSurveys(after, limit);
+            return SurveyPageResponse.builder()
+                    .surveys(page.getSurveys().stream()
+                            .map(document -> CachedSurvey.decode(document.getJson(), objectMapper))
+                            .collect(Collectors.toList()))
+                    .nextCursor(page.getNextCursor())
+                    .build();
+        }
+
+        int size = pageSize(limit);
+        List<List<SurveyResponse>> shardPages = router.inEachShard(true, shard ->
+                new ArrayList<>(mapSurveyFields(repo.findSurveyColumns(after, size, fields.getSurvey()), fields).values()));
+        List<SurveyResponse> page = merge(shardPages, SurveyResponse::getId, size);
+
+        return SurveyPageResponse.builder()
+                .surveys(page)
+                .nextCursor(page.size() == size ? page.get(size - 1).getId() : null)
+                .build();
+    }
 
+    /***
+     * Return a page of full active surveys as their stored documents, so JSON responses write the
+     * documents through without decoding and encoding them again
+     * @param after - keyset cursor, null for the first page
+     * @param limit - page size, capped at MAX_PAGE_SIZE
+     * @return EncodedSurveyPage
+     */
     @Override
-    public List<SurveyResponse> getSurveys() {
-        return repo.findByDeletedIsFalse().stream()
-                .map(this::buildSurveyResponse)
+    @Timed(value = SurveyMetrics.SERVICE_TIMER, histogram = true)
+    public EncodedSurveyPage getEncodedSurveys(UUID after, int limit) {
+        int size = pageSize(limit);
+        List<SurveyDocument> page = merge(router.inEachShard(true, shard -> documents.findAfter(after, size)),
+                SurveyDocument::getSurveyId, size);
+        return new EncodedSurveyPage(page, page.size() == size ? page.get(size - 1).getSurveyId() : null);
+    }
+
+    private static int pageSize(int limit) {
+        return Math.min(Math.max(limit, 1), MAX_PAGE_SIZE);
+    }
+
+    /***
+     * First surveys of the pages of all shards in database id order
+     */
+    private static <T> List<T> merge(List<List<T>> shardPages, Function<T, UUID> id, int size) {
+        if (shardPages.size() == 1)
+            return shardPages.get(0);
+        return shardPages.stream()
+                .flatMap(List::stream)
+                .sorted(Comparator.comparing(id, ID_ORDER))
+                .limit(size)
                 .collect(Collectors.toList());
     }
 
+    /***
+     * Search active surveys by name, description and question text in the in-memory index. The
+     * database is only queried to hydrate the matching page, which has no cursor.
+     * @param query - search text, every term is matched by prefix
+     * @param limit - number of best matches, capped at MAX_PAGE_SIZE
+     * @param fields - selected fields
+     * @return SurveyPageResponse with the best match first
+     */
+    @Override
+    @Timed(value = SurveyMetrics.SERVICE_TIMER, histogram = true)
+    public SurveyPageResponse searchSurveys(String query, int limit, SurveyFields fields) {
+        if (!searchIndex.isReady())
+            throw new ServerBusyException("Search index is being built");
+
+        List<UUID> ids = searchIndex.search(query, pageSize(limit));
+        if (ids.isEmpty())
+            return SurveyPageResponse.builder().build();
+
+        Map<Integer, List<UUID>> idsByShard = router.partition(ids, id -> id);
+        Map<UUID, SurveyResponse> surveys = new HashMap<>();
+        router.inEachShard(true, shard -> idsByShard.containsKey(shard)
+                        ? getSurveysById(idsByShard.get(shard), fields)
+                        : Map.<UUID, SurveyResponse>of())
+                .forEach(surveys::putAll);
+
+        return SurveyPageResponse.builder()
+                .surveys(ids.stream()
+                        .map(surveys::get)
+                        .filter(Objects::nonNull)
+                        .collect(Collectors.toList()))
+                .build();
+    }
+
+    private Map<UUID, SurveyResponse> getSurveysById(List<UUID> ids, SurveyFields fields) {
+        if (!fields.isAll())
+            return mapSurveyFields(repo.findSurveyColumns(ids, fields.getSurvey()), fields);
+
+        return documents.findAllById(ids).stream().collect(Collectors.toMap(SurveyDocument::getSurveyId,
+                document -> CachedSurvey.decode(document.getJson(), objectMapper)));
+    }
+
+    private Map<UUID, SurveyResponse> mapSurveyFields(List<Tuple> rows, SurveyFields fields) {
+        Map<UUID, SurveyResponse> surveys = new LinkedHashMap<>();
+        for (Tuple row : rows) {
+            SurveyResponse survey = SurveyResponse.builder()
+                    .id(row.get(SurveyFields.ID, UUID.class))
+                    .name(column(row, fields.getSurvey(), "name"))
+                    .description(column(row, fields.getSurvey(), "description"))
+                    .build();
+            surveys.put(survey.getId(), survey);
+        }
+
+        if (!surveys.isEmpty() && !fields.getQuestions().isEmpty()) {
+            Map<UUID, QuestionResponse> questions = new HashMap<>();
+            surveys.values().forEach(survey -> survey.setQuestions(new ArrayList<>()));
+            for (Tuple row : repo.findQuestionColumns(surveys.keySet(), fields.getQuestions())) {
+                QuestionResponse question = QuestionResponse.builder()
+                        .id(row.get(SurveyFields.ID, UUID.class))
+                        .name(column(row, fields.getQuestions(), "name"))
+                        .description(column(row, fields.getQuestions(), "description"))
+                        .answers(fields.getAnswers().isEmpty() ? null : new ArrayList<>())
+                        .build();
+                surveys.get(row.get("surveyId", UUID.class)).getQuestions().add(question);
+                questions.put(question.getId(), question);
+            }
+
+            if (!questions.isEmpty() && !fields.getAnswers().isEmpty())
+                for (Tuple row : repo.findAnswerColumns(surveys.keySet(), fields.getAnswers()))
+                    questions.get(row.get("questionId", UUID.class)).getAnswers().add(AnswerResponse.builder()
+                            .id(row.get(SurveyFields.ID, UUID.class))
+                            .name(column(row, fields.getAnswers(), "name"))
+                            .description(column(row, fields.getAnswers(), "description"))
+                            .build());
+        }
+        return surveys;
+    }
+
+    private static String column(Tuple row, Set<String> columns, String column) {
+        return columns.contains(column) ? row.get(column, String.class) : null;
+    }
+
+    /***
+     * Walk all active surveys over a database cursor and hand each one to the sink as soon as
+     * it is mapped. Surveys are hydrated and detached in chunks, so memory use does not depend
+     * on the size of the catalog. Shards are walked one after the other, surveys are in id order
+     * within a shard.
+     * @param sink - consumer of mapped surveys
+     */
+    @Override
+    @Timed(value = SurveyMetrics.SERVICE_TIMER, histogram = true)
+    public void streamSurveys(Consumer<SurveyResponse> sink) {
+        for (int shard = 0; shard < router.count(); shard++)
+            router.inTransaction(shard, true, () -> {
+                List<SurveyEntity> chunk = new ArrayList<>(STREAM_CHUNK_SIZE);
+                try (Stream<SurveyEntity> surveys = repo.streamByDeletedIsFalse()) {
+                    surveys.forEach(survey -> {
+                        chunk.add(survey);
+                        if (chunk.size() == STREAM_CHUNK_SIZE)
+                            streamChunk(chunk, sink);
+                    });
+                }
+                streamChunk(chunk, sink);
+                return null;
+            });
+    }
+
+    private void streamChunk(List<SurveyEntity> chunk, Consumer<SurveyResponse> sink) {
+        fetchSurveyGraph(chunk);
+        chunk.forEach(survey -> sink.accept(buildSurveyResponse(survey)));
+        chunk.clear();
+        entityManager.clear();
+    }
+
+    @Override
+    @Timed(value = SurveyMetrics.SERVICE_TIMER, histogram = true)
+    public Optional<SurveyResponse> getSurvey(@ShardKey UUID surveyId) {
+        return getEncodedSurvey(surveyId).map(CachedSurvey::getSurvey);
+    }
+
+    /***
+     * Survey from the cache, or from its survey document with the stored JSON as its encoding.
+     * Deleted surveys have no document and are read from the survey tables.
+     */
+    @Override
+    @Timed(value = SurveyMetrics.SERVICE_TIMER, histogram = true)
+    public Optional<CachedSurvey> getEncodedSurvey(@ShardKey UUID surveyId) {
+        Optional<CachedSurvey> cached = cache.get(surveyId);
+        if (cached.isPresent())
+            return cached;
+
+        Optional<CachedSurvey> loaded = documents.findById(surveyId)
+                .map(document -> new CachedSurvey(document, objectMapper))
+                .or(() -> router.inTransaction(router.shardOf(surveyId), true, () -> repo.findById(surveyId)
+                        .map(survey -> {
+                            fetchSurveyGraph(List.of(survey));
+                            return renderSurvey(survey);
+                        })));
+        loaded.ifPresent(cache::put);
+        return loaded;
+    }
+
+    /***
+     * Entity tag of the current survey version, taken from the cache or aggregated by the
+     * database without loading the survey
+     * @param surveyId - survey Id
+     * @return Optional<String>
+     */
+    @Override
+    @Timed(value = SurveyMetrics.SERVICE_TIMER, histogram = true)
+    public Optional<String> getSurveyETag(@ShardKey UUID surveyId) {
+        Optional<CachedSurvey> cached = cache.get(surveyId);
+        if (cached.isPresent())
+            return cached.map(CachedSurvey::getEtag);
+
+        return repo.findSurveyVersion(surveyId).map(SurveyVersion::toETag);
+    }
+
     @Override
-    public Optional<SurveyResponse> getSurvey(UUID surveyId) {
-        return repo.findById(surveyId).map(this::buildSurveyResponse);
+    public String getCatalogETag() {
+        return catalogVersion.getETag();
     }
 
+    /***
+     * Insert the survey and its survey document with JDBC batches on the shard of its new id
+     */
     @Override
+    @Timed(value = SurveyMetrics.SERVICE_TIMER, histogram = true)
     public Optional<SurveyResponse> newSurvey(SurveyRequest survey) {
-        SurveyEntity entity = createSurveyEntity(survey);
-        return Optional.of(buildSurveyResponse(repo.save(entity)));
+        SurveyEntity entity = assignIds(createSurveyEntity(survey));
+        return router.inTransaction(router.shardOf(entity.getId()), false, () -> {
+            jdbcRepo.insertAll(List.of(entity));
+            SurveyResponse response = buildSurveyResponse(entity);
+            CachedSurvey written = new CachedSurvey(SurveyVersion.of(entity), response, objectMapper);
+            documents.upsertAll(List.of(written.toDocument()));
+            cache.putAfterCommit(written);
+            searchIndex.putAfterCommit(response, entity.getVersion());
+            catalogVersion.incrementAfterCommit();
+            return Optional.of(response);
+        });
     }
 
+    /***
+     * Mark the question as deleted with a single update and bump the survey version. The response
+     * is derived from the cached survey when it holds the version right before this update, the
+     * survey is loaded only otherwise.
+     */
     @Override
-    public Optional<SurveyResponse> deleteSurveyQuestion(UUID surveyId, UUID questionId) {
-        Optional<SurveyEntity> survey = repo.findById(surveyId);
-        if (survey.isEmpty())
+    @Timed(value = SurveyMetrics.SERVICE_TIMER, histogram = true)
+    @Transactional
+    public Optional<SurveyResponse> deleteSurveyQuestion(@ShardKey UUID surveyId, UUID questionId) {
+        if (repo.disableQuestion(surveyId, questionId) == 0)
             return Optional.empty();
 
-        Optional<QuestionEntity> question = survey.get().getQuestions().stream()
-                .filter(q -> q.getId().equals(questionId))
-                .findFirst();
-        if (question.isEmpty())
-            return Optional.empty();
+        repo.incrementVersion(surveyId);
+        SurveyVersion version = repo.findSurveyVersion(surveyId).orElseThrow();
+
+        Optional<CachedSurvey> cached = cache.get(surveyId)
+                .filter(survey -> survey.getVersion() == version.getSurvey() - 1);
+        SurveyResponse response = cached.isPresent()
+                ? withoutQuestion(cached.get().getSurvey(), questionId)
+                : buildSurveyResponse(repo.findById(surveyId).orElseThrow());
+        CachedSurvey written = new CachedSurvey(version, response, objectMapper);
+        documents.upsertAll(List.of(written.toDocument()));
+        cache.putAfterCommit(written);
+        searchIndex.putAfterCommit(response, version.getSurvey());
+        catalogVersion.incrementAfterCommit();
+        return Optional.of(response);
+    }
+
+    /***
+     * Disable the questions on every shard in parallel, one transaction per shard
+     */
+    @Override
+    @Timed(value = SurveyMetrics.SERVICE_TIMER, histogram = true)
+    public DisableQuestionsResponse disableQuestions(DisableQuestionsRequest request) {
+        if (request == null || request.getQuestionIds() == null || request.getQuestionIds().isEmpty())
+            throw new SurveyRequestValidationException("Question ids are not defined");
+
+        Set<UUID> questionIds = new HashSet<>(request.getQuestionIds());
+        DisableQuestionsResponse response = DisableQuestionsResponse.builder().build();
+        for (DisableQuestionsResponse shard : router.inEachShard(false, shard -> disableShardQuestions(questionIds))) {
+            response.setQuestions(response.getQuestions() + shard.getQuestions());
+            response.getSurveyIds().addAll(shard.getSurveyIds());
+        }
+        return response;
+    }
+
+    private DisableQuestionsResponse disableShardQuestions(Set<UUID> questionIds) {
+        List<UUID> surveyIds = repo.findSurveyIdsByQuestionIds(questionIds);
+        if (surveyIds.isEmpty())
+            return DisableQuestionsResponse.builder().build();
+
+        int questions = repo.disableQuestions(questionIds);
+        repo.incrementVersions(surveyIds);
+        List<SurveyEntity> written = repo.findAllById(surveyIds);
+        fetchSurveyGraph(written);
+        List<SurveyDocument> rendered = renderDocuments(written);
+        documents.upsertAll(rendered);
+        rendered.forEach(document -> cache.putAfterCommit(new CachedSurvey(document, objectMapper)));
+        written.stream()
+                .filter(SurveyEntity::getDeleted)
+                .forEach(survey -> cache.putAfterCommit(renderSurvey(survey)));
+        catalogVersion.incrementAfterCommit();
+
+        return DisableQuestionsResponse.builder()
+                .questions(questions)
+                .surveyIds(surveyIds)
+                .build();
+    }
+
+    /***
+     * Import a JSON array or newline delimited JSON objects of surveys. Items are parsed one at a
+     * time, validated like newSurvey and inserted with JDBC batches, committing every chunk. An
+     * invalid item or a failed chunk is reported without aborting the rest of the import.
+     * @param body - request body
+     * @return BulkImportResponse
+     */
+    @Override
+    @Timed(value = SurveyMetrics.SERVICE_TIMER, histogram = true)
+    public BulkImportResponse importSurveys(InputStream body) throws IOException {
+        BulkImportResponse response = BulkImportResponse.builder().build();
+        List<SurveyEntity> chunk = new ArrayList<>(importProperties.getChunkSize());
+        List<Integer> indexes = new ArrayList<>(importProperties.getChunkSize());
+        int index = 0;
+        try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.START_ARRAY)
+                token = parser.nextToken();
+
+            for (; token != null && token != JsonToken.END_ARRAY; token = parser.nextToken(), index++) {
+                JsonNode item = parser.readValueAsTree();
+                try {
+                    chunk.add(assignIds(createSurveyEntity(objectMapper.treeToValue(item, SurveyRequest.class))));
+                    indexes.add(index);
+                } catch (JsonProcessingException e) {
+                    addImportFailure(response, index, e.getOriginalMessage());
+                } catch (RuntimeException e) {
+                    addImportFailure(response, index, e.getMessage());
+                }
+
+                if (chunk.size() == importProperties.getChunkSize())
+                    importChunk(chunk, indexes, response);
+            }
+        } catch (JsonProcessingException e) {
+            addImportFailure(response, index, "Malformed JSON: " + e.getOriginalMessage());
+        }
+        importChunk(chunk, indexes, response);
+
+        response.getFailures().sort(Comparator.comparingInt(BulkImportFailure::getIndex));
+        return response;
+    }
+
+    /***
+     * Insert the chunk with one transaction per shard, a failed shard fails only its own surveys
+     */
+    private void importChunk(List<SurveyEntity> chunk, List<Integer> indexes, BulkImportResponse response) {
+        if (chunk.isEmpty())
+            return;
+
+        List<Integer> positions = IntStream.range(0, chunk.size()).boxed().collect(Collectors.toList());
+        router.partition(positions, i -> chunk.get(i).getId()).forEach((shard, shardPositions) -> {
+            List<SurveyEntity> surveys = shardPositions.stream().map(chunk::get).collect(Collectors.toList());
+            try {
+                router.inTransaction(shard, false, () -> {
+                    insertSurveys(surveys);
+                    catalogVersion.incrementAfterCommit();
+                    return null;
+                });
+                response.setImported(response.getImported() + surveys.size());
+            } catch (DataAccessException e) {
+                log.warn("Failed to import {} surveys on shard {}", surveys.size(), shard, e);
+                shardPositions.forEach(i -> addImportFailure(response, indexes.get(i), "Survey could not be stored"));
+            }
+        });
+        chunk.clear();
+        indexes.clear();
+    }
+
+    /***
+     * Insert surveys with their questions, answers and the documents of the active ones using JDBC
+     * batches. Ids must be assigned, the caller owns the transaction on the shard of the surveys.
+     * @param surveys - surveys with all their questions and answers
+     */
+    @Override
+    @Timed(value = SurveyMetrics.SERVICE_TIMER, histogram = true)
+    public void insertSurveys(List<SurveyEntity> surveys) {
+        jdbcRepo.insertAll(surveys);
+        documents.upsertAll(renderDocuments(surveys));
+    }
+
+    /***
+     * Regenerate the survey documents from the survey tables. Each shard is read in chunks on the
+     * calling thread while up to rebuildThreads workers, shared by all rebuilds, render and write
+     * the chunks read so far, one transaction per chunk. Documents of deleted surveys are removed
+     * once a shard is done.
+     * @return DocumentRebuildResponse
+     */
+    @Override
+    @Timed(value = SurveyMetrics.SERVICE_TIMER, histogram = true)
+    public DocumentRebuildResponse rebuildDocuments() {
+        long start = System.nanoTime();
+        int threads = Math.max(documentProperties.getRebuildThreads(), 1);
+        long surveys = 0;
+        long removed = 0;
+        for (int shard = 0; shard < router.count(); shard++) {
+            int s = shard;
+            Deque<CompletableFuture<Integer>> pending = new ArrayDeque<>();
+            UUID after = null;
+            for (List<SurveyEntity> chunk = readChunk(shard, null); !chunk.isEmpty(); chunk = readChunk(shard, after)) {
+                List<SurveyEntity> read = chunk;
+                pending.add(CompletableFuture.supplyAsync(() -> router.inTransaction(s, false, () -> {
+                    List<SurveyDocument> rendered = renderDocuments(read);
+                    documents.upsertAll(rendered);
+                    return rendered.size();
+                }), rebuildWorkers));
+                if (pending.size() > threads)
+                    surveys += join(pending.poll());
+                after = chunk.get(chunk.size() - 1).getId();
+            }
+            while (!pending.isEmpty())
+                surveys += join(pending.poll());
+            removed += router.inTransaction(shard, false, documents::deleteWithoutSurvey);
+        }
+
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        log.info("Rebuilt {} survey documents and removed {} in {} ms", surveys, removed, millis);
+        return DocumentRebuildResponse.builder()
+                .surveys(surveys)
+                .removed(removed)
+                .durationMillis(millis)
+                .build();
+    }
+
+    private List<SurveyEntity> readChunk(int shard, UUID after) {
+        return router.onShard(shard, () -> jdbcRepo.findAllAfter(after, documentProperties.getRebuildChunkSize()));
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw e;
+        }
+    }
+
+    /***
+     * Render the documents of the active surveys and index them once the surrounding transaction
+     * commits, the search index skips versions it already holds
+     * @param surveys - surveys with all their questions and answers
+     * @return documents of the active surveys
+     */
+    private List<SurveyDocument> renderDocuments(List<SurveyEntity> surveys) {
+        List<SurveyDocument> rendered = new ArrayList<>(surveys.size());
+        for (SurveyEntity survey : surveys) {
+            if (survey.getDeleted())
+                continue;
+            SurveyResponse response = buildSurveyResponse(survey);
+            rendered.add(new SurveyDocument(survey.getId(), SurveyVersion.of(survey), CachedSurvey.encode(response, objectMapper)));
+            searchIndex.putAfterCommit(response, survey.getVersion());
+        }
+        return rendered;
+    }
+
+    /***
+     * Render a survey that has no document, the caller loaded its questions and answers
+     */
+    private CachedSurvey renderSurvey(SurveyEntity survey) {
+        return new CachedSurvey(SurveyVersion.of(survey), buildSurveyResponse(survey), objectMapper);
+    }
+
+    private static void addImportFailure(BulkImportResponse response, int index, String message) {
+        response.setFailed(response.getFailed() + 1);
+        response.getFailures().add(BulkImportFailure.builder()
+                .index(index)
+                .message(message)
+                .build());
+    }
+
+    private static SurveyEntity assignIds(SurveyEntity survey) {
+        survey.setId(UuidV7Generator.next());
+        for (QuestionEntity question : survey.getQuestions()) {
+            question.setId(UuidV7Generator.next());
+            for (AnswerEntity answer : question.getAnswers())
+                answer.setId(UuidV7Generator.next());
+        }
+        return survey;
+    }
+
+    private SurveyResponse withoutQuestion(SurveyResponse survey, UUID questionId) {
+        return SurveyResponse.builder()
+                .id(survey.getId())
+                .name(survey.getName())
+                .description(survey.getDescription())
+                .questions(survey.getQuestions().stream()
+                        .filter(q -> !q.getId().equals(questionId))
+                        .collect(Collectors.toList()))
+                .build();
+    }
 
-        question.get().setDeleted(true);
-        repo.save(survey.get());
+    /***
+     * Load questions and answers of the given surveys with a fixed number of queries
+     * instead of walking the lazy collections one survey at a time
+     * @param surveys - surveys attached to the current persistence context
+     */
+    private void fetchSurveyGraph(List<SurveyEntity> surveys) {
+        if (surveys.isEmpty())
+            return;
 
-        return getSurvey(surveyId);
+        repo.fetchQuestions(surveys);
+        repo.fetchAnswers(surveys);
     }
 
     protected SurveyResponse buildSurveyResponse(SurveyEntity entity) {
@@ -94,7 +664,7 @@ public class SurveyService implements ISurveyService {
                 .build();
     }
 
-    private SurveyEntity createSurveyEntity(SurveyRequest survey) {
+    SurveyEntity createSurveyEntity(SurveyRequest survey) {
         if (survey == null)
             throw new SurveyRequestValidationException("Survey is not defined");
 
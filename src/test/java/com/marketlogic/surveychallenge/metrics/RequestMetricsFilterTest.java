@@ -0,0 +1,118 @@
+package com.marketlogic.surveychallenge.metrics;
+
+import com.marketlogic.surveychallenge.rest.dto.AnswerRequest;
+import com.marketlogic.surveychallenge.rest.dto.QuestionRequest;
+import com.marketlogic.surveychallenge.rest.dto.SurveyRequest;
+import com.marketlogic.surveychallenge.service.ISurveyService;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.autoconfigure.metrics.MetricsProperties;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/***
+ * Runs in a context of its own, requests of the other web tests would fill the slow request log
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:metrics-tests;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000")
+@AutoConfigureMockMvc
+class RequestMetricsFilterTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ISurveyService surveyService;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @Autowired
+    private SlowRequestsEndpoint slowRequestsEndpoint;
+
+    @Autowired
+    private MetricsProperties metricsProperties;
+
+    private SurveyRequest surveyWithQuestions(int questions, int answers) {
+        return SurveyRequest.builder()
+                .name("Test survey name " + UUID.randomUUID())
+                .questions(IntStream.range(0, questions)
+                        .mapToObj(q -> QuestionRequest.builder()
+                                .name("Test question name " + q)
+                                .answers(IntStream.range(0, answers)
+                                        .mapToObj(a -> AnswerRequest.builder().name("Answer " + a).build())
+                                        .collect(Collectors.toList()))
+                                .build())
+                        .collect(Collectors.toList()))
+                .build();
+    }
+
+    private ResultActions dispatch(MockHttpServletRequestBuilder builder) throws Exception {
+        MvcResult result = mockMvc.perform(builder)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(result));
+    }
+
+    private DistributionSummary summary(String name) {
+        return registry.find(name).tags("method", "GET", "uri", "/api/v1/surveys").summary();
+    }
+
+    @Test
+    void testRequestStatementsAndEntitiesAreRecorded() throws Exception {
+        for (int i = 0; i < 3; i++)
+            surveyService.newSurvey(surveyWithQuestions(2, 2));
+
+        DistributionSummary statements = summary(SurveyMetrics.REQUEST_STATEMENTS);
+        DistributionSummary entities = summary(SurveyMetrics.REQUEST_ENTITIES);
+        long countBefore = statements == null ? 0 : statements.count();
+        double statementsBefore = statements == null ? 0 : statements.totalAmount();
+        double entitiesBefore = entities == null ? 0 : entities.totalAmount();
+
+        dispatch(get("/api/v1/surveys?limit=1000")).andExpect(status().isOk());
+
+        statements = summary(SurveyMetrics.REQUEST_STATEMENTS);
+        entities = summary(SurveyMetrics.REQUEST_ENTITIES);
+        assertNotNull(statements);
+        assertNotNull(entities);
+        assertEquals(countBefore + 1, statements.count());
+        assertEquals(1, statements.totalAmount() - statementsBefore);
+        assertEquals(0, entities.totalAmount() - entitiesBefore);
+    }
+
+    @Test
+    void testSlowRequestsListRecentRequests() throws Exception {
+        dispatch(get("/api/v1/surveys/" + UUID.randomUUID())).andExpect(status().isNotFound());
+
+        List<SlowRequest> slowest = slowRequestsEndpoint.slowRequests();
+        assertTrue(slowest.stream().anyMatch(request -> request.getPattern().equals("/api/v1/surveys/{surveyId}")
+                && request.getStatus() == 404 && request.getStatements() == 2));
+        for (int i = 1; i < slowest.size(); i++)
+            assertTrue(slowest.get(i - 1).getDurationMs() >= slowest.get(i).getDurationMs());
+    }
+
+    @Test
+    void testRequestsAreTimedOnceWithHistogram() throws Exception {
+        dispatch(get("/api/v1/surveys")).andExpect(status().isOk());
+
+        assertNotNull(registry.find("http.server.requests").tags("method", "GET", "uri", "/api/v1/surveys").timer());
+        assertTrue(metricsProperties.getDistribution().getPercentilesHistogram().get("http.server.requests"));
+        assertTrue(registry.find("method.timed").tag("class", "SurveyController").timers().isEmpty());
+    }
+}
@@ -0,0 +1,49 @@
+package com.marketlogic.surveychallenge.metrics;
+
+import com.marketlogic.surveychallenge.config.RequestMetricsProperties;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SlowRequestLogTest {
+
+    private SlowRequestLog log(int capacity, Duration window) {
+        RequestMetricsProperties properties = new RequestMetricsProperties();
+        properties.setSlowRequests(capacity);
+        properties.setSlowRequestWindow(window);
+        return new SlowRequestLog(properties);
+    }
+
+    private SlowRequest request(double durationMs, Instant finishedAt) {
+        return SlowRequest.builder().method("GET").uri("/").pattern("/").durationMs(durationMs).finishedAt(finishedAt).build();
+    }
+
+    @Test
+    void testKeepsSlowestRequests() {
+        SlowRequestLog log = log(3, Duration.ofMinutes(5));
+        Instant now = Instant.now();
+        for (double duration : new double[]{5, 1, 9, 3, 7, 2})
+            log.record(request(duration, now));
+
+        List<Double> durations = log.getSlowest().stream().map(SlowRequest::getDurationMs).collect(Collectors.toList());
+        assertEquals(List.of(9.0, 7.0, 5.0), durations);
+    }
+
+    @Test
+    void testExpiredRequestsMakeRoomForFasterOnes() {
+        SlowRequestLog log = log(2, Duration.ofMinutes(1));
+        Instant now = Instant.now();
+        log.record(request(100, now.minus(Duration.ofMinutes(2))));
+        log.record(request(90, now.minus(Duration.ofMinutes(2))));
+        log.record(request(1, now));
+
+        List<SlowRequest> slowest = log.getSlowest();
+        assertEquals(1, slowest.size());
+        assertEquals(1, slowest.get(0).getDurationMs());
+    }
+}
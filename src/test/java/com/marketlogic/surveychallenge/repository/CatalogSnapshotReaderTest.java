@@ -0,0 +1,109 @@
+package com.marketlogic.surveychallenge.repository;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CatalogSnapshotReaderTest {
+
+    @TempDir
+    Path directory;
+
+    private SurveyEntity survey(int questions, int answers) {
+        return SurveyEntity.builder()
+                .id(UuidV7Generator.next())
+                .version(3)
+                .name("Survey ünïcode")
+                .deleted(false)
+                .questions(IntStream.range(0, questions)
+                        .mapToObj(q -> QuestionEntity.builder()
+                                .id(UuidV7Generator.next())
+                                .version(q)
+                                .name("Question " + q)
+                                .description(q % 2 == 0 ? null : "Description " + q)
+                                .deleted(q == 0)
+                                .answers(IntStream.range(0, answers)
+                                        .mapToObj(a -> AnswerEntity.builder()
+                                                .id(UuidV7Generator.next())
+                                                .name("Answer " + a)
+                                                .deleted(false)
+                                                .build())
+                                        .collect(Collectors.toList()))
+                                .build())
+                        .collect(Collectors.toList()))
+                .build();
+    }
+
+    private Path write(List<SurveyEntity> surveys) throws IOException {
+        Path file = directory.resolve("catalog.snapshot");
+        try (CatalogSnapshotWriter writer = new CatalogSnapshotWriter(file)) {
+            writer.write(surveys.subList(0, 1));
+            writer.write(surveys.subList(1, surveys.size()));
+            writer.commit();
+        }
+        return file;
+    }
+
+    @Test
+    void readWrittenSnapshotInChunks() throws IOException {
+        List<SurveyEntity> surveys = List.of(survey(0, 0), survey(3, 2), survey(2, 4));
+        Path file = write(surveys);
+
+        try (CatalogSnapshotReader reader = new CatalogSnapshotReader(file)) {
+            assertEquals(CatalogSnapshotStats.builder().surveys(3).questions(5).answers(14).bytes(Files.size(file)).build(),
+                    reader.getStats());
+            List<SurveyEntity> read = new ArrayList<>();
+            for (List<SurveyEntity> chunk = reader.read(2); !chunk.isEmpty(); chunk = reader.read(2))
+                read.addAll(chunk);
+            assertEquals(surveys, read);
+        }
+        assertFalse(Files.exists(directory.resolve("catalog.snapshot.tmp")));
+    }
+
+    @Test
+    void rejectCorruptSnapshot() throws IOException {
+        Path file = write(List.of(survey(1, 1), survey(2, 2)));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] {42}), CatalogSnapshotWriter.HEADER_SIZE + 30);
+        }
+
+        IOException e = assertThrows(IOException.class, () -> new CatalogSnapshotReader(file));
+        assertTrue(e.getMessage().contains("checksum"));
+    }
+
+    @Test
+    void rejectUnsupportedVersion() throws IOException {
+        Path file = write(List.of(survey(1, 1)));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(Integer.BYTES).putInt(0, CatalogSnapshotWriter.FORMAT_VERSION + 1), Integer.BYTES);
+        }
+
+        IOException e = assertThrows(IOException.class, () -> new CatalogSnapshotReader(file));
+        assertTrue(e.getMessage().contains("version"));
+    }
+
+    @Test
+    void uncommittedSnapshotKeepsPreviousFile() throws IOException {
+        Path file = write(List.of(survey(1, 1)));
+        byte[] previous = Files.readAllBytes(file);
+
+        try (CatalogSnapshotWriter writer = new CatalogSnapshotWriter(file)) {
+            writer.write(List.of(survey(2, 2)));
+        }
+
+        assertArrayEquals(previous, Files.readAllBytes(file));
+        assertFalse(Files.exists(directory.resolve("catalog.snapshot.tmp")));
+    }
+}
@@ -0,0 +1,178 @@
+package com.marketlogic.surveychallenge.repository;
+
+import com.marketlogic.surveychallenge.config.ResponseJournalProperties;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResponseJournalTest {
+
+    @TempDir
+    Path directory;
+
+    private ResponseJournal journal(long segmentSize) {
+        ResponseJournalProperties properties = new ResponseJournalProperties();
+        properties.setEnabled(true);
+        properties.setDirectory(directory);
+        properties.setSegmentSize(DataSize.ofBytes(segmentSize));
+        return new ResponseJournal(properties);
+    }
+
+    private ResponseJournal journal() {
+        return journal(DataSize.ofKilobytes(64).toBytes());
+    }
+
+    private List<SubmittedAnswerEntity> answers(int count) {
+        UUID responseId = UuidV7Generator.next();
+        UUID surveyId = UuidV7Generator.next();
+        Instant submittedAt = Instant.now();
+        return IntStream.range(0, count)
+                .mapToObj(i -> SubmittedAnswerEntity.builder()
+                        .id(UuidV7Generator.next())
+                        .responseId(responseId)
+                        .surveyId(surveyId)
+                        .questionId(UuidV7Generator.next())
+                        .answerId(UuidV7Generator.next())
+                        .submittedAt(submittedAt)
+                        .build())
+                .collect(Collectors.toList());
+    }
+
+    private List<SubmittedAnswerEntity> recover(ResponseJournal journal) {
+        List<SubmittedAnswerEntity> recovered = new ArrayList<>();
+        journal.recover(2, recovered::addAll);
+        return recovered;
+    }
+
+    private void appendCommitted(ResponseJournal journal, List<SubmittedAnswerEntity> answers) {
+        journal.commit(journal.append(answers));
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.sorted().collect(Collectors.toList());
+        }
+    }
+
+    @Test
+    void recoverAppendedAnswers() throws IOException {
+        ResponseJournal journal = journal();
+        assertTrue(recover(journal).isEmpty());
+        List<SubmittedAnswerEntity> first = answers(3);
+        List<SubmittedAnswerEntity> second = answers(2);
+        appendCommitted(journal, first);
+        appendCommitted(journal, second);
+        journal.close();
+
+        List<SubmittedAnswerEntity> expected = new ArrayList<>(first);
+        expected.addAll(second);
+        assertEquals(expected, recover(journal()));
+    }
+
+    @Test
+    void truncateTornTail() throws IOException {
+        ResponseJournal journal = journal();
+        recover(journal);
+        List<SubmittedAnswerEntity> answers = answers(3);
+        appendCommitted(journal, answers.subList(0, 2));
+        appendCommitted(journal, answers.subList(2, 3));
+        journal.close();
+
+        // the answer of the second batch is torn, its commit marker behind it is dropped with it
+        try (FileChannel channel = FileChannel.open(segments().get(0), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] {1, 2, 3}),
+                    JournalSegment.HEADER_SIZE + 3L * JournalSegment.RECORD_SIZE + 20);
+        }
+
+        ResponseJournal reopened = journal();
+        assertEquals(answers.subList(0, 2), recover(reopened));
+        List<SubmittedAnswerEntity> appended = answers(1);
+        appendCommitted(reopened, appended);
+        reopened.close();
+
+        List<SubmittedAnswerEntity> expected = new ArrayList<>(answers.subList(0, 2));
+        expected.addAll(appended);
+        assertEquals(expected, recover(journal()));
+    }
+
+    @Test
+    void skipBatchesThatWereNotCommitted() throws IOException {
+        ResponseJournal journal = journal();
+        recover(journal);
+        List<SubmittedAnswerEntity> committed = answers(3);
+        List<SubmittedAnswerEntity> aborted = answers(2);
+        List<SubmittedAnswerEntity> unterminated = answers(2);
+        List<SubmittedAnswerEntity> last = answers(1);
+        appendCommitted(journal, committed);
+        journal.abort(journal.append(aborted));
+        journal.append(unterminated);
+        appendCommitted(journal, last);
+        journal.append(answers(2));
+        journal.close();
+
+        List<SubmittedAnswerEntity> expected = new ArrayList<>(committed);
+        expected.addAll(last);
+        assertEquals(expected, recover(journal()));
+    }
+
+    @Test
+    void batchNumbersContinueAfterRecovery() throws IOException {
+        ResponseJournal journal = journal();
+        recover(journal);
+        long first = journal.append(answers(1));
+        journal.commit(first);
+        journal.close();
+
+        ResponseJournal reopened = journal();
+        recover(reopened);
+        long second = reopened.append(answers(1));
+        reopened.abort(second);
+        reopened.close();
+
+        assertTrue(second > first);
+        assertEquals(1, recover(journal()).size());
+    }
+
+    @Test
+    void rotateFullSegments() throws IOException {
+        long segmentSize = JournalSegment.HEADER_SIZE + 2L * JournalSegment.RECORD_SIZE;
+        ResponseJournal journal = journal(segmentSize);
+        recover(journal);
+        List<SubmittedAnswerEntity> answers = answers(5);
+        appendCommitted(journal, answers.subList(0, 3));
+        appendCommitted(journal, answers.subList(3, 5));
+        journal.close();
+
+        assertEquals(4, segments().size());
+        assertEquals(answers, recover(journal(segmentSize)));
+    }
+
+    @Test
+    void disabledJournalWritesNothing() throws IOException {
+        ResponseJournalProperties properties = new ResponseJournalProperties();
+        properties.setDirectory(directory);
+        ResponseJournal journal = new ResponseJournal(properties);
+
+        assertEquals(0, journal.recover(2, answers -> fail("Nothing to replay")));
+        appendCommitted(journal, answers(2));
+        journal.close();
+
+        assertTrue(segments().isEmpty());
+    }
+}
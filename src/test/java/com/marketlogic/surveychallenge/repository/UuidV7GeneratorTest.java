@@ -0,0 +1,59 @@
+package com.marketlogic.surveychallenge.repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UuidV7GeneratorTest {
+
+    private static final Comparator<UUID> UNSIGNED = Comparator
+            .comparing(UUID::getMostSignificantBits, Long::compareUnsigned)
+            .thenComparing(UUID::getLeastSignificantBits, Long::compareUnsigned);
+
+    @Test
+    void versionAndVariant() {
+        UUID id = UuidV7Generator.next();
+
+        assertEquals(7, id.version());
+        assertEquals(2, id.variant());
+        assertTrue(Math.abs(System.currentTimeMillis() - (id.getMostSignificantBits() >>> 16)) < 10_000);
+    }
+
+    @Test
+    void monotonicWithinThread() {
+        UUID previous = UuidV7Generator.next();
+        for (int i = 0; i < 100_000; i++) {
+            UUID next = UuidV7Generator.next();
+            assertTrue(UNSIGNED.compare(previous, next) < 0);
+            previous = next;
+        }
+    }
+
+    @Test
+    void uniqueAndOrderedAcrossThreads() {
+        ConcurrentLinkedQueue<List<UUID>> generated = new ConcurrentLinkedQueue<>();
+        IntStream.range(0, 8).parallel().forEach(t -> {
+            List<UUID> ids = new ArrayList<>();
+            for (int i = 0; i < 50_000; i++)
+                ids.add(UuidV7Generator.next());
+            generated.add(ids);
+        });
+
+        Set<UUID> unique = new HashSet<>();
+        for (List<UUID> ids : generated) {
+            for (int i = 1; i < ids.size(); i++)
+                assertTrue(UNSIGNED.compare(ids.get(i - 1), ids.get(i)) < 0);
+            unique.addAll(ids);
+        }
+        assertEquals(8 * 50_000, unique.size());
+    }
+}
@@ -0,0 +1,115 @@
+package com.marketlogic.surveychallenge.rest;
+
+import com.marketlogic.surveychallenge.rest.dto.AnswerRequest;
+import com.marketlogic.surveychallenge.rest.dto.QuestionRequest;
+import com.marketlogic.surveychallenge.rest.dto.SurveyRequest;
+import com.marketlogic.surveychallenge.service.ISurveyService;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/***
+ * Many more concurrent clients than connector threads against the survey listing, which reads the
+ * database on every request. Run with
+ * ./mvnw test -Dtest=RequestExecutorLoadTest -Dbenchmark=true [-Dbenchmark.clients=256] [-Dbenchmark.requests=20000]
+ * and -Dsurvey.executor.mode=virtual on Java 21 to compare the executor modes.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "server.tomcat.threads.max=4",
+        "server.tomcat.threads.min-spare=4",
+        "spring.datasource.url=jdbc:h2:mem:load-test;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000",
+        "logging.level.root=WARN",
+        "logging.level.com.marketlogic.surveychallenge.rest.RequestExecutorLoadTest=INFO"})
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@Slf4j
+class RequestExecutorLoadTest {
+    private static final int SURVEYS = 200;
+    private static final int PAGE_SIZE = 20;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private ISurveyService surveyService;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @Test
+    void manyClientsFewConnectorThreads() throws Exception {
+        int clients = Integer.getInteger("benchmark.clients", 256);
+        int requests = Integer.getInteger("benchmark.requests", 20_000);
+
+        List<UUID> surveyIds = new ArrayList<>();
+        for (int i = 0; i < SURVEYS; i++)
+            surveyIds.add(surveyService.newSurvey(SurveyRequest.builder()
+                    .name("Load test survey " + i)
+                    .questions(IntStream.range(0, 5)
+                            .mapToObj(q -> QuestionRequest.builder()
+                                    .name("Question " + q)
+                                    .answers(IntStream.range(0, 4)
+                                            .mapToObj(a -> AnswerRequest.builder().name("Answer " + a).build())
+                                            .collect(Collectors.toList()))
+                                    .build())
+                            .collect(Collectors.toList()))
+                    .build()).orElseThrow().getId());
+        surveyIds.sort(null);
+
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        Semaphore inFlight = new Semaphore(clients);
+        AtomicInteger failures = new AtomicInteger();
+        AtomicInteger peakActive = new AtomicInteger();
+        long[] latencies = new long[requests];
+        List<CompletableFuture<Void>> responses = new ArrayList<>(requests);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < requests; i++) {
+            inFlight.acquire();
+            UUID after = surveyIds.get(ThreadLocalRandom.current().nextInt(SURVEYS - PAGE_SIZE));
+            HttpRequest request = HttpRequest.newBuilder(
+                    URI.create("http://localhost:" + port + "/api/v1/surveys?limit=" + PAGE_SIZE + "&after=" + after)).build();
+            int index = i;
+            long sent = System.nanoTime();
+            responses.add(client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .handle((response, e) -> {
+                        latencies[index] = System.nanoTime() - sent;
+                        if (e != null || response.statusCode() != 200)
+                            failures.incrementAndGet();
+                        peakActive.accumulateAndGet((int) registry.get("executor.active")
+                                .tag("name", RequestExecutor.METRIC_PREFIX).gauge().value(), Math::max);
+                        inFlight.release();
+                        return null;
+                    }));
+        }
+        CompletableFuture.allOf(responses.toArray(new CompletableFuture[0])).join();
+        long end = System.nanoTime();
+
+        Arrays.sort(latencies);
+        log.info(String.format("%d clients, 4 connector threads: %,d requests, %,.0f requests/s, p50 %.1f ms, p99 %.1f ms, "
+                        + "up to %d service calls at once",
+                clients, requests, requests / ((end - start) / 1e9),
+                latencies[requests / 2] / 1e6, latencies[requests * 99 / 100] / 1e6, peakActive.get()));
+        assertEquals(0, failures.get());
+    }
+}
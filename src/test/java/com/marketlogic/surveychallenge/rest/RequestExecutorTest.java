@@ -0,0 +1,73 @@
+package com.marketlogic.surveychallenge.rest;
+
+import com.marketlogic.surveychallenge.config.RequestExecutorProperties;
+import com.marketlogic.surveychallenge.exceptions.ServerBusyException;
+import com.marketlogic.surveychallenge.metrics.QueryCounts;
+import com.marketlogic.surveychallenge.metrics.RequestQueryCounter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestExecutorTest {
+
+    private RequestExecutor executor(int threads, int queueCapacity) {
+        RequestExecutorProperties properties = new RequestExecutorProperties();
+        properties.setThreads(threads);
+        properties.setQueueCapacity(queueCapacity);
+        return new RequestExecutor(properties, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void rejectsBeyondThreadsAndQueue() throws Exception {
+        RequestExecutor executor = executor(1, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            CompletableFuture<Integer> running = executor.supply(() -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return 1;
+            });
+            CompletableFuture<Integer> queued = executor.supply(() -> 2);
+
+            assertThrows(ServerBusyException.class, () -> executor.supply(() -> 3));
+
+            release.countDown();
+            assertEquals(1, running.get());
+            assertEquals(2, queued.get());
+        } finally {
+            release.countDown();
+            executor.stop();
+        }
+    }
+
+    @Test
+    void callsRunWithCountsOfTheRequest() throws Exception {
+        RequestExecutor executor = executor(1, 1);
+        QueryCounts counts = RequestQueryCounter.start();
+        try {
+            assertSame(counts, executor.supply(RequestQueryCounter::current).get());
+        } finally {
+            RequestQueryCounter.stop();
+            executor.stop();
+        }
+        assertNull(RequestQueryCounter.current());
+    }
+
+    @Test
+    void virtualModeRequiresVirtualThreads() {
+        RequestExecutorProperties properties = new RequestExecutorProperties();
+        properties.setMode(RequestExecutorProperties.Mode.VIRTUAL);
+        if (Runtime.version().feature() >= 21) {
+            assertDoesNotThrow(() -> new RequestExecutor(properties, new SimpleMeterRegistry()).stop());
+        } else {
+            assertThrows(IllegalStateException.class, () -> new RequestExecutor(properties, new SimpleMeterRegistry()));
+        }
+    }
+}
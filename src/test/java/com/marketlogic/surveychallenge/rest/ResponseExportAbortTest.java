@@ -0,0 +1,107 @@
+package com.marketlogic.surveychallenge.rest;
+
+import com.marketlogic.surveychallenge.repository.SubmissionJdbcRepository;
+import com.marketlogic.surveychallenge.rest.dto.AnswerRequest;
+import com.marketlogic.surveychallenge.rest.dto.QuestionRequest;
+import com.marketlogic.surveychallenge.rest.dto.SubmissionRequest;
+import com.marketlogic.surveychallenge.rest.dto.SubmittedAnswerRequest;
+import com.marketlogic.surveychallenge.rest.dto.SurveyRequest;
+import com.marketlogic.surveychallenge.rest.dto.SurveyResponse;
+import com.marketlogic.surveychallenge.service.AckMode;
+import com.marketlogic.surveychallenge.service.ISubmissionService;
+import com.marketlogic.surveychallenge.service.ISurveyService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+
+/***
+ * Exports that break off after the response was committed, against a running server, since only
+ * the container decides how a committed response ends
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.url=jdbc:h2:mem:export-abort-tests;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000",
+        "survey.export.timeout=1s"})
+class ResponseExportAbortTest {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private ISurveyService surveyService;
+
+    @Autowired
+    private ISubmissionService submissionService;
+
+    @SpyBean
+    private SubmissionJdbcRepository repo;
+
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+    private SurveyResponse survey;
+
+    @BeforeEach
+    void createSurvey() {
+        survey = surveyService.newSurvey(SurveyRequest.builder()
+                .name("Exported survey")
+                .questions(List.of(QuestionRequest.builder()
+                        .name("Question")
+                        .answers(List.of(AnswerRequest.builder().name("Yes").build()))
+                        .build()))
+                .build()).orElseThrow();
+        submissionService.submit(survey.getId(), SubmissionRequest.builder()
+                .answers(List.of(SubmittedAnswerRequest.builder()
+                        .questionId(survey.getQuestions().get(0).getId())
+                        .answerId(survey.getQuestions().get(0).getAnswers().get(0).getId())
+                        .build()))
+                .build(), AckMode.DURABLE, null).join();
+    }
+
+    private HttpResponse<String> export() throws IOException, InterruptedException {
+        return client.send(HttpRequest.newBuilder(
+                        URI.create("http://localhost:" + port + "/api/v1/surveys/" + survey.getId() + "/responses/export"))
+                .build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    @Test
+    void completeExport() throws Exception {
+        HttpResponse<String> response = export();
+
+        assertEquals(200, response.statusCode());
+        assertEquals(2, response.body().split("\n").length);
+    }
+
+    @Test
+    void failedExportAbortsTheConnection() {
+        doThrow(new DataAccessResourceFailureException("Connection lost"))
+                .when(repo).forEachAnswerOfQuestions(any(), any(), any(), anyInt(), any());
+
+        assertThrows(IOException.class, this::export);
+    }
+
+    @Test
+    void exportTimeoutAbortsTheConnection() {
+        doAnswer(invocation -> {
+            Thread.sleep(3000);
+            return invocation.callRealMethod();
+        }).when(repo).forEachAnswerOfQuestions(any(), any(), any(), anyInt(), any());
+
+        assertThrows(IOException.class, this::export);
+    }
+}
@@ -0,0 +1,334 @@
+package com.marketlogic.surveychallenge.rest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import com.marketlogic.surveychallenge.exceptions.TooManyRequestsException;
+import com.marketlogic.surveychallenge.rest.dto.AnswerRequest;
+import com.marketlogic.surveychallenge.rest.dto.QuestionRequest;
+import com.marketlogic.surveychallenge.rest.dto.SurveyPageResponse;
+import com.marketlogic.surveychallenge.rest.dto.SurveyRequest;
+import com.marketlogic.surveychallenge.rest.dto.SurveyResponse;
+import com.marketlogic.surveychallenge.rest.dto.SubmissionRequest;
+import com.marketlogic.surveychallenge.rest.dto.SubmittedAnswerRequest;
+import com.marketlogic.surveychallenge.service.AckMode;
+import com.marketlogic.surveychallenge.service.ISubmissionService;
+import com.marketlogic.surveychallenge.service.ISurveyService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.hamcrest.Matchers.contains;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/***
+ * Service calls run on the request executor outside of any test transaction, so the web tests
+ * commit to a database of their own
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:web-tests;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000")
+@AutoConfigureMockMvc
+class SurveyControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ISurveyService surveyService;
+
+    @Autowired
+    private ISubmissionService submissionService;
+
+    @Autowired
+    private WriteLimiter writeLimiter;
+
+    private SurveyResponse newSurvey() {
+        return surveyService.newSurvey(SurveyRequest.builder()
+                .name("Test survey name " + UUID.randomUUID())
+                .questions(List.of(
+                        QuestionRequest.builder().name("Question 1")
+                                .answers(List.of(AnswerRequest.builder().name("Answer 1").build())).build(),
+                        QuestionRequest.builder().name("Question 2")
+                                .answers(List.of(AnswerRequest.builder().name("Answer 2").build())).build()))
+                .build()).orElseThrow();
+    }
+
+    private ResultActions dispatch(MockHttpServletRequestBuilder builder) throws Exception {
+        MvcResult result = mockMvc.perform(builder)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(result));
+    }
+
+    private String etag(String uri, String acceptEncoding) throws Exception {
+        return dispatch(get(uri).header(HttpHeaders.ACCEPT_ENCODING, acceptEncoding))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+    }
+
+    @Test
+    void getSurveyNotModified() throws Exception {
+        SurveyResponse survey = newSurvey();
+        String uri = "/api/v1/surveys/" + survey.getId();
+
+        String etag = etag(uri, "identity");
+        assertNotNull(etag);
+        dispatch(get(uri).header(HttpHeaders.IF_NONE_MATCH, "\"other\", " + etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etag))
+                .andExpect(content().bytes(new byte[0]));
+
+        String gzipEtag = etag(uri, "gzip");
+        assertNotEquals(etag, gzipEtag);
+        dispatch(get(uri).header(HttpHeaders.ACCEPT_ENCODING, "gzip").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+        dispatch(get(uri).header(HttpHeaders.ACCEPT_ENCODING, "gzip").header(HttpHeaders.IF_NONE_MATCH, gzipEtag))
+                .andExpect(status().isNotModified());
+
+        surveyService.deleteSurveyQuestion(survey.getId(), survey.getQuestions().get(0).getId());
+        dispatch(get(uri).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+        assertNotEquals(etag, etag(uri, "identity"));
+    }
+
+    @Test
+    void getSurveysNotModified() throws Exception {
+        newSurvey();
+
+        String etag = etag("/api/v1/surveys", "identity");
+        assertNotNull(etag);
+        dispatch(get("/api/v1/surveys").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+        dispatch(get("/api/v1/surveys").header(HttpHeaders.IF_NONE_MATCH, "\"other\""))
+                .andExpect(status().isOk());
+
+        newSurvey();
+        dispatch(get("/api/v1/surveys").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void getSurveysWithSelectedFields() throws Exception {
+        SurveyResponse survey = newSurvey();
+
+        dispatch(get("/api/v1/surveys?limit=1000&fields=id,name"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.surveys[?(@.id == '" + survey.getId() + "')].name").value(survey.getName()))
+                .andExpect(jsonPath("$.surveys[*].questions").doesNotExist());
+        mockMvc.perform(get("/api/v1/surveys?fields=questions.votes"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void searchSurveys() throws Exception {
+        String word = "w" + UUID.randomUUID().toString().replace("-", "");
+        SurveyResponse inDescription = surveyService.newSurvey(SurveyRequest.builder()
+                .name("Pets")
+                .description("About " + word)
+                .questions(List.of())
+                .build()).orElseThrow();
+        SurveyResponse inQuestion = surveyService.newSurvey(SurveyRequest.builder()
+                .name("Habitats")
+                .questions(List.of(QuestionRequest.builder().name("Where does the " + word + " live?")
+                        .answers(List.of(AnswerRequest.builder().name("Forest").build())).build()))
+                .build()).orElseThrow();
+        SurveyResponse inName = surveyService.newSurvey(SurveyRequest.builder()
+                .name(word.toUpperCase() + " census")
+                .questions(List.of())
+                .build()).orElseThrow();
+
+        dispatch(get("/api/v1/surveys").param("q", word.substring(0, 20)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.surveys[*].id", contains(
+                        inName.getId().toString(), inQuestion.getId().toString(), inDescription.getId().toString())))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+        dispatch(get("/api/v1/surveys").param("q", "habit " + word).param("fields", "id,name"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.surveys[*].name", contains("Habitats")));
+
+        surveyService.deleteSurveyQuestion(inQuestion.getId(), inQuestion.getQuestions().get(0).getId());
+        dispatch(get("/api/v1/surveys").param("q", word).param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.surveys[*].id", contains(inName.getId().toString())));
+        dispatch(get("/api/v1/surveys").param("q", "habit " + word))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.surveys").isEmpty());
+        mockMvc.perform(get("/api/v1/surveys").param("q", word).param("after", inName.getId().toString()))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getUnknownSurveyWithAnyTag() throws Exception {
+        dispatch(get("/api/v1/surveys/" + UUID.randomUUID()).header(HttpHeaders.IF_NONE_MATCH, "*"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void getWindowDistribution() throws Exception {
+        SurveyResponse survey = newSurvey();
+        UUID questionId = survey.getQuestions().get(0).getId();
+        UUID answerId = survey.getQuestions().get(0).getAnswers().get(0).getId();
+        for (int i = 0; i < 3; i++)
+            submissionService.submit(survey.getId(), SubmissionRequest.builder()
+                    .answers(List.of(SubmittedAnswerRequest.builder().questionId(questionId).answerId(answerId).build()))
+                    .build(), AckMode.DURABLE, null).join();
+        String uri = "/api/v1/surveys/" + survey.getId() + "/questions/" + questionId + "/distribution";
+
+        dispatch(get(uri).param("window", "15m"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total").value(3))
+                .andExpect(jsonPath("$.answers[0].count").value(3))
+                .andExpect(jsonPath("$.windowStart").exists());
+        dispatch(get(uri))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total").value(3))
+                .andExpect(jsonPath("$.windowStart").doesNotExist());
+        dispatch(get(uri).param("window", "30d"))
+                .andExpect(status().isBadRequest());
+        dispatch(get(uri).param("window", "soon"))
+                .andExpect(status().isBadRequest());
+        dispatch(get(uri).param("window", "1h").param("filter", answerId.toString()))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void exportResponsesAsCsv() throws Exception {
+        SurveyResponse survey = newSurvey();
+        for (int i = 0; i < 2; i++)
+            submissionService.submit(survey.getId(), SubmissionRequest.builder()
+                    .answers(List.of(SubmittedAnswerRequest.builder()
+                            .questionId(survey.getQuestions().get(i).getId())
+                            .answerId(survey.getQuestions().get(i).getAnswers().get(0).getId())
+                            .build()))
+                    .build(), AckMode.DURABLE, null).join();
+
+        MvcResult started = mockMvc.perform(get("/api/v1/surveys/" + survey.getId() + "/responses/export")
+                        .param("parallelism", "2"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        MvcResult result = mockMvc.perform(asyncDispatch(started))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        result.getAsyncResult();
+        String[] lines = result.getResponse().getContentAsString().split("\n");
+        assertEquals("text/csv", result.getResponse().getContentType());
+        assertEquals(3, lines.length);
+        assertEquals("response_id,question_id,answer_id,submitted_at", lines[0]);
+        assertTrue(lines[1].contains(survey.getQuestions().get(0).getAnswers().get(0).getId().toString())
+                || lines[2].contains(survey.getQuestions().get(0).getAnswers().get(0).getId().toString()));
+
+        dispatch(get("/api/v1/surveys/" + UUID.randomUUID() + "/responses/export"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void newSurveyValidationFailsAsynchronously() throws Exception {
+        dispatch(post("/api/v1/surveys").contentType(MediaType.APPLICATION_JSON).content("{\"questions\":[]}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void writesAreShedWhileReadsProceed() throws Exception {
+        SurveyResponse survey = newSurvey();
+        List<CompletableFuture<Void>> held = new ArrayList<>();
+        try {
+            while (true) {
+                CompletableFuture<Void> write = new CompletableFuture<>();
+                writeLimiter.admit(() -> write);
+                held.add(write);
+            }
+        } catch (TooManyRequestsException e) {
+            assertEquals(writeLimiter.getLimit(), held.size());
+        }
+
+        try {
+            mockMvc.perform(post("/api/v1/surveys").contentType(MediaType.APPLICATION_JSON).content("{\"name\":\"Shed\"}"))
+                    .andExpect(status().isTooManyRequests())
+                    .andExpect(header().string(HttpHeaders.RETRY_AFTER, "1"));
+            dispatch(get("/api/v1/surveys/" + survey.getId()))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.name").value(survey.getName()));
+        } finally {
+            held.forEach(write -> write.complete(null));
+        }
+    }
+
+    @Test
+    void getSurveyAsCborAndSmile() throws Exception {
+        SurveyResponse survey = newSurvey();
+        String uri = "/api/v1/surveys/" + survey.getId();
+        String jsonEtag = etag(uri, "identity");
+
+        for (ObjectMapper mapper : List.of(new CBORMapper(), new SmileMapper())) {
+            String type = mapper instanceof CBORMapper ? MediaType.APPLICATION_CBOR_VALUE : SurveyController.APPLICATION_SMILE_VALUE;
+            MvcResult result = dispatch(get(uri).header(HttpHeaders.ACCEPT, type + ", application/json;q=0.5"))
+                    .andExpect(status().isOk())
+                    .andExpect(content().contentType(type))
+                    .andReturn();
+            assertEquals(survey, mapper.readValue(result.getResponse().getContentAsByteArray(), SurveyResponse.class));
+
+            String etag = result.getResponse().getHeader(HttpHeaders.ETAG);
+            assertNotEquals(jsonEtag, etag);
+            dispatch(get(uri).header(HttpHeaders.ACCEPT, type).header(HttpHeaders.IF_NONE_MATCH, etag))
+                    .andExpect(status().isNotModified());
+            dispatch(get(uri).header(HttpHeaders.IF_NONE_MATCH, etag))
+                    .andExpect(status().isOk())
+                    .andExpect(content().contentType(MediaType.APPLICATION_JSON));
+        }
+    }
+
+    @Test
+    void getSurveysAsCbor() throws Exception {
+        SurveyResponse survey = newSurvey();
+
+        MvcResult result = dispatch(get("/api/v1/surveys?limit=1000").accept(MediaType.APPLICATION_CBOR))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andReturn();
+
+        SurveyPageResponse page = new CBORMapper().readValue(result.getResponse().getContentAsByteArray(), SurveyPageResponse.class);
+        assertTrue(page.getSurveys().contains(survey));
+        assertNotEquals(etag("/api/v1/surveys", "identity"), result.getResponse().getHeader(HttpHeaders.ETAG));
+    }
+
+    @Test
+    void newSurveyFromCborAsSmile() throws Exception {
+        SurveyRequest request = SurveyRequest.builder()
+                .name("Binary survey")
+                .questions(List.of(QuestionRequest.builder().name("Question")
+                        .answers(List.of(AnswerRequest.builder().name("Answer").build())).build()))
+                .build();
+
+        MvcResult result = dispatch(post("/api/v1/surveys")
+                .contentType(MediaType.APPLICATION_CBOR)
+                .accept(SurveyController.APPLICATION_SMILE_VALUE)
+                .content(new CBORMapper().writeValueAsBytes(request)))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(SurveyController.APPLICATION_SMILE_VALUE))
+                .andReturn();
+
+        SurveyResponse created = new SmileMapper().readValue(result.getResponse().getContentAsByteArray(), SurveyResponse.class);
+        assertEquals("Binary survey", created.getName());
+        assertEquals("Answer", created.getQuestions().get(0).getAnswers().get(0).getName());
+        assertEquals(created, surveyService.getSurvey(created.getId()).orElseThrow());
+    }
+}
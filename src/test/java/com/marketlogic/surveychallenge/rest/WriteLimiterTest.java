@@ -0,0 +1,100 @@
+package com.marketlogic.surveychallenge.rest;
+
+import com.marketlogic.surveychallenge.config.WriteLimiterProperties;
+import com.marketlogic.surveychallenge.exceptions.ServerBusyException;
+import com.marketlogic.surveychallenge.exceptions.SubmissionValidationException;
+import com.marketlogic.surveychallenge.exceptions.TooManyRequestsException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WriteLimiterTest {
+
+    private WriteLimiter limiter(int initialLimit) {
+        WriteLimiterProperties properties = new WriteLimiterProperties();
+        properties.setInitialLimit(initialLimit);
+        properties.setMinLimit(1);
+        properties.setMaxLimit(8);
+        properties.setBackoffRatio(0.5);
+        properties.setRetryAfter(Duration.ofMillis(1500));
+        return new WriteLimiter(properties, new SimpleMeterRegistry());
+    }
+
+    private List<CompletableFuture<Void>> fill(WriteLimiter limiter) {
+        List<CompletableFuture<Void>> writes = new ArrayList<>();
+        for (int i = 0; i < limiter.getLimit(); i++) {
+            CompletableFuture<Void> write = new CompletableFuture<>();
+            limiter.admit(() -> write);
+            writes.add(write);
+        }
+        return writes;
+    }
+
+    @Test
+    void rejectWritesOverTheLimit() {
+        WriteLimiter limiter = limiter(2);
+        List<CompletableFuture<Void>> writes = fill(limiter);
+
+        TooManyRequestsException thrown = assertThrows(TooManyRequestsException.class,
+                () -> limiter.admit(() -> CompletableFuture.completedFuture(null)));
+        assertEquals("2", thrown.getResponseHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        assertEquals(2, limiter.getStats().getInflight());
+        assertEquals(1, limiter.getStats().getRejected());
+
+        writes.get(0).complete(null);
+        limiter.admit(() -> CompletableFuture.completedFuture(null));
+        assertEquals(1, limiter.getStats().getInflight());
+    }
+
+    @Test
+    void growWhileWritesAreFast() {
+        WriteLimiter limiter = limiter(2);
+        for (int round = 0; round < 20; round++)
+            fill(limiter).forEach(write -> write.complete(null));
+
+        assertEquals(8, limiter.getLimit());
+    }
+
+    @Test
+    void backOffOnOverload() {
+        WriteLimiter limiter = limiter(8);
+        List<CompletableFuture<Void>> writes = fill(limiter);
+
+        writes.get(0).completeExceptionally(new ServerBusyException("Request executor is saturated"));
+        assertEquals(4, limiter.getLimit());
+        writes.get(1).completeExceptionally(new SubmissionValidationException("Submission has no answers"));
+        assertEquals(4, limiter.getLimit());
+        for (int i = 2; i < writes.size(); i++)
+            writes.get(i).completeExceptionally(new ServerBusyException("Request executor is saturated"));
+
+        // writes admitted before the decrease were sized for the old limit
+        assertEquals(4, limiter.getLimit());
+        assertEquals(7, limiter.getStats().getOverloaded());
+        assertEquals(0, limiter.getStats().getInflight());
+
+        writes = fill(limiter);
+        writes.forEach(write -> write.completeExceptionally(new ServerBusyException("Request executor is saturated")));
+        assertEquals(2, limiter.getLimit());
+        fill(limiter).forEach(write -> write.completeExceptionally(new ServerBusyException("Request executor is saturated")));
+        assertEquals(1, limiter.getLimit());
+    }
+
+    @Test
+    void backOffWhenTheWriteFailsToStart() {
+        WriteLimiter limiter = limiter(8);
+
+        assertThrows(ServerBusyException.class, () -> limiter.admit(() -> {
+            throw new ServerBusyException("Request executor is saturated");
+        }));
+
+        assertEquals(4, limiter.getLimit());
+        assertEquals(0, limiter.getStats().getInflight());
+    }
+}
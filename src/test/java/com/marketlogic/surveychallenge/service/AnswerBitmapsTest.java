@@ -0,0 +1,47 @@
+package com.marketlogic.surveychallenge.service;
+
+import com.marketlogic.surveychallenge.repository.SubmittedAnswerEntity;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AnswerBitmapsTest {
+    private final UUID surveyId = UUID.randomUUID();
+    private final UUID yes = UUID.randomUUID();
+    private final UUID no = UUID.randomUUID();
+    private final UUID red = UUID.randomUUID();
+    private final UUID blue = UUID.randomUUID();
+    private final AnswerBitmaps bitmaps = new AnswerBitmaps(null, null);
+
+    private SubmittedAnswerEntity answer(UUID responseId, UUID answerId) {
+        return SubmittedAnswerEntity.builder().responseId(responseId).surveyId(surveyId).answerId(answerId).build();
+    }
+
+    @Test
+    void responseSplitAcrossRecordsIsOneRespondent() {
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        bitmaps.record(List.of(answer(first, yes)));
+        bitmaps.record(List.of(answer(first, red), answer(second, no)));
+        bitmaps.record(List.of(answer(second, red)));
+
+        assertArrayEquals(new long[]{1, 1}, bitmaps.count(surveyId, List.of(yes, no), List.of(Set.of(red))));
+        assertArrayEquals(new long[]{2, 0}, bitmaps.count(surveyId, List.of(red, blue), List.of()));
+    }
+
+    @Test
+    void filterGroupsAreIntersected() {
+        for (int i = 0; i < 10_000; i++) {
+            UUID response = UUID.randomUUID();
+            bitmaps.record(List.of(answer(response, i % 2 == 0 ? yes : no), answer(response, i % 3 == 0 ? red : blue)));
+        }
+
+        assertArrayEquals(new long[]{1667, 1667}, bitmaps.count(surveyId, List.of(red, yes), List.of(Set.of(yes), Set.of(red))));
+        assertArrayEquals(new long[]{5000, 5000}, bitmaps.count(surveyId, List.of(yes, no), List.of(Set.of(red, blue))));
+        assertArrayEquals(new long[]{0, 0}, bitmaps.count(UUID.randomUUID(), List.of(yes, no), List.of(Set.of(red))));
+    }
+}
@@ -0,0 +1,94 @@
+package com.marketlogic.surveychallenge.service;
+
+import com.marketlogic.surveychallenge.config.AnswerWindowProperties;
+import com.marketlogic.surveychallenge.repository.SubmittedAnswerEntity;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AnswerWindowsTest {
+    private static final Instant NOW = Instant.parse("2022-09-01T12:00:30Z");
+
+    private final UUID yes = UUID.randomUUID();
+    private final UUID no = UUID.randomUUID();
+    private final AnswerWindows windows = new AnswerWindows(null, null, properties());
+
+    private static AnswerWindowProperties properties() {
+        AnswerWindowProperties properties = new AnswerWindowProperties();
+        properties.setBucketDuration(Duration.ofMinutes(1));
+        properties.setRetention(Duration.ofMinutes(60));
+        return properties;
+    }
+
+    private void submit(UUID answerId, Instant submittedAt) {
+        windows.record(List.of(SubmittedAnswerEntity.builder().answerId(answerId).submittedAt(submittedAt).build()));
+    }
+
+    private long[] count(Duration window, Instant now) {
+        return windows.count(List.of(yes, no), window, now);
+    }
+
+    @Test
+    void windowsCountWholeBuckets() {
+        submit(yes, NOW);
+        submit(yes, NOW.minusSeconds(60));
+        submit(no, NOW.minusSeconds(14 * 60));
+        submit(no, NOW.minusSeconds(15 * 60));
+        submit(yes, NOW.minusSeconds(59 * 60));
+
+        assertArrayEquals(new long[]{1, 0}, count(Duration.ofSeconds(1), NOW));
+        assertArrayEquals(new long[]{2, 1}, count(Duration.ofMinutes(15), NOW));
+        assertArrayEquals(new long[]{2, 2}, count(Duration.ofMinutes(16), NOW));
+        assertArrayEquals(new long[]{3, 2}, count(Duration.ofHours(1), NOW));
+        assertEquals(Instant.parse("2022-09-01T11:46:00Z"), windows.windowStart(Duration.ofMinutes(15), NOW));
+        assertEquals(Duration.ofHours(1), windows.getRetention());
+    }
+
+    @Test
+    void expiredBucketsAreRecycled() {
+        submit(yes, NOW.minusSeconds(60 * 60));
+        submit(yes, NOW);
+        submit(yes, NOW.minusSeconds(60 * 60));
+
+        assertArrayEquals(new long[]{1, 0}, count(Duration.ofHours(1), NOW));
+        assertArrayEquals(new long[]{0, 0}, count(Duration.ofHours(1), NOW.plusSeconds(60 * 60)));
+    }
+
+    @Test
+    void sweepEvictsAnswersWithoutRecentSubmissions() {
+        submit(yes, NOW.minusSeconds(30 * 60));
+        submit(no, NOW);
+
+        assertEquals(0, windows.sweep(NOW));
+        assertEquals(0, windows.sweep(NOW.plusSeconds(29 * 60)));
+        assertEquals(1, windows.sweep(NOW.plusSeconds(31 * 60)));
+        assertEquals(1, windows.size());
+        assertArrayEquals(new long[]{0, 1}, count(Duration.ofHours(1), NOW.plusSeconds(31 * 60)));
+
+        submit(yes, NOW.plusSeconds(31 * 60));
+        assertArrayEquals(new long[]{1, 1}, count(Duration.ofHours(1), NOW.plusSeconds(31 * 60)));
+        assertEquals(1, windows.sweep(NOW.plusSeconds(61 * 60)));
+        assertEquals(1, windows.size());
+    }
+
+    @Test
+    void concurrentSubmissionsAreExact() {
+        List<CompletableFuture<Void>> writers = new ArrayList<>();
+        for (int thread = 0; thread < 8; thread++)
+            writers.add(CompletableFuture.runAsync(() -> IntStream.range(0, 10_000)
+                    .forEach(i -> submit(i % 2 == 0 ? yes : no, NOW.minusSeconds(i % 120)))));
+        writers.forEach(CompletableFuture::join);
+
+        assertArrayEquals(new long[]{40_000, 40_000}, count(Duration.ofMinutes(3), NOW));
+        // submitted at most 90 seconds before NOW, 46 of every 120 answers are yes and 45 no, plus 20 each of the last 40
+        assertArrayEquals(new long[]{8 * (83 * 46 + 20), 8 * (83 * 45 + 20)}, count(Duration.ofMinutes(2), NOW));
+    }
+}
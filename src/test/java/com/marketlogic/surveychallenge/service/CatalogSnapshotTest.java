@@ -0,0 +1,85 @@
+package com.marketlogic.surveychallenge.service;
+
+import com.marketlogic.surveychallenge.repository.CatalogSnapshotStats;
+import com.marketlogic.surveychallenge.repository.SurveyEntity;
+import com.marketlogic.surveychallenge.repository.SurveyJdbcRepository;
+import com.marketlogic.surveychallenge.rest.dto.AnswerRequest;
+import com.marketlogic.surveychallenge.rest.dto.QuestionRequest;
+import com.marketlogic.surveychallenge.rest.dto.SurveyRequest;
+import com.marketlogic.surveychallenge.rest.dto.SurveyResponse;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:snapshot-tests;DB_CLOSE_DELAY=-1",
+        "survey.snapshot.chunk-size=2"})
+class CatalogSnapshotTest {
+
+    @TempDir
+    static Path directory;
+
+    @DynamicPropertySource
+    static void snapshotFile(DynamicPropertyRegistry registry) {
+        registry.add("survey.snapshot.file", () -> directory.resolve("catalog.snapshot").toString());
+    }
+
+    @Autowired
+    private CatalogSnapshot catalogSnapshot;
+
+    @Autowired
+    private ISurveyService surveyService;
+
+    @Autowired
+    private SurveyJdbcRepository jdbcRepo;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private SurveyResponse newSurvey(int questions) {
+        return surveyService.newSurvey(SurveyRequest.builder()
+                .name("Snapshot survey")
+                .questions(IntStream.range(0, questions)
+                        .mapToObj(q -> QuestionRequest.builder()
+                                .name("Question " + q)
+                                .answers(List.of(AnswerRequest.builder().name("Yes").build(),
+                                        AnswerRequest.builder().name("No").build()))
+                                .build())
+                        .collect(Collectors.toList()))
+                .build()).orElseThrow();
+    }
+
+    @Test
+    void reloadWrittenSnapshotIntoEmptyCatalog() throws IOException {
+        List<SurveyResponse> surveys = IntStream.range(0, 5).mapToObj(i -> newSurvey(i % 3)).collect(Collectors.toList());
+        SurveyResponse withQuestions = surveys.get(1);
+        surveyService.deleteSurveyQuestion(withQuestions.getId(), withQuestions.getQuestions().get(0).getId());
+        List<SurveyEntity> before = jdbcRepo.findAllAfter(null, 100);
+
+        CatalogSnapshotStats written = catalogSnapshot.write();
+        assertEquals(5, written.getSurveys());
+        assertEquals(4, written.getQuestions());
+        assertEquals(8, written.getAnswers());
+
+        jdbcTemplate.update("delete from answers");
+        jdbcTemplate.update("delete from questions");
+        jdbcTemplate.update("delete from surveys");
+        assertTrue(jdbcRepo.isEmpty());
+
+        assertEquals(written, catalogSnapshot.load());
+        assertEquals(before, jdbcRepo.findAllAfter(null, 100));
+        assertTrue(before.get(1).getQuestions().get(0).getDeleted());
+    }
+}
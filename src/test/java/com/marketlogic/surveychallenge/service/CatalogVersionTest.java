@@ -0,0 +1,37 @@
+package com.marketlogic.surveychallenge.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CatalogVersionTest {
+
+    @Test
+    void incrementsWithoutTransaction() {
+        CatalogVersion version = new CatalogVersion();
+        String etag = version.getETag();
+
+        version.incrementAfterCommit();
+
+        assertNotEquals(etag, version.getETag());
+    }
+
+    @Test
+    void incrementsOnlyOnceCommitted() {
+        CatalogVersion version = new CatalogVersion();
+        String etag = version.getETag();
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            version.incrementAfterCommit();
+            assertEquals(etag, version.getETag());
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertNotEquals(etag, version.getETag());
+    }
+}
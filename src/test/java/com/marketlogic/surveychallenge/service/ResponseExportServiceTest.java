@@ -0,0 +1,211 @@
+package com.marketlogic.surveychallenge.service;
+
+import com.marketlogic.surveychallenge.exceptions.ServerBusyException;
+import com.marketlogic.surveychallenge.exceptions.SurveyRequestValidationException;
+import com.marketlogic.surveychallenge.repository.ShardRouter;
+import com.marketlogic.surveychallenge.repository.SubmissionJdbcRepository;
+import com.marketlogic.surveychallenge.repository.SubmittedAnswerEntity;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:export-tests;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000",
+        "survey.export.fetch-size=50",
+        "survey.export.chunk-size=512B",
+        "survey.export.queue-capacity=2",
+        "survey.export.max-concurrent-exports=1"})
+class ResponseExportServiceTest {
+
+    @Autowired
+    private IResponseExportService exportService;
+
+    @Autowired
+    private SubmissionJdbcRepository repo;
+
+    @Autowired
+    private ShardRouter router;
+
+    private List<String> insertAnswers(UUID surveyId, int questions, int responses) {
+        List<UUID> questionIds = IntStream.range(0, questions).mapToObj(i -> UUID.randomUUID()).collect(Collectors.toList());
+        Instant submittedAt = Instant.now().truncatedTo(ChronoUnit.MICROS);
+        List<SubmittedAnswerEntity> answers = new ArrayList<>();
+        for (int r = 0; r < responses; r++) {
+            UUID responseId = UUID.randomUUID();
+            for (UUID questionId : questionIds)
+                answers.add(SubmittedAnswerEntity.builder()
+                        .id(UUID.randomUUID())
+                        .responseId(responseId)
+                        .surveyId(surveyId)
+                        .questionId(questionId)
+                        .answerId(UUID.randomUUID())
+                        .submittedAt(submittedAt)
+                        .build());
+        }
+        router.inTransaction(router.shardOf(surveyId), false, () -> {
+            repo.insertAll(answers);
+            return null;
+        });
+        return answers.stream()
+                .map(a -> a.getResponseId() + "," + a.getQuestionId() + "," + a.getAnswerId() + "," + a.getSubmittedAt())
+                .collect(Collectors.toList());
+    }
+
+    /***
+     * Start an export once the export of an earlier test gave its slot back, which happens only
+     * after the future of that export completed
+     */
+    private CompletableFuture<Long> start(UUID surveyId, int parallelism, OutputStream out) {
+        return assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            while (true)
+                try {
+                    return exportService.exportCsv(surveyId, parallelism, out);
+                } catch (ServerBusyException e) {
+                    Thread.sleep(10);
+                }
+        });
+    }
+
+    private List<String> export(UUID surveyId, int parallelism, long expectedRows) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(expectedRows, start(surveyId, parallelism, out).join());
+        List<String> lines = Arrays.asList(out.toString(StandardCharsets.US_ASCII).split("\n"));
+        assertEquals(ResponseExportService.CSV_HEADER.trim(), lines.get(0));
+        return lines.subList(1, lines.size());
+    }
+
+    @Test
+    void exportEveryAnswerOnce() {
+        UUID surveyId = UUID.randomUUID();
+        List<String> rows = insertAnswers(surveyId, 7, 300);
+        insertAnswers(UUID.randomUUID(), 2, 10);
+
+        for (int parallelism : new int[]{1, 3, 16}) {
+            List<String> exported = export(surveyId, parallelism, rows.size());
+            assertEquals(rows.size(), exported.size());
+            assertEquals(new HashSet<>(rows), new HashSet<>(exported));
+        }
+    }
+
+    @Test
+    void exportWithoutAnswers() {
+        assertTrue(export(UUID.randomUUID(), 2, 0).isEmpty());
+        assertThrows(SurveyRequestValidationException.class,
+                () -> exportService.exportCsv(UUID.randomUUID(), 0, new ByteArrayOutputStream()));
+    }
+
+    @Test
+    void failingOutputStopsTheExport() {
+        UUID surveyId = UUID.randomUUID();
+        insertAnswers(surveyId, 4, 500);
+        OutputStream broken = new OutputStream() {
+            private int written;
+
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                written += len;
+                if (written > 2048)
+                    throw new IOException("Connection reset");
+            }
+        };
+
+        CompletionException thrown = assertTimeoutPreemptively(Duration.ofSeconds(10),
+                () -> assertThrows(CompletionException.class, () -> start(surveyId, 4, broken).join()));
+        assertInstanceOf(IOException.class, thrown.getCause());
+        assertEquals("Connection reset", thrown.getCause().getMessage());
+    }
+
+    /***
+     * Output that blocks every write until released
+     */
+    private static OutputStream blockingOutput(CountDownLatch blocked, CountDownLatch release) {
+        return new OutputStream() {
+            @Override
+            public void write(int b) {
+                write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                blocked.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+    }
+
+    @Test
+    void concurrentExportsAreCapped() throws Exception {
+        UUID surveyId = UUID.randomUUID();
+        insertAnswers(surveyId, 2, 500);
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<Long> running = start(surveyId, 2, blockingOutput(blocked, release));
+        assertTrue(blocked.await(10, TimeUnit.SECONDS));
+        assertThrows(ServerBusyException.class, () -> exportService.exportCsv(surveyId, 1, new ByteArrayOutputStream()));
+
+        release.countDown();
+        assertEquals(1000, running.get(10, TimeUnit.SECONDS));
+        assertEquals(1000, export(surveyId, 1, 1000).size());
+    }
+
+    @Test
+    void cancelledExportStops() throws Exception {
+        UUID surveyId = UUID.randomUUID();
+        insertAnswers(surveyId, 4, 500);
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<Long> cancelled = start(surveyId, 4, blockingOutput(blocked, release));
+        assertTrue(blocked.await(10, TimeUnit.SECONDS));
+        cancelled.cancel(false);
+        release.countDown();
+
+        assertThrows(CancellationException.class, cancelled::join);
+        assertEquals(2000, export(surveyId, 1, 2000).size());
+    }
+
+    @Test
+    void splitIntoContiguousRanges() {
+        List<UUID> ids = IntStream.range(0, 7).mapToObj(i -> new UUID(0, i)).collect(Collectors.toList());
+
+        assertEquals(List.of(2, 2, 3), ResponseExportService.split(ids, 3).stream()
+                .map(List::size).collect(Collectors.toList()));
+        assertEquals(ids, ResponseExportService.split(ids, 3).stream()
+                .flatMap(List::stream).collect(Collectors.toList()));
+        assertEquals(2, ResponseExportService.split(ids.subList(0, 2), 4).size());
+        assertTrue(ResponseExportService.split(List.of(), 4).isEmpty());
+    }
+}
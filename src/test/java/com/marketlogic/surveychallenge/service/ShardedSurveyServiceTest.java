@@ -0,0 +1,198 @@
+package com.marketlogic.surveychallenge.service;
+
+import com.marketlogic.surveychallenge.repository.ShardRouter;
+import com.marketlogic.surveychallenge.repository.SurveyEntity;
+import com.marketlogic.surveychallenge.rest.dto.AnswerRequest;
+import com.marketlogic.surveychallenge.rest.dto.BulkImportResponse;
+import com.marketlogic.surveychallenge.rest.dto.DisableQuestionsRequest;
+import com.marketlogic.surveychallenge.rest.dto.DisableQuestionsResponse;
+import com.marketlogic.surveychallenge.rest.dto.QuestionRequest;
+import com.marketlogic.surveychallenge.rest.dto.SubmissionRequest;
+import com.marketlogic.surveychallenge.rest.dto.SubmittedAnswerRequest;
+import com.marketlogic.surveychallenge.rest.dto.SurveyPageResponse;
+import com.marketlogic.surveychallenge.rest.dto.SurveyRequest;
+import com.marketlogic.surveychallenge.rest.dto.SurveyResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "survey.sharding.enabled=true",
+        "survey.sharding.urls[0]=jdbc:h2:mem:shard-tests-0;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000",
+        "survey.sharding.urls[1]=jdbc:h2:mem:shard-tests-1;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000",
+        "survey.sharding.urls[2]=jdbc:h2:mem:shard-tests-2;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000"})
+class ShardedSurveyServiceTest {
+
+    @Autowired
+    private ISurveyService surveyService;
+
+    @Autowired
+    private ISubmissionService submissionService;
+
+    @Autowired
+    private IStatisticsService statisticsService;
+
+    @Autowired
+    private AnswerCounters counters;
+
+    @Autowired
+    private ShardRouter router;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private SurveyResponse newSurvey() {
+        return surveyService.newSurvey(SurveyRequest.builder()
+                .name("Sharded survey " + UUID.randomUUID())
+                .questions(List.of(
+                        QuestionRequest.builder().name("Question 1")
+                                .answers(List.of(AnswerRequest.builder().name("Yes").build(),
+                                        AnswerRequest.builder().name("No").build()))
+                                .build(),
+                        QuestionRequest.builder().name("Question 2")
+                                .answers(List.of(AnswerRequest.builder().name("Maybe").build()))
+                                .build()))
+                .build()).orElseThrow();
+    }
+
+    private long count(int shard, String sql, Object... args) {
+        Long count = router.onShard(shard, () -> jdbcTemplate.queryForObject(sql, Long.class, args));
+        return count == null ? 0 : count;
+    }
+
+    private boolean stored(int shard, UUID surveyId) {
+        return count(shard, "select count(*) from surveys where id = ?", surveyId) == 1;
+    }
+
+    @Test
+    void surveysAreStoredOnTheShardOfTheirId() {
+        List<SurveyResponse> surveys = IntStream.range(0, 30).mapToObj(i -> newSurvey()).collect(Collectors.toList());
+
+        for (SurveyResponse survey : surveys)
+            for (int shard = 0; shard < router.count(); shard++)
+                assertEquals(shard == router.shardOf(survey.getId()), stored(shard, survey.getId()));
+        for (int shard = 0; shard < router.count(); shard++)
+            assertTrue(count(shard, "select count(*) from surveys") > 0, "Shard " + shard + " holds no survey");
+    }
+
+    private List<UUID> listSurveyIds(int limit) {
+        List<UUID> ids = new ArrayList<>();
+        UUID after = null;
+        do {
+            SurveyPageResponse page = surveyService.getSurveys(after, limit, SurveyFields.ALL);
+            page.getSurveys().forEach(survey -> ids.add(survey.getId()));
+            after = page.getNextCursor();
+        } while (after != null);
+        return ids;
+    }
+
+    @Test
+    void getSurveysMergesShardsInIdOrder() {
+        IntStream.range(0, 20).forEach(i -> newSurvey());
+        long total = IntStream.range(0, router.count())
+                .mapToLong(shard -> count(shard, "select count(*) from surveys where deleted = false"))
+                .sum();
+
+        List<UUID> ids = listSurveyIds(7);
+
+        assertEquals(total, ids.size());
+        assertEquals(ids.stream().sorted(SurveyService.ID_ORDER).collect(Collectors.toList()), ids);
+        assertEquals(ids.size(), new HashSet<>(ids).size());
+    }
+
+    @Test
+    void getSurveysMergesIdsOnBothSidesOfTheSignBit() {
+        List<UUID> inserted = new ArrayList<>();
+        for (long mostSignificant : new long[]{1, Long.MAX_VALUE, Long.MIN_VALUE, -1})
+            for (long leastSignificant : new long[]{1, -1, 3, -2})
+                inserted.add(new UUID(mostSignificant, leastSignificant));
+        for (UUID id : inserted)
+            router.inTransaction(router.shardOf(id), false, () -> {
+                surveyService.insertSurveys(List.of(SurveyEntity.builder().id(id).name("Signed " + id).deleted(false).build()));
+                return null;
+            });
+        assertEquals(router.count(), inserted.stream().map(router::shardOf).distinct().count());
+
+        List<UUID> ids = listSurveyIds(3);
+
+        assertTrue(ids.containsAll(inserted));
+        assertEquals(ids.stream().sorted(SurveyService.ID_ORDER).collect(Collectors.toList()), ids);
+        assertEquals(ids.size(), new HashSet<>(ids).size());
+    }
+
+    @Test
+    void writesRunOnTheShardOfTheSurvey() {
+        SurveyResponse survey = newSurvey();
+        int shard = router.shardOf(survey.getId());
+        UUID questionId = survey.getQuestions().get(0).getId();
+        UUID answerId = survey.getQuestions().get(0).getAnswers().get(1).getId();
+
+        submissionService.submit(survey.getId(), SubmissionRequest.builder()
+                .answers(List.of(SubmittedAnswerRequest.builder().questionId(questionId).answerId(answerId).build()))
+                .build(), AckMode.DURABLE, "sharded-key").join().orElseThrow();
+        counters.flush();
+
+        assertEquals(1, count(shard, "select count(*) from responses where survey_id = ?", survey.getId()));
+        assertEquals(1, count(shard, "select count(*) from response_keys where survey_id = ?", survey.getId()));
+        assertEquals(1, count(shard, "select total from answer_counts where answer_id = ?", answerId));
+        assertEquals(1, statisticsService.getDistribution(survey.getId(), questionId).orElseThrow().getTotal());
+
+        SurveyResponse deleted = surveyService.deleteSurveyQuestion(survey.getId(), questionId).orElseThrow();
+        assertEquals(1, deleted.getQuestions().size());
+        assertEquals(1, count(shard, "select count(*) from questions where id = ? and deleted = true", questionId));
+        assertTrue(surveyService.getSurveyETag(survey.getId()).isPresent());
+    }
+
+    @Test
+    void disableQuestionsOnEveryShard() {
+        List<SurveyResponse> surveys = new ArrayList<>();
+        Set<Integer> shards = new HashSet<>();
+        while (shards.size() < router.count()) {
+            SurveyResponse survey = newSurvey();
+            if (shards.add(router.shardOf(survey.getId())))
+                surveys.add(survey);
+        }
+
+        DisableQuestionsResponse response = surveyService.disableQuestions(DisableQuestionsRequest.builder()
+                .questionIds(surveys.stream()
+                        .map(survey -> survey.getQuestions().get(1).getId())
+                        .collect(Collectors.toList()))
+                .build());
+
+        assertEquals(router.count(), response.getQuestions());
+        assertEquals(surveys.stream().map(SurveyResponse::getId).collect(Collectors.toSet()),
+                new HashSet<>(response.getSurveyIds()));
+        for (SurveyResponse survey : surveys)
+            assertEquals(1, surveyService.getSurvey(survey.getId()).orElseThrow().getQuestions().size());
+    }
+
+    @Test
+    void importSurveysAcrossShards() throws Exception {
+        String body = IntStream.range(0, 12)
+                .mapToObj(i -> "{\"name\":\"Imported " + i + "\",\"questions\":[]}")
+                .collect(Collectors.joining("\n"));
+
+        BulkImportResponse response = surveyService.importSurveys(
+                new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(12, response.getImported());
+        assertEquals(0, response.getFailed());
+        long imported = IntStream.range(0, router.count())
+                .mapToLong(shard -> count(shard, "select count(*) from surveys where name like 'Imported %'"))
+                .sum();
+        assertEquals(12, imported);
+    }
+}
@@ -0,0 +1,161 @@
+package com.marketlogic.surveychallenge.service;
+
+import com.marketlogic.surveychallenge.exceptions.IdempotencyKeyReusedException;
+import com.marketlogic.surveychallenge.exceptions.SubmissionValidationException;
+import com.marketlogic.surveychallenge.rest.dto.AnswerRequest;
+import com.marketlogic.surveychallenge.rest.dto.QuestionRequest;
+import com.marketlogic.surveychallenge.rest.dto.SubmissionRequest;
+import com.marketlogic.surveychallenge.rest.dto.SubmissionResponse;
+import com.marketlogic.surveychallenge.rest.dto.SubmittedAnswerRequest;
+import com.marketlogic.surveychallenge.rest.dto.SurveyRequest;
+import com.marketlogic.surveychallenge.rest.dto.SurveyResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:idempotency-tests;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000")
+class SubmissionIdempotencyTest {
+
+    @Autowired
+    private ISurveyService surveyService;
+
+    @Autowired
+    private ISubmissionService submissionService;
+
+    @Autowired
+    private IStatisticsService statisticsService;
+
+    @Autowired
+    private IdempotencyKeys idempotencyKeys;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private SurveyResponse survey;
+
+    @BeforeEach
+    void createSurvey() {
+        survey = surveyService.newSurvey(SurveyRequest.builder()
+                .name("Idempotent survey")
+                .questions(List.of(QuestionRequest.builder()
+                        .name("Question")
+                        .answers(List.of(AnswerRequest.builder().name("Yes").build(),
+                                AnswerRequest.builder().name("No").build()))
+                        .build()))
+                .build()).orElseThrow();
+    }
+
+    private SubmissionRequest submission(int answer) {
+        return SubmissionRequest.builder()
+                .answers(List.of(SubmittedAnswerRequest.builder()
+                        .questionId(survey.getQuestions().get(0).getId())
+                        .answerId(survey.getQuestions().get(0).getAnswers().get(answer).getId())
+                        .build()))
+                .build();
+    }
+
+    private SubmissionResponse submit(String key, AckMode ack) {
+        return submissionService.submit(survey.getId(), submission(0), ack, key).join().orElseThrow();
+    }
+
+    private int countResponses() {
+        Integer count = jdbcTemplate.queryForObject(
+                "select count(distinct response_id) from responses where survey_id = ?", Integer.class, survey.getId());
+        return count == null ? 0 : count;
+    }
+
+    @Test
+    void concurrentSubmissionsWithSameKey() throws Exception {
+        int threads = 32;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<SubmissionResponse>> responses = new ArrayList<>();
+        try {
+            for (int i = 0; i < threads; i++) {
+                AckMode ack = i % 2 == 0 ? AckMode.DURABLE : AckMode.ENQUEUE;
+                responses.add(executor.submit(() -> {
+                    start.await();
+                    return submit("retried-key", ack);
+                }));
+            }
+            start.countDown();
+
+            Set<UUID> ids = new HashSet<>();
+            for (Future<SubmissionResponse> response : responses)
+                ids.add(response.get().getId());
+            assertEquals(1, ids.size());
+        } finally {
+            executor.shutdown();
+        }
+
+        // a durable submission with another key is written after every earlier batch
+        submit(null, AckMode.DURABLE);
+        assertEquals(2, countResponses());
+        assertEquals(2, statisticsService.getDistribution(survey.getId(), survey.getQuestions().get(0).getId())
+                .orElseThrow().getTotal());
+    }
+
+    @Test
+    void replayAfterEvictionReturnsStoredResponse() {
+        SubmissionResponse original = submit("evicted-key", AckMode.DURABLE);
+        idempotencyKeys.invalidateAll();
+
+        SubmissionResponse replayed = submit("evicted-key", AckMode.DURABLE);
+
+        assertEquals(original.getId(), replayed.getId());
+        assertEquals(original.getSubmittedAt(), replayed.getSubmittedAt());
+        assertEquals(1, countResponses());
+    }
+
+    @Test
+    void reusedKeyWithOtherBodyIsRejected() {
+        SubmissionResponse original = submit("reused-key", AckMode.ENQUEUE);
+
+        assertThrows(IdempotencyKeyReusedException.class, () -> submissionService.submit(survey.getId(),
+                submission(1), AckMode.DURABLE, "reused-key"));
+
+        assertEquals(original.getId(), submit("reused-key", AckMode.DURABLE).getId());
+        assertEquals(1, countResponses());
+    }
+
+    @Test
+    void keysAreScopedToSurveys() {
+        SubmissionResponse first = submit("shared-key", AckMode.DURABLE);
+        createSurvey();
+        SubmissionResponse second = submit("shared-key", AckMode.DURABLE);
+
+        assertNotEquals(first.getId(), second.getId());
+        assertEquals(1, countResponses());
+    }
+
+    @Test
+    void rejectedSubmissionReleasesKey() {
+        assertThrows(SubmissionValidationException.class, () -> submissionService.submit(survey.getId(),
+                SubmissionRequest.builder().build(), AckMode.DURABLE, "rejected-key"));
+
+        submit("rejected-key", AckMode.DURABLE);
+
+        assertEquals(1, countResponses());
+    }
+
+    @Test
+    void invalidKey() {
+        SubmissionValidationException thrown = assertThrows(SubmissionValidationException.class,
+                () -> submit(" ", AckMode.DURABLE));
+        assertEquals("Idempotency key must have 1 to 255 characters", thrown.getMessage());
+    }
+}
@@ -0,0 +1,152 @@
+package com.marketlogic.surveychallenge.service;
+
+import com.marketlogic.surveychallenge.config.ResponseJournalProperties;
+import com.marketlogic.surveychallenge.repository.ResponseJournal;
+import com.marketlogic.surveychallenge.repository.SubmissionJdbcRepository;
+import com.marketlogic.surveychallenge.repository.SubmittedAnswerEntity;
+import com.marketlogic.surveychallenge.repository.UuidV7Generator;
+import com.marketlogic.surveychallenge.rest.dto.AnswerRequest;
+import com.marketlogic.surveychallenge.rest.dto.QuestionRequest;
+import com.marketlogic.surveychallenge.rest.dto.SubmissionRequest;
+import com.marketlogic.surveychallenge.rest.dto.SubmissionResponse;
+import com.marketlogic.surveychallenge.rest.dto.SubmittedAnswerRequest;
+import com.marketlogic.surveychallenge.rest.dto.SurveyRequest;
+import com.marketlogic.surveychallenge.rest.dto.SurveyResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doThrow;
+
+/***
+ * The journal is written before the application starts: a committed, an aborted and an unterminated
+ * batch. Only the committed batch may reach the responses table, the counters and the bitmaps.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:replay-tests;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000")
+class SubmissionReplayTest {
+    private static final UUID SURVEY_ID = UuidV7Generator.next();
+    private static final UUID COMMITTED = UuidV7Generator.next();
+    private static final UUID ABORTED = UuidV7Generator.next();
+    private static final UUID UNTERMINATED = UuidV7Generator.next();
+    private static Path directory;
+
+    @Autowired
+    private ISurveyService surveyService;
+
+    @Autowired
+    private ISubmissionService submissionService;
+
+    @Autowired
+    private AnswerCounters counters;
+
+    @Autowired
+    private AnswerBitmaps bitmaps;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @SpyBean
+    private SubmissionJdbcRepository repo;
+
+    private static ResponseJournal journal() {
+        ResponseJournalProperties properties = new ResponseJournalProperties();
+        properties.setEnabled(true);
+        properties.setDirectory(directory);
+        return new ResponseJournal(properties);
+    }
+
+    private static List<SubmittedAnswerEntity> answers(UUID answerId) {
+        UUID responseId = UuidV7Generator.next();
+        return List.of(SubmittedAnswerEntity.builder()
+                .id(UuidV7Generator.next())
+                .responseId(responseId)
+                .surveyId(SURVEY_ID)
+                .questionId(UuidV7Generator.next())
+                .answerId(answerId)
+                .submittedAt(Instant.now())
+                .build());
+    }
+
+    @DynamicPropertySource
+    static void journalProperties(DynamicPropertyRegistry registry) throws IOException {
+        directory = Files.createTempDirectory("replay-tests");
+        ResponseJournal journal = journal();
+        journal.recover(100, answers -> fail("The journal is new"));
+        journal.commit(journal.append(answers(COMMITTED)));
+        journal.abort(journal.append(answers(ABORTED)));
+        journal.append(answers(UNTERMINATED));
+        journal.close();
+
+        registry.add("survey.journal.enabled", () -> "true");
+        registry.add("survey.journal.directory", directory::toString);
+    }
+
+    @Test
+    void replayOnlyCommittedBatches() {
+        assertEquals(List.of(COMMITTED), jdbcTemplate.queryForList(
+                "select answer_id from responses where survey_id = ?", UUID.class, SURVEY_ID));
+        assertEquals(1, counters.count(COMMITTED));
+        assertEquals(0, counters.count(ABORTED));
+        assertEquals(0, counters.count(UNTERMINATED));
+        assertArrayEquals(new long[]{1, 0, 0},
+                bitmaps.count(SURVEY_ID, List.of(COMMITTED, ABORTED, UNTERMINATED), List.of()));
+    }
+
+    @Test
+    void failedInsertIsNotReplayed() throws IOException {
+        SurveyResponse survey = surveyService.newSurvey(SurveyRequest.builder()
+                .name("Journaled survey")
+                .questions(List.of(QuestionRequest.builder()
+                        .name("Question")
+                        .answers(List.of(AnswerRequest.builder().name("Rejected").build(),
+                                AnswerRequest.builder().name("Stored").build()))
+                        .build()))
+                .build()).orElseThrow();
+        UUID rejected = survey.getQuestions().get(0).getAnswers().get(0).getId();
+        UUID stored = survey.getQuestions().get(0).getAnswers().get(1).getId();
+
+        doThrow(new DataAccessResourceFailureException("Insert failed"))
+                .doCallRealMethod()
+                .when(repo).insertAll(anyList());
+        assertThrows(CompletionException.class, () -> submit(survey, rejected).join());
+        submit(survey, stored).join().orElseThrow();
+
+        List<SubmittedAnswerEntity> recovered = new ArrayList<>();
+        ResponseJournal reopened = journal();
+        reopened.recover(100, recovered::addAll);
+        reopened.close();
+        Set<UUID> answerIds = recovered.stream().map(SubmittedAnswerEntity::getAnswerId).collect(Collectors.toSet());
+        assertEquals(Set.of(COMMITTED, stored), answerIds);
+        assertEquals(0, counters.count(rejected));
+        assertEquals(1, counters.count(stored));
+    }
+
+    private CompletableFuture<Optional<SubmissionResponse>> submit(SurveyResponse survey, UUID answerId) {
+        return submissionService.submit(survey.getId(), SubmissionRequest.builder()
+                .answers(List.of(SubmittedAnswerRequest.builder()
+                        .questionId(survey.getQuestions().get(0).getId())
+                        .answerId(answerId)
+                        .build()))
+                .build(), AckMode.DURABLE, null);
+    }
+}
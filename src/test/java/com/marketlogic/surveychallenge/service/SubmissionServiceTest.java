@@ -0,0 +1,242 @@
+package com.marketlogic.surveychallenge.service;
+
+import com.marketlogic.surveychallenge.exceptions.SubmissionValidationException;
+import com.marketlogic.surveychallenge.exceptions.SurveyRequestValidationException;
+import com.marketlogic.surveychallenge.rest.dto.AnswerDistributionResponse;
+import com.marketlogic.surveychallenge.rest.dto.AnswerRequest;
+import com.marketlogic.surveychallenge.rest.dto.DistributionResponse;
+import com.marketlogic.surveychallenge.rest.dto.QuestionRequest;
+import com.marketlogic.surveychallenge.rest.dto.SubmissionRequest;
+import com.marketlogic.surveychallenge.rest.dto.SubmissionResponse;
+import com.marketlogic.surveychallenge.rest.dto.SubmittedAnswerRequest;
+import com.marketlogic.surveychallenge.rest.dto.SurveyRequest;
+import com.marketlogic.surveychallenge.rest.dto.SurveyResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.transaction.Transactional;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@Transactional
+class SubmissionServiceTest {
+
+    @Autowired
+    private ISurveyService surveyService;
+
+    @Autowired
+    private ISubmissionService submissionService;
+
+    @Autowired
+    private IStatisticsService statisticsService;
+
+    @Autowired
+    private AnswerCounters counters;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private SurveyResponse survey;
+
+    @BeforeEach
+    void createSurvey() {
+        survey = surveyService.newSurvey(SurveyRequest.builder()
+                .name("Test survey name " + UUID.randomUUID())
+                .questions(Arrays.asList(
+                        QuestionRequest.builder()
+                                .name("Test question name " + UUID.randomUUID())
+                                .answers(Arrays.asList(
+                                        AnswerRequest.builder().name("Answer 1").build(),
+                                        AnswerRequest.builder().name("Answer 2").build()
+                                ))
+                                .build(),
+                        QuestionRequest.builder()
+                                .name("Test question name " + UUID.randomUUID())
+                                .answers(Arrays.asList(
+                                        AnswerRequest.builder().name("Answer 3").build(),
+                                        AnswerRequest.builder().name("Answer 4").build()
+                                ))
+                                .build()
+                ))
+                .build()).orElseThrow();
+    }
+
+    private SubmittedAnswerRequest answer(int question, int answer) {
+        return SubmittedAnswerRequest.builder()
+                .questionId(survey.getQuestions().get(question).getId())
+                .answerId(survey.getQuestions().get(question).getAnswers().get(answer).getId())
+                .build();
+    }
+
+    private int countAnswers(UUID responseId) {
+        Integer count = jdbcTemplate.queryForObject(
+                "select count(*) from responses where response_id = ?", Integer.class, responseId);
+        return count == null ? 0 : count;
+    }
+
+    @Test
+    void submitDurable() {
+        SubmissionRequest submission = SubmissionRequest.builder()
+                .answers(Arrays.asList(answer(0, 1), answer(1, 0)))
+                .build();
+
+        Optional<SubmissionResponse> response = submissionService.submit(survey.getId(), submission, AckMode.DURABLE, null).join();
+
+        assertTrue(response.isPresent());
+        assertEquals(survey.getId(), response.get().getSurveyId());
+        assertEquals(2, countAnswers(response.get().getId()));
+    }
+
+    @Test
+    void submitEnqueueIsBatched() {
+        List<CompletableFuture<Optional<SubmissionResponse>>> responses = IntStream.range(0, 100)
+                .mapToObj(i -> submissionService.submit(survey.getId(), SubmissionRequest.builder()
+                        .answers(Collections.singletonList(answer(i % 2, i % 2)))
+                        .build(), AckMode.ENQUEUE, null))
+                .collect(Collectors.toList());
+
+        responses.forEach(r -> assertTrue(r.isDone()));
+        Optional<SubmissionResponse> last = submissionService.submit(survey.getId(), SubmissionRequest.builder()
+                .answers(Collections.singletonList(answer(0, 0)))
+                .build(), AckMode.DURABLE, null).join();
+
+        assertTrue(last.isPresent());
+        for (CompletableFuture<Optional<SubmissionResponse>> response : responses)
+            assertEquals(1, countAnswers(response.join().orElseThrow().getId()));
+    }
+
+    @Test
+    void submitUnknownSurvey() {
+        SubmissionRequest submission = SubmissionRequest.builder()
+                .answers(Collections.singletonList(answer(0, 0)))
+                .build();
+
+        assertTrue(submissionService.submit(UUID.randomUUID(), submission, AckMode.DURABLE, null).join().isEmpty());
+    }
+
+    @Test
+    void submitInvalid_NoAnswers() {
+        SubmissionValidationException thrown = assertThrows(SubmissionValidationException.class,
+                () -> submissionService.submit(survey.getId(), SubmissionRequest.builder().build(), AckMode.DURABLE, null),
+                "SubmissionValidationException exception was expected");
+        assertEquals("Submission has no answers", thrown.getMessage());
+    }
+
+    @Test
+    void submitInvalid_AnswerOfOtherQuestion() {
+        SubmissionRequest submission = SubmissionRequest.builder()
+                .answers(Collections.singletonList(SubmittedAnswerRequest.builder()
+                        .questionId(survey.getQuestions().get(0).getId())
+                        .answerId(survey.getQuestions().get(1).getAnswers().get(0).getId())
+                        .build()))
+                .build();
+
+        SubmissionValidationException thrown = assertThrows(SubmissionValidationException.class,
+                () -> submissionService.submit(survey.getId(), submission, AckMode.DURABLE, null),
+                "SubmissionValidationException exception was expected");
+        assertEquals("Answer is not defined for the question", thrown.getMessage());
+    }
+
+    @Test
+    void submitInvalid_QuestionAnsweredTwice() {
+        SubmissionRequest submission = SubmissionRequest.builder()
+                .answers(Arrays.asList(answer(0, 0), answer(0, 1)))
+                .build();
+
+        SubmissionValidationException thrown = assertThrows(SubmissionValidationException.class,
+                () -> submissionService.submit(survey.getId(), submission, AckMode.DURABLE, null),
+                "SubmissionValidationException exception was expected");
+        assertEquals("Question is answered more than once", thrown.getMessage());
+    }
+
+    @Test
+    void submitInvalid_DeletedQuestion() {
+        surveyService.deleteSurveyQuestion(survey.getId(), survey.getQuestions().get(0).getId());
+        SubmissionRequest submission = SubmissionRequest.builder()
+                .answers(Collections.singletonList(answer(0, 0)))
+                .build();
+
+        SubmissionValidationException thrown = assertThrows(SubmissionValidationException.class,
+                () -> submissionService.submit(survey.getId(), submission, AckMode.DURABLE, null),
+                "SubmissionValidationException exception was expected");
+        assertEquals("Question is not defined in the survey", thrown.getMessage());
+    }
+
+    @Test
+    void distributionOfSubmittedAnswers() {
+        for (int i = 0; i < 4; i++)
+            submissionService.submit(survey.getId(), SubmissionRequest.builder()
+                    .answers(Arrays.asList(answer(0, i == 0 ? 0 : 1), answer(1, 0)))
+                    .build(), AckMode.DURABLE, null).join();
+
+        Optional<DistributionResponse> distribution =
+                statisticsService.getDistribution(survey.getId(), survey.getQuestions().get(0).getId());
+
+        assertTrue(distribution.isPresent());
+        assertEquals(4, distribution.get().getTotal());
+        List<AnswerDistributionResponse> answers = distribution.get().getAnswers();
+        assertEquals(2, answers.size());
+        assertEquals(1, answers.get(0).getCount());
+        assertEquals(0.25, answers.get(0).getRatio());
+        assertEquals(3, answers.get(1).getCount());
+        assertEquals(0.75, answers.get(1).getRatio());
+
+        counters.flush();
+        Long persisted = jdbcTemplate.queryForObject("select total from answer_counts where answer_id = ?",
+                Long.class, survey.getQuestions().get(0).getAnswers().get(1).getId());
+        assertEquals(3, persisted);
+    }
+
+    @Test
+    void distributionFilteredByAnswers() {
+        int[][] responses = {{0, 0}, {0, 1}, {1, 0}, {1, 0}, {1, 1}};
+        for (int[] response : responses)
+            submissionService.submit(survey.getId(), SubmissionRequest.builder()
+                    .answers(Arrays.asList(answer(0, response[0]), answer(1, response[1])))
+                    .build(), AckMode.DURABLE, null).join();
+        UUID question = survey.getQuestions().get(1).getId();
+        UUID answer1 = survey.getQuestions().get(0).getAnswers().get(0).getId();
+        UUID answer2 = survey.getQuestions().get(0).getAnswers().get(1).getId();
+        UUID answer3 = survey.getQuestions().get(1).getAnswers().get(0).getId();
+
+        DistributionResponse filtered = statisticsService.getDistribution(survey.getId(), question, List.of(answer2))
+                .orElseThrow();
+        assertEquals(3, filtered.getTotal());
+        assertEquals(List.of(2L, 1L), filtered.getAnswers().stream()
+                .map(AnswerDistributionResponse::getCount).collect(Collectors.toList()));
+
+        DistributionResponse either = statisticsService.getDistribution(survey.getId(), question,
+                List.of(answer1, answer2)).orElseThrow();
+        assertEquals(5, either.getTotal());
+
+        DistributionResponse both = statisticsService.getDistribution(survey.getId(), question,
+                List.of(answer1, answer3)).orElseThrow();
+        assertEquals(List.of(1L, 0L), both.getAnswers().stream()
+                .map(AnswerDistributionResponse::getCount).collect(Collectors.toList()));
+    }
+
+    @Test
+    void distributionFilteredByForeignAnswer() {
+        SurveyRequestValidationException thrown = assertThrows(SurveyRequestValidationException.class,
+                () -> statisticsService.getDistribution(survey.getId(), survey.getQuestions().get(0).getId(),
+                        List.of(UUID.randomUUID())));
+        assertTrue(thrown.getMessage().startsWith("Filter answer"));
+    }
+
+    @Test
+    void distributionOfUnknownQuestion() {
+        assertTrue(statisticsService.getDistribution(survey.getId(), UUID.randomUUID()).isEmpty());
+    }
+}
@@ -0,0 +1,71 @@
+package com.marketlogic.surveychallenge.service;
+
+import com.marketlogic.surveychallenge.rest.dto.AnswerRequest;
+import com.marketlogic.surveychallenge.rest.dto.QuestionRequest;
+import com.marketlogic.surveychallenge.rest.dto.SubmissionRequest;
+import com.marketlogic.surveychallenge.rest.dto.SubmissionResponse;
+import com.marketlogic.surveychallenge.rest.dto.SubmittedAnswerRequest;
+import com.marketlogic.surveychallenge.rest.dto.SurveyRequest;
+import com.marketlogic.surveychallenge.rest.dto.SurveyResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/***
+ * Interrupts the writer thread of its own context while a durable submission waits for its batch to fill
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:interrupt-tests;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000",
+        "survey.submissions.max-delay=30s"})
+@DirtiesContext
+class SubmissionWriterInterruptTest {
+
+    @Autowired
+    private ISurveyService surveyService;
+
+    @Autowired
+    private ISubmissionService submissionService;
+
+    @Autowired
+    private SubmissionBatchWriter writer;
+
+    @Test
+    void interruptedWriterFailsPendingSubmissions() throws Exception {
+        SurveyResponse survey = surveyService.newSurvey(SurveyRequest.builder()
+                .name("Interrupted survey")
+                .questions(List.of(QuestionRequest.builder()
+                        .name("Question")
+                        .answers(List.of(AnswerRequest.builder().name("Yes").build()))
+                        .build()))
+                .build()).orElseThrow();
+        SubmissionRequest submission = SubmissionRequest.builder()
+                .answers(List.of(SubmittedAnswerRequest.builder()
+                        .questionId(survey.getQuestions().get(0).getId())
+                        .answerId(survey.getQuestions().get(0).getAnswers().get(0).getId())
+                        .build()))
+                .build();
+        CompletableFuture<Optional<SubmissionResponse>> pending =
+                submissionService.submit(survey.getId(), submission, AckMode.DURABLE, null);
+        while (writer.queueSize() > 0)
+            Thread.sleep(10);
+
+        Thread worker = (Thread) ReflectionTestUtils.getField(writer, "worker");
+        assertNotNull(worker);
+        worker.interrupt();
+
+        ExecutionException thrown = assertThrows(ExecutionException.class, () -> pending.get(10, TimeUnit.SECONDS));
+        assertEquals("Submission writer was interrupted", thrown.getCause().getMessage());
+        worker.join(10_000);
+        assertFalse(writer.offer(Submission.builder().build()));
+    }
+}
@@ -0,0 +1,50 @@
+package com.marketlogic.surveychallenge.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.marketlogic.surveychallenge.config.SurveyCacheProperties;
+import com.marketlogic.surveychallenge.repository.SurveyVersion;
+import com.marketlogic.surveychallenge.rest.dto.SurveyResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SurveyCacheTest {
+
+    private SurveyCache cache(long maxEntries) {
+        SurveyCacheProperties properties = new SurveyCacheProperties();
+        properties.setMaxEntries(maxEntries);
+        return new SurveyCache(properties, new SimpleMeterRegistry());
+    }
+
+    private CachedSurvey survey(UUID id, long version, String name) {
+        return new CachedSurvey(new SurveyVersion(version, 0, 0), SurveyResponse.builder().id(id).name(name).questions(new ArrayList<>()).build(),
+                new ObjectMapper());
+    }
+
+    @Test
+    void olderVersionDoesNotReplaceNewer() {
+        SurveyCache cache = cache(10);
+        UUID id = UUID.randomUUID();
+
+        cache.put(survey(id, 2, "Written"));
+        cache.put(survey(id, 1, "Loaded before the write"));
+
+        assertEquals("Written", cache.get(id).orElseThrow().getSurvey().getName());
+        assertEquals(2, cache.get(id).orElseThrow().getVersion());
+    }
+
+    @Test
+    void newerVersionReplacesOlder() {
+        SurveyCache cache = cache(10);
+        UUID id = UUID.randomUUID();
+
+        cache.put(survey(id, 1, "Old"));
+        cache.putAfterCommit(survey(id, 2, "New"));
+
+        assertEquals("New", cache.get(id).orElseThrow().getSurvey().getName());
+    }
+}
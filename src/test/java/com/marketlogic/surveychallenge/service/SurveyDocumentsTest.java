@@ -0,0 +1,176 @@
+package com.marketlogic.surveychallenge.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.marketlogic.surveychallenge.repository.SurveyDocument;
+import com.marketlogic.surveychallenge.repository.SurveyDocumentJdbcRepository;
+import com.marketlogic.surveychallenge.repository.SurveyVersion;
+import com.marketlogic.surveychallenge.rest.dto.AnswerRequest;
+import com.marketlogic.surveychallenge.rest.dto.DisableQuestionsRequest;
+import com.marketlogic.surveychallenge.rest.dto.DocumentRebuildResponse;
+import com.marketlogic.surveychallenge.rest.dto.QuestionRequest;
+import com.marketlogic.surveychallenge.rest.dto.SurveyPageResponse;
+import com.marketlogic.surveychallenge.rest.dto.SurveyRequest;
+import com.marketlogic.surveychallenge.rest.dto.SurveyResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:document-tests;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000",
+        "survey.documents.rebuild-chunk-size=7",
+        "survey.documents.rebuild-threads=3"})
+class SurveyDocumentsTest {
+
+    @Autowired
+    private ISurveyService surveyService;
+
+    @Autowired
+    private SurveyDocumentJdbcRepository documents;
+
+    @Autowired
+    private SurveyCache cache;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private SurveyResponse newSurvey() {
+        return surveyService.newSurvey(SurveyRequest.builder()
+                .name("Document survey " + UUID.randomUUID())
+                .questions(IntStream.range(0, 2)
+                        .mapToObj(q -> QuestionRequest.builder()
+                                .name("Question " + q)
+                                .answers(List.of(AnswerRequest.builder().name("Yes").build(),
+                                        AnswerRequest.builder().name("No").build()))
+                                .build())
+                        .collect(Collectors.toList()))
+                .build()).orElseThrow();
+    }
+
+    private SurveyDocument document(UUID surveyId) {
+        return documents.findById(surveyId).orElseThrow();
+    }
+
+    private SurveyResponse decode(SurveyDocument document) {
+        return CachedSurvey.decode(document.getJson(), objectMapper);
+    }
+
+    @Test
+    void documentsFollowWrites() {
+        SurveyResponse survey = newSurvey();
+        assertEquals(survey, decode(document(survey.getId())));
+        assertEquals(0, document(survey.getId()).getVersion().getSurvey());
+
+        SurveyResponse deleted = surveyService.deleteSurveyQuestion(survey.getId(),
+                survey.getQuestions().get(0).getId()).orElseThrow();
+        assertEquals(deleted, decode(document(survey.getId())));
+        assertEquals(1, document(survey.getId()).getVersion().getSurvey());
+
+        surveyService.disableQuestions(DisableQuestionsRequest.builder()
+                .questionIds(List.of(survey.getQuestions().get(1).getId()))
+                .build());
+        assertTrue(decode(document(survey.getId())).getQuestions().isEmpty());
+        assertEquals(surveyService.getSurveyETag(survey.getId()).orElseThrow(),
+                document(survey.getId()).getVersion().toETag());
+    }
+
+    @Test
+    void getSurveyReadsDocument() {
+        SurveyResponse survey = newSurvey();
+        cache.invalidateAfterCommit(List.of(survey.getId()));
+
+        CachedSurvey loaded = surveyService.getEncodedSurvey(survey.getId()).orElseThrow();
+
+        assertEquals(survey, loaded.getSurvey());
+        assertArrayEquals(document(survey.getId()).getJson(), loaded.getJson());
+        assertEquals(surveyService.getSurveyETag(survey.getId()).orElseThrow(), loaded.getEtag());
+    }
+
+    @Test
+    void staleReadDoesNotOutliveDisabledQuestions() {
+        SurveyResponse survey = newSurvey();
+        SurveyDocument stale = document(survey.getId());
+
+        surveyService.disableQuestions(DisableQuestionsRequest.builder()
+                .questionIds(List.of(survey.getQuestions().get(0).getId()))
+                .build());
+        cache.put(new CachedSurvey(stale, objectMapper));
+
+        SurveyResponse cached = surveyService.getSurvey(survey.getId()).orElseThrow();
+        assertEquals(1, cached.getQuestions().size());
+        assertEquals(decode(document(survey.getId())), cached);
+    }
+
+    @Test
+    void deletedSurveyIsReadFromTables() {
+        SurveyResponse survey = newSurvey();
+        jdbcTemplate.update("update surveys set deleted = true where id = ?", survey.getId());
+        surveyService.rebuildDocuments();
+        cache.invalidateAfterCommit(List.of(survey.getId()));
+        assertTrue(documents.findById(survey.getId()).isEmpty());
+
+        CachedSurvey loaded = surveyService.getEncodedSurvey(survey.getId()).orElseThrow();
+
+        assertEquals(survey, loaded.getSurvey());
+        assertEquals(surveyService.getSurveyETag(survey.getId()).orElseThrow(), loaded.getEtag());
+        assertTrue(surveyService.getSurveys(null, SurveyService.MAX_PAGE_SIZE, SurveyFields.ALL).getSurveys().stream()
+                .noneMatch(listed -> listed.getId().equals(survey.getId())));
+    }
+
+    @Test
+    void olderDocumentDoesNotReplaceNewer() {
+        SurveyResponse survey = newSurvey();
+        SurveyDocument original = document(survey.getId());
+        surveyService.deleteSurveyQuestion(survey.getId(), survey.getQuestions().get(0).getId());
+
+        documents.upsertAll(List.of(original));
+
+        assertEquals(1, decode(document(survey.getId())).getQuestions().size());
+    }
+
+    @Test
+    void rebuildRegeneratesDocuments() {
+        List<SurveyResponse> surveys = IntStream.range(0, 20).mapToObj(i -> newSurvey()).collect(Collectors.toList());
+        surveyService.deleteSurveyQuestion(surveys.get(3).getId(), surveys.get(3).getQuestions().get(1).getId());
+        SurveyResponse expected = surveyService.getSurvey(surveys.get(3).getId()).orElseThrow();
+        Integer before = jdbcTemplate.queryForObject("select count(*) from survey_documents", Integer.class);
+        jdbcTemplate.update("delete from survey_documents where survey_id in (?, ?)",
+                surveys.get(3).getId(), surveys.get(7).getId());
+        documents.upsertAll(List.of(new SurveyDocument(UUID.randomUUID(), new SurveyVersion(0, 0, 0), new byte[]{'{', '}'})));
+
+        DocumentRebuildResponse response = surveyService.rebuildDocuments();
+
+        assertEquals(before.longValue(), response.getSurveys());
+        assertEquals(1, response.getRemoved());
+        assertEquals(before, jdbcTemplate.queryForObject("select count(*) from survey_documents", Integer.class));
+        assertEquals(expected, decode(document(surveys.get(3).getId())));
+        assertEquals(surveys.get(7), decode(document(surveys.get(7).getId())));
+    }
+
+    @Test
+    void encodedPageMatchesDecodedPage() throws Exception {
+        for (int i = 0; i < 3; i++)
+            newSurvey();
+
+        SurveyPageResponse page = surveyService.getSurveys(null, 2, SurveyFields.ALL);
+        EncodedSurveyPage encoded = surveyService.getEncodedSurveys(null, 2);
+        assertNotNull(encoded.getNextCursor());
+        assertEquals(page.getNextCursor(), encoded.getNextCursor());
+        assertEquals(objectMapper.readTree(objectMapper.writeValueAsBytes(page)), objectMapper.readTree(encoded.toJson()));
+
+        UUID last = surveyService.getSurveys(null, SurveyService.MAX_PAGE_SIZE, SurveyFields.ALL).getSurveys().stream()
+                .map(SurveyResponse::getId).max(UUID::compareTo).orElseThrow();
+        assertEquals(objectMapper.readTree("{\"surveys\":[]}"),
+                objectMapper.readTree(surveyService.getEncodedSurveys(last, 2).toJson()));
+    }
+}
@@ -0,0 +1,101 @@
+package com.marketlogic.surveychallenge.service;
+
+import com.marketlogic.surveychallenge.rest.dto.QuestionResponse;
+import com.marketlogic.surveychallenge.rest.dto.SurveyResponse;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SurveySearchIndexTest {
+
+    private final SurveySearchIndex index = new SurveySearchIndex(null, null);
+
+    private SurveyResponse survey(String name, String description, String... questions) {
+        return SurveyResponse.builder()
+                .id(UUID.randomUUID())
+                .name(name)
+                .description(description)
+                .questions(List.of(questions).stream()
+                        .map(question -> QuestionResponse.builder().id(UUID.randomUUID()).name(question).build())
+                        .collect(Collectors.toList()))
+                .build();
+    }
+
+    private SurveyResponse put(SurveyResponse survey, long version) {
+        index.putAfterCommit(survey, version);
+        return survey;
+    }
+
+    @Test
+    void tokenize() {
+        assertEquals(List.of("how", "s", "the", "café", "in", "2024"), SurveySearchIndex.tokenize("How's the CAFÉ in 2024?"));
+        assertTrue(SurveySearchIndex.tokenize(" -- ").isEmpty());
+        assertTrue(SurveySearchIndex.tokenize(null).isEmpty());
+    }
+
+    @Test
+    void everyTermMatchesByPrefix() {
+        SurveyResponse coffee = put(survey("Coffee habits", "Morning drinks", "Favourite roast?"), 0);
+        SurveyResponse tea = put(survey("Tea habits", null, "Favourite leaf?"), 0);
+
+        assertEquals(List.of(coffee.getId(), tea.getId()), index.search("HAB", 10));
+        assertEquals(List.of(coffee.getId()), index.search("hab morn", 10));
+        assertEquals(List.of(tea.getId()), index.search("favourite lea", 10));
+        assertTrue(index.search("habits juice", 10).isEmpty());
+        assertTrue(index.search("?!", 10).isEmpty());
+    }
+
+    @Test
+    void rankByFieldAndExactMatch() {
+        SurveyResponse inDescription = put(survey("First", "pets at home"), 0);
+        SurveyResponse inQuestion = put(survey("Second", null, "Do you have pets?"), 0);
+        SurveyResponse inName = put(survey("Pets", null), 0);
+        SurveyResponse prefixInName = put(survey("Petshop", null), 0);
+
+        assertEquals(List.of(inName.getId(), inQuestion.getId(), prefixInName.getId(), inDescription.getId()),
+                index.search("pets", 10));
+        assertEquals(List.of(inName.getId(), inQuestion.getId()), index.search("pets", 2));
+    }
+
+    @Test
+    void newerVersionReplacesSurvey() {
+        SurveyResponse survey = put(survey("Travel", null, "Where to?", "When?"), 1);
+        SurveyResponse withoutQuestion = SurveyResponse.builder()
+                .id(survey.getId())
+                .name(survey.getName())
+                .questions(survey.getQuestions().subList(1, 2))
+                .build();
+
+        put(withoutQuestion, 2);
+        put(survey, 1);
+
+        assertEquals(1, index.size());
+        assertTrue(index.search("where", 10).isEmpty());
+        assertEquals(List.of(survey.getId()), index.search("travel when", 10));
+    }
+
+    @Test
+    void compactionKeepsLiveSurveys() {
+        List<SurveyResponse> surveys = IntStream.range(0, 100)
+                .mapToObj(i -> put(survey("Survey " + i, null, "Question"), 0))
+                .collect(Collectors.toList());
+        for (int version = 1; version <= 30; version++)
+            for (SurveyResponse survey : surveys)
+                put(SurveyResponse.builder()
+                        .id(survey.getId())
+                        .name(survey.getName() + " v" + version)
+                        .questions(List.of())
+                        .build(), version);
+
+        assertEquals(100, index.size());
+        assertEquals(100, index.search("survey v30", 1000).size());
+        assertTrue(index.search("v29", 10).isEmpty());
+        assertTrue(index.search("question", 10).isEmpty());
+        assertEquals(List.of(surveys.get(42).getId()), index.search("survey 42", 10));
+    }
+}
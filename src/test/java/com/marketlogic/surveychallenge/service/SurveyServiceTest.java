@@ -1,22 +1,39 @@
 package com.marketlogic.surveychallenge.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.marketlogic.surveychallenge.exceptions.SurveyRequestValidationException;
 import com.marketlogic.surveychallenge.rest.dto.AnswerRequest;
 import com.marketlogic.surveychallenge.rest.dto.AnswerResponse;
+import com.marketlogic.surveychallenge.rest.dto.BulkImportResponse;
+import com.marketlogic.surveychallenge.rest.dto.DisableQuestionsRequest;
+import com.marketlogic.surveychallenge.rest.dto.DisableQuestionsResponse;
 import com.marketlogic.surveychallenge.rest.dto.QuestionRequest;
 import com.marketlogic.surveychallenge.rest.dto.QuestionResponse;
+import com.marketlogic.surveychallenge.rest.dto.SurveyPageResponse;
 import com.marketlogic.surveychallenge.rest.dto.SurveyRequest;
 import com.marketlogic.surveychallenge.rest.dto.SurveyResponse;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 
+import javax.persistence.EntityManager;
 import javax.transaction.Transactional;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPInputStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -27,6 +44,41 @@ class SurveyServiceTest {
     @Autowired
     private ISurveyService surveyService;
 
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private SurveyRequest surveyWithQuestions(int questions, int answers) {
+        return SurveyRequest.builder()
+                .name("Test survey name " + UUID.randomUUID())
+                .questions(IntStream.range(0, questions)
+                        .mapToObj(q -> QuestionRequest.builder()
+                                .name("Test question name " + q)
+                                .answers(IntStream.range(0, answers)
+                                        .mapToObj(a -> AnswerRequest.builder().name("Answer " + a).build())
+                                        .collect(Collectors.toList()))
+                                .build())
+                        .collect(Collectors.toList()))
+                .build();
+    }
+
+    private long countListingStatements() {
+        entityManager.flush();
+        entityManager.clear();
+
+        Statistics statistics = entityManager.getEntityManagerFactory()
+                .unwrap(SessionFactory.class)
+                .getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+
+        SurveyPageResponse page = surveyService.getSurveys(null, SurveyService.MAX_PAGE_SIZE, SurveyFields.ALL);
+        page.getSurveys().forEach(s -> assertEquals(3, s.getQuestions().size()));
+        return statistics.getPrepareStatementCount();
+    }
+
     private void assertSurvey(SurveyRequest in, SurveyResponse out) {
         assertEquals(in.getName(), out.getName());
         assertEquals(in.getDescription(), out.getDescription());
@@ -67,7 +119,7 @@ class SurveyServiceTest {
                 .build();
         Optional<SurveyResponse> response2 = surveyService.newSurvey(survey2);
 
-        List<SurveyResponse> surveys = surveyService.getSurveys();
+        List<SurveyResponse> surveys = surveyService.getSurveys(null, 100, SurveyFields.ALL).getSurveys();
 
         assertTrue(response1.isPresent());
         assertTrue(surveys.stream().anyMatch(s -> s.getId().equals(response1.get().getId())));
@@ -76,6 +128,110 @@ class SurveyServiceTest {
         assertTrue(surveys.stream().anyMatch(s -> s.getId().equals(response2.get().getId())));
     }
 
+    @Test
+    void getSurveysPaginatedByCursor() {
+        Set<UUID> created = new HashSet<>();
+        for (int i = 0; i < 5; i++)
+            created.add(surveyService.newSurvey(surveyWithQuestions(1, 2)).orElseThrow().getId());
+
+        List<UUID> listed = new ArrayList<>();
+        SurveyPageResponse page = surveyService.getSurveys(null, 2, SurveyFields.ALL);
+        listed.addAll(page.getSurveys().stream().map(SurveyResponse::getId).collect(Collectors.toList()));
+        while (page.getNextCursor() != null) {
+            assertEquals(2, page.getSurveys().size());
+            page = surveyService.getSurveys(page.getNextCursor(), 2, SurveyFields.ALL);
+            listed.addAll(page.getSurveys().stream().map(SurveyResponse::getId).collect(Collectors.toList()));
+        }
+
+        assertEquals(created.size(), listed.size());
+        assertEquals(created, new HashSet<>(listed));
+    }
+
+    @Test
+    void getSurveysWithSelectedFields() {
+        SurveyResponse created = surveyService.newSurvey(surveyWithQuestions(2, 3)).orElseThrow();
+        entityManager.flush();
+        entityManager.clear();
+
+        Statistics statistics = entityManager.getEntityManagerFactory()
+                .unwrap(SessionFactory.class)
+                .getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+
+        SurveyPageResponse names = surveyService.getSurveys(null, SurveyService.MAX_PAGE_SIZE, SurveyFields.parse("id,name"));
+        SurveyResponse survey = names.getSurveys().stream()
+                .filter(s -> s.getId().equals(created.getId()))
+                .findFirst().orElseThrow();
+        assertEquals(created.getName(), survey.getName());
+        assertNull(survey.getQuestions());
+        assertEquals(1, statistics.getPrepareStatementCount());
+
+        statistics.clear();
+        SurveyPageResponse questions = surveyService.getSurveys(null, SurveyService.MAX_PAGE_SIZE,
+                SurveyFields.parse("questions.name"));
+        survey = questions.getSurveys().stream()
+                .filter(s -> s.getId().equals(created.getId()))
+                .findFirst().orElseThrow();
+        assertNull(survey.getName());
+        assertEquals(created.getQuestions().stream().map(QuestionResponse::getName).collect(Collectors.toList()),
+                survey.getQuestions().stream().map(QuestionResponse::getName).collect(Collectors.toList()));
+        survey.getQuestions().forEach(q -> assertNull(q.getAnswers()));
+        assertEquals(2, statistics.getPrepareStatementCount());
+
+        statistics.clear();
+        SurveyPageResponse answers = surveyService.getSurveys(null, SurveyService.MAX_PAGE_SIZE,
+                SurveyFields.parse("questions.answers.name"));
+        survey = answers.getSurveys().stream()
+                .filter(s -> s.getId().equals(created.getId()))
+                .findFirst().orElseThrow();
+        for (int i = 0; i < created.getQuestions().size(); i++) {
+            QuestionResponse question = survey.getQuestions().get(i);
+            assertEquals(created.getQuestions().get(i).getId(), question.getId());
+            assertNull(question.getName());
+            assertEquals(created.getQuestions().get(i).getAnswers().stream().map(AnswerResponse::getName).collect(Collectors.toList()),
+                    question.getAnswers().stream().map(AnswerResponse::getName).collect(Collectors.toList()));
+        }
+        assertEquals(3, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void getSurveysWithUnknownField() {
+        assertThrows(SurveyRequestValidationException.class, () -> SurveyFields.parse("id,secret"));
+        assertThrows(SurveyRequestValidationException.class, () -> SurveyFields.parse("name.id"));
+        assertThrows(SurveyRequestValidationException.class, () -> SurveyFields.parse("questions.answers.votes"));
+        assertTrue(SurveyFields.parse(" ").isAll());
+        assertTrue(SurveyFields.parse("name,description,questions").isAll());
+        assertFalse(SurveyFields.parse("name,questions").isAll());
+    }
+
+    @Test
+    void getSurveysQueryCountIsConstant() {
+        for (int i = 0; i < 3; i++)
+            surveyService.newSurvey(surveyWithQuestions(3, 3));
+        long statementsForFewSurveys = countListingStatements();
+
+        for (int i = 0; i < 30; i++)
+            surveyService.newSurvey(surveyWithQuestions(3, 3));
+        long statementsForManySurveys = countListingStatements();
+
+        assertEquals(statementsForFewSurveys, statementsForManySurveys);
+    }
+
+    @Test
+    void streamSurveys() {
+        Set<UUID> created = new HashSet<>();
+        for (int i = 0; i < SurveyService.STREAM_CHUNK_SIZE + 5; i++)
+            created.add(surveyService.newSurvey(surveyWithQuestions(2, 2)).orElseThrow().getId());
+
+        List<SurveyResponse> streamed = new ArrayList<>();
+        surveyService.streamSurveys(streamed::add);
+
+        assertEquals(created, streamed.stream().map(SurveyResponse::getId).collect(Collectors.toSet()));
+        streamed.forEach(s -> assertEquals(2, s.getQuestions().size()));
+    }
+
     @Test
     void getSurveyByIdNoQuestions() {
         SurveyRequest survey = SurveyRequest.builder()
@@ -127,6 +283,33 @@ class SurveyServiceTest {
         assertSurvey(survey, newSurvey.get());
     }
 
+    @Test
+    void getSurveyIsCached() {
+        Optional<SurveyResponse> response = surveyService.newSurvey(surveyWithQuestions(2, 2));
+        assertTrue(response.isPresent());
+
+        Optional<SurveyResponse> loaded = surveyService.getSurvey(response.get().getId());
+        Optional<SurveyResponse> cached = surveyService.getSurvey(response.get().getId());
+
+        assertTrue(loaded.isPresent());
+        assertTrue(cached.isPresent());
+        assertSame(loaded.get(), cached.get());
+    }
+
+    @Test
+    void getEncodedSurvey() throws IOException {
+        Optional<SurveyResponse> response = surveyService.newSurvey(surveyWithQuestions(2, 2));
+        assertTrue(response.isPresent());
+
+        Optional<CachedSurvey> encoded = surveyService.getEncodedSurvey(response.get().getId());
+
+        assertTrue(encoded.isPresent());
+        assertEquals(response.get(), objectMapper.readValue(encoded.get().getJson(), SurveyResponse.class));
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(encoded.get().getGzip()))) {
+            assertArrayEquals(encoded.get().getJson(), gzip.readAllBytes());
+        }
+    }
+
     @Test
     void newSurveyValid() {
         SurveyRequest survey = SurveyRequest.builder()
@@ -303,4 +486,105 @@ class SurveyServiceTest {
         assertEquals(1, newSurvey.get().getQuestions().size());
         assertFalse(newSurvey.get().getQuestions().stream().anyMatch(q -> q.getId().equals(questionId)));
     }
-}
\ No newline at end of file
+
+    @Test
+    void deleteSurveyQuestionUnknownQuestion() {
+        Optional<SurveyResponse> response = surveyService.newSurvey(surveyWithQuestions(2, 2));
+        assertTrue(response.isPresent());
+
+        assertTrue(surveyService.deleteSurveyQuestion(response.get().getId(), UUID.randomUUID()).isEmpty());
+        assertTrue(surveyService.deleteSurveyQuestion(UUID.randomUUID(),
+                response.get().getQuestions().get(0).getId()).isEmpty());
+    }
+
+    @Test
+    void disableQuestions() {
+        SurveyResponse survey1 = surveyService.newSurvey(surveyWithQuestions(2, 2)).orElseThrow();
+        SurveyResponse survey2 = surveyService.newSurvey(surveyWithQuestions(3, 2)).orElseThrow();
+        surveyService.getSurvey(survey1.getId());
+
+        DisableQuestionsResponse response = surveyService.disableQuestions(DisableQuestionsRequest.builder()
+                .questionIds(Arrays.asList(
+                        survey1.getQuestions().get(0).getId(),
+                        survey2.getQuestions().get(0).getId(),
+                        survey2.getQuestions().get(2).getId(),
+                        UUID.randomUUID()))
+                .build());
+
+        assertEquals(3, response.getQuestions());
+        assertEquals(Set.of(survey1.getId(), survey2.getId()), new HashSet<>(response.getSurveyIds()));
+        assertEquals(1, surveyService.getSurvey(survey1.getId()).orElseThrow().getQuestions().size());
+        assertEquals(1, surveyService.getSurvey(survey2.getId()).orElseThrow().getQuestions().size());
+    }
+
+    @Test
+    void surveyETagWithoutLoadingSurvey() {
+        SurveyResponse survey = surveyService.newSurvey(surveyWithQuestions(2, 2)).orElseThrow();
+        entityManager.flush();
+        entityManager.clear();
+
+        Statistics statistics = entityManager.getEntityManagerFactory()
+                .unwrap(SessionFactory.class)
+                .getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+
+        String etag = surveyService.getSurveyETag(survey.getId()).orElseThrow();
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+        assertEquals(etag, surveyService.getEncodedSurvey(survey.getId()).orElseThrow().getEtag());
+
+        surveyService.deleteSurveyQuestion(survey.getId(), survey.getQuestions().get(0).getId());
+        String deleted = surveyService.getSurveyETag(survey.getId()).orElseThrow();
+        assertNotEquals(etag, deleted);
+        assertEquals(deleted, surveyService.getEncodedSurvey(survey.getId()).orElseThrow().getEtag());
+
+        assertTrue(surveyService.getSurveyETag(UUID.randomUUID()).isEmpty());
+    }
+
+    private Set<UUID> listSurveyIds() {
+        return surveyService.getSurveys(null, SurveyService.MAX_PAGE_SIZE, SurveyFields.ALL).getSurveys().stream()
+                .map(SurveyResponse::getId)
+                .collect(Collectors.toSet());
+    }
+
+    @Test
+    void importSurveysFromJsonArray() throws IOException {
+        Set<UUID> before = listSurveyIds();
+        String body = "[" +
+                objectMapper.writeValueAsString(surveyWithQuestions(2, 3)) + "," +
+                objectMapper.writeValueAsString(SurveyRequest.builder().description("No name").build()) + "," +
+                objectMapper.writeValueAsString(surveyWithQuestions(1, 2)) + "]";
+
+        BulkImportResponse response = surveyService.importSurveys(
+                new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(2, response.getImported());
+        assertEquals(1, response.getFailed());
+        assertEquals(1, response.getFailures().get(0).getIndex());
+        assertEquals("Survey name is not defined", response.getFailures().get(0).getMessage());
+
+        Set<UUID> imported = listSurveyIds();
+        imported.removeAll(before);
+        assertEquals(2, imported.size());
+        List<Integer> questions = imported.stream()
+                .map(id -> surveyService.getSurvey(id).orElseThrow().getQuestions().size())
+                .sorted()
+                .collect(Collectors.toList());
+        assertEquals(Arrays.asList(1, 2), questions);
+    }
+
+    @Test
+    void importSurveysFromNdjson() throws IOException {
+        String body = objectMapper.writeValueAsString(surveyWithQuestions(1, 1)) + "\n" +
+                "{\"name\": 42, \"questions\": \"none\"}\n" +
+                objectMapper.writeValueAsString(surveyWithQuestions(1, 1)) + "\n";
+
+        BulkImportResponse response = surveyService.importSurveys(
+                new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(2, response.getImported());
+        assertEquals(1, response.getFailed());
+        assertEquals(1, response.getFailures().get(0).getIndex());
+    }
+}